@@ -6,7 +6,11 @@ public class Config implements Serializable {
 	private static final long serialVersionUID = -8722584434179067291L;
 	private static Config config = null;
 
+	public static final String BULK_LOAD_PROPERTY = "bulkload";
+	public static final String BULK_LOAD_BATCH_SIZE_PROPERTY = "bulkloadbatchsize";
 	public static final String CHURN_DELTA_PROPERTY = "churndelta";
+	public static final String CLIENT_COUNT_PROPERTY = "clientcount";
+	public static final String CLIENT_INDEX_PROPERTY = "clientindex";
 	public static final String DB_PROPERTY = "db";
 	public static final String DO_TRANSACTIONS_PROPERTY = "dotransactions";
 	public static final String EXPORTER_PROPERTY = "exporter";
@@ -14,6 +18,7 @@ public class Config implements Serializable {
 	public static final String EXPORT_FILE_APPEND_PROPERTY = "exportfile_append";
 	public static final String FIELD_COUNT_PROPERTY = "fieldcount";
 	public static final String FIELD_LENGTH_PROPERTY = "fieldlength";
+	public static final String HDR_HISTOGRAM_DIGITS_PROPERTY = "hdrhistogram.digits";
 	public static final String HISTOGRAM_BUCKET_PROPERTY = "histogram.buckets";
 	public static final String INSERT_ORDER_PROPERTY = "insertorder";
 	public static final String INSERT_PROPORTION_PROPERTY = "insertproportion";
@@ -52,6 +57,8 @@ public class Config implements Serializable {
 	public static final String HC_GROUP_NAME_PROPERTY = "hc.groupName";
 	public static final String HC_GROUP_PASS_PROPERTY = "hc.groupPass";
 	public static final String HC_USE_SUPER_CLIENT_PROPERTY = "hc.useSuperClient";
+	public static final String HC_ASYNC_PROPERTY = "hc.async";
+	public static final String HC_ASYNC_TIMEOUT_PROPERTY = "hc.asyncTimeoutMs";
 	//end
 
 	public static final String OPERATION_COUNT_PROPERTY = "operationcount";
@@ -64,26 +71,67 @@ public class Config implements Serializable {
 	 * 每个线程执行完一个操作后sleep的时间
 	 */
 	public static final String SLEEP_TIME = "sleeptime";
+	public static final String PHASES_PROPERTY = "phases";
+	public static final String PIPELINE_DEPTH_PROPERTY = "pipelinedepth";
+	public static final String PREGENERATE_PROPERTY = "pregenerate";
+	public static final String PREGENERATE_DEPTH_PROPERTY = "pregeneratedepth";
+	public static final String PREGENERATE_THREADS_PROPERTY = "pregeneratethreads";
 	public static final String PRINT_STATS_INTERVAL_PROPERTY = "printstatsinterval";
+	public static final String RAMPUP_MODE_PROPERTY = "rampupmode";
+	public static final String RAMPUP_TIME_PROPERTY = "rampuptime";
+	public static final String RATE_PROFILE_PROPERTY = "rateprofile";
 	public static final String READ_ALL_FIELDS_PROPERTY = "readallfields";
 	public static final String READ_PROPORTION_PROPERTY = "readproportion";
 	public static final String READMODIFYWRITE_PROPORTION_PROPERTY = "readmodifywriteproportion";
 	public static final String RECORD_COUNT_PROPERTY = "recordcount";
+	public static final String REPLAY_FILE_PROPERTY = "replayfile";
+	public static final String REPLAY_TIMING_PROPERTY = "replaytiming";
 	public static final String REQUEST_DISTRIBUTION_PROPERTY = "requestdistribution";
+	public static final String SATURATION_MAX_PROPERTY = "saturationmax";
+	public static final String SATURATION_PRECISION_PROPERTY = "saturationprecision";
+	public static final String SATURATION_SEARCH_PROPERTY = "saturationsearch";
+	public static final String SATURATION_START_PROPERTY = "saturationstart";
+	public static final String SATURATION_STEP_PROPERTY = "saturationstep";
 	public static final String SCAN_LENGTH_DISTRIBUTION_PROPERTY = "scanlengthdistribution";
 	public static final String SCAN_PROPORTION_PROPERTY = "scanproportion";
+	public static final String SEED_PROPERTY = "seed";
 	public static final String SLAVE_ADDRESS_PROPERTY = "slaveaddress";
+	public static final String SLO_LATENCY_PROPERTY = "slolatency";
+	public static final String SLO_OPERATION_PROPERTY = "slooperation";
+	public static final String SLO_PERCENTILE_PROPERTY = "slopercentile";
+	public static final String START_TIMEOUT_PROPERTY = "starttimeout";
 	public static final String TABLENAME_PROPERTY = "table";
 	public static final String TARGET_PROPERTY = "target";
+	public static final String THINK_TIME_DISTRIBUTION_PROPERTY = "thinktimedistribution";
+	public static final String THINK_TIME_FILE_PROPERTY = "thinktimefile";
 	public static final String THREAD_COUNT_PROPERTY = "threadcount";
+	public static final String THREAD_MODE_PROPERTY = "threadmode";
 	public static final String TIMESERIES_GRANULARITY_PROPERTY = "timeseries.granularity";
+	public static final String TRACE_FILE_PROPERTY = "tracefile";
 	public static final String UPDATE_PROPORTION_PROPERTY = "updateproportion";
 	public static final String VALUE_LENGTH_PROPERTY = "valuelength";
+	public static final String WARMUP_OPERATIONS_PROPERTY = "warmupoperations";
+	public static final String WARMUP_TIME_PROPERTY = "warmuptime";
+	public static final String WORKERS_PER_DATASTORE_PROPERTY = "workersperdatastore";
 	public static final String WORKING_SET_PROPERTY = "workingset";
 	public static final String WORKLOAD_PROPERTY = "workload";
 	public static final String WRITE_ALL_FIELDS_PROPERTY = "writeallfields";
+	public static final String ZIPFIAN_CONSTANT_PROPERTY = "zipfianconstant";
 
+	/**
+	 * Load phase only: split [insert_start, insert_start + insert_count) into
+	 * one contiguous partition per client and thread, and write each partition
+	 * in batches of bulk_load_batch_size records
+	 */
+	public boolean bulk_load = false;
+	public int bulk_load_batch_size = 100;
 	public int churn_delta = 1;
+	/**
+	 * Number of clients (master and slaves) sharing a bulk load, and the index
+	 * of this one. Set by the master for every slave.
+	 */
+	public int client_count = 1;
+	public int client_index = 0;
 	public String db = null;
 	public boolean do_transactions = false;
 	public String exporter = "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter";
@@ -92,23 +140,40 @@ public class Config implements Serializable {
 	//	public int field_count = 10;//default
 	public int field_count = 1;
 	public int field_length = 100;
+	/**
+	 * Significant decimal digits of the latencies of measurementtype=hdrhistogram, 1 to 5
+	 */
+	public int hdr_histogram_digits = 3;
 	public int histogram_buckets = 20;
 	//public String insert_order = "hashed";
 	public String insert_order = "";//by zx 保持key的顺序，不hash,便于调试
 
 	public double insert_proportion = 0.0;
 	public int insert_start = 0;
+	/**
+	 * Number of records loaded by all clients together, &lt;= 0 for
+	 * record_count - insert_start
+	 */
+	public int insert_count = 0;
 	public String key_prefix = "key";
 	//public String key_prefix = "";//by 为制造不均衡使得key值为简单整数，这样实现类似1-84->node1 85-168->node2，这样的效果。由于缓存客户端和服务器的hash方式要一致，所以单纯改客户端的映射方式不行，放弃
 	public int operation_count = 0;
+	/**
+	 * Unit: s, &lt;= 0 for no limit (the run ends after operation_count ops)
+	 */
 	public int max_execution_time = -1;
 	/**
 	 * 每个线程执行完一个操作后sleep的时间,用于避免负载过高
-	 * unit:ms
+	 * unit:ms (fractions allowed). The mean of think_time_distribution.
+	 * Ignored when target is set; the open-loop schedule paces the threads then.
 	 */
-	public int sleep_time = 100;
+	public double sleep_time = 100;
 	public String label = "";
 	public int max_scan_length = 1000;
+	/**
+	 * histogram (power-of-2 buckets), hdrhistogram (log-linear, see
+	 * hdr_histogram_digits) or timeseries
+	 */
 	public String measurement_type = "histogram";
 	public String memcached_address = null;
 	public int memcached_port = 11211;
@@ -145,10 +210,13 @@ public class Config implements Serializable {
 	public boolean hc_useSuperClient = false;
 	/**
 	 * 异步执行操作?
+	 * Issue transactions through the asynchronous DataStore methods, with
+	 * pipeline_depth operations in flight per DataStore.
 	 */
 	public boolean hc_async = false;
 	/**
-	 * 
+	 * How long a pool waits for its in-flight asynchronous operations when it
+	 * is closed. Unit: ms, &lt;= 0 to wait until they complete
 	 */
 	public int hc_asyncTimeoutMs;
 
@@ -161,24 +229,136 @@ public class Config implements Serializable {
 	 * YCSB原来默认值为5s,改成1s,以提高计算Throughput的精度（便于比较OnceDC使用和不使用syn模式的性能差异）
 	 */
 	public int print_stats_interval = 1;
+	/**
+	 * Measured phases of a run with their own durations and properties, see
+	 * PhaseSchedule. null for one phase with the properties of the run.
+	 */
+	public String phases = null;
+	/**
+	 * Maximum number of asynchronous operations in flight per DataStore when
+	 * hc_async is set
+	 */
+	public int pipeline_depth = 1;
+	/**
+	 * Generate the operations of the transaction phase ahead of time in
+	 * pregenerate_threads producer threads, which fill a ring of
+	 * pregenerate_depth operations per worker, so that the workers only
+	 * execute them
+	 */
+	public boolean pregenerate = false;
+	public int pregenerate_depth = 1024;
+	public int pregenerate_threads = 1;
+	/**
+	 * How the load is raised during the ramp-up phase: "threads" starts the
+	 * threads one after the other, "target" raises the target linearly from
+	 * 0 (only with a target)
+	 */
+	public String rampup_mode = "threads";
+	/**
+	 * 开始时逐渐增加负载的时间, measured separately as RAMPUP. Unit: s
+	 */
+	public int rampup_time = 0;
+	/**
+	 * Varies the target over time, e.g. "sine period=86400 amplitude=0.5",
+	 * see RateProfile. null for a constant target
+	 */
+	public String rate_profile = null;
 	public boolean read_all_fields = true;
 	public double read_proportion = 0.95;
 	public double read_write_modify_proportion = 0.0;
 	public int record_count = 0;
+	/**
+	 * Trace replayed by TraceReplayWorkload, and "original" to replay it with
+	 * its recorded timing or "fast" as fast as possible
+	 */
+	public String replay_file = null;
+	public String replay_timing = "original";
 	public String request_distribution = "zipfian";
+	/**
+	 * "step" or "binary" to search the highest target that meets the SLO
+	 * instead of running one test (see SaturationSearch), null for one test.
+	 * The targets are per client like target; saturation_max = 0 for no upper
+	 * bound, saturation_step = 0 for steps of saturation_start,
+	 * saturation_precision = 0 for 5% of saturation_start. Unit: ops/sec
+	 */
+	public String saturation_search = null;
+	public int saturation_start = 1000;
+	public int saturation_step = 0;
+	public int saturation_max = 0;
+	public int saturation_precision = 0;
 	public String scan_length_distribution = "uniform";
 	public double scan_proportion = 0.0;
+	/**
+	 * Seed of the random streams of the generators, see RandomStream, so
+	 * that a run repeats the choices of every thread. 0 for a seed from the
+	 * clock.
+	 */
+	public long seed = 0;
 	public String slave_address = null;
+	/**
+	 * Latency SLO of the saturation search: the slo_percentile percentile of
+	 * slo_operation (of every operation if null) has to stay below
+	 * slo_latency. Unit: ms
+	 */
+	public double slo_latency = 0;
+	public String slo_operation = null;
+	public double slo_percentile = 99;
+	/**
+	 * How long the clients wait at the start barrier, for each other and
+	 * for the start of the master. A slave whose start never comes gives up
+	 * the run after it. Unit: s
+	 */
+	public int start_timeout = 600;
 	//	public String table_name = "usertable";
 	public String table_name = "default";//the default hazelcast map is named 'default'
+	/**
+	 * Operations per second issued by each client process (master and every
+	 * slave), spread over its threads by an open-loop schedule. 0 = unlimited.
+	 */
 	public int target = 0;
+	/**
+	 * Distribution of the think time of a thread after every operation (mean
+	 * sleep_time), or with a target of the time between two scheduled
+	 * operations: "constant", "none", "exponential" (Poisson arrivals),
+	 * "uniform" or "empirical" (drawn from think_time_file, one time per line
+	 * in ms)
+	 */
+	public String think_time_distribution = "constant";
+	public String think_time_file = null;
 	public int thread_count = 1;
+	/**
+	 * "platform" or "virtual"; virtual threads need Java 21, the client falls
+	 * back to platform threads on older JVMs
+	 */
+	public String thread_mode = "platform";
 	public int timeseries_granularity = 1000;
+	/**
+	 * Records the operations of the run to this file, see
+	 * com.yahoo.ycsb.trace.Trace. null for no trace
+	 */
+	public String trace_file = null;
 	public double update_proportion = 0.05;
+	/**
+	 * 多少个线程共享一个DataStore实例. The DataStore has to be thread safe if
+	 * this is greater than 1.
+	 */
+	public int workers_per_datastore = 1;
+	/**
+	 * Full load after the ramp-up that is measured separately as WARMUP, so
+	 * JIT compilation and cold caches do not show up in the results. It ends
+	 * when both warmup_time and warmup_operations are reached. Unit: s
+	 */
+	public int warmup_time = 0;
+	public int warmup_operations = 0;
 	public int working_set = 1;
 	public int value_length = 256;
 	public String workload = null;
 	public boolean write_all_fields = false;
+	/**
+	 * Skew of the zipfian and latest request distributions, between 0 and 1
+	 * exclusive; the higher, the more popular the head of the distribution
+	 */
+	public double zipfian_constant = 0.99;
 
 	public static final String INSERT_COUNT_PROPERTY = "insertcount";
 
@@ -193,8 +373,16 @@ public class Config implements Serializable {
 
 	public void setProperty(String property, String value) {
 		try {
-			if (property.equals(CHURN_DELTA_PROPERTY)) {
+			if (property.equals(BULK_LOAD_PROPERTY)) {
+				bulk_load = Boolean.parseBoolean(value);
+			} else if (property.equals(BULK_LOAD_BATCH_SIZE_PROPERTY)) {
+				bulk_load_batch_size = Integer.parseInt(value);
+			} else if (property.equals(CHURN_DELTA_PROPERTY)) {
 				churn_delta = (new Integer(value)).intValue();
+			} else if (property.equals(CLIENT_COUNT_PROPERTY)) {
+				client_count = Integer.parseInt(value);
+			} else if (property.equals(CLIENT_INDEX_PROPERTY)) {
+				client_index = Integer.parseInt(value);
 			} else if (property.equals(DB_PROPERTY)) {
 				db = value;
 			} else if (property.equals(DO_TRANSACTIONS_PROPERTY)) {
@@ -209,6 +397,8 @@ public class Config implements Serializable {
 				field_count = (new Integer(value)).intValue();
 			} else if (property.equals(FIELD_LENGTH_PROPERTY)) {
 				field_length = (new Integer(value)).intValue();
+			} else if (property.equals(HDR_HISTOGRAM_DIGITS_PROPERTY)) {
+				hdr_histogram_digits = Integer.parseInt(value);
 			} else if (property.equals(HISTOGRAM_BUCKET_PROPERTY)) {
 				histogram_buckets = (new Integer(value)).intValue();
 			} else if (property.equals(INSERT_ORDER_PROPERTY)) {
@@ -217,6 +407,8 @@ public class Config implements Serializable {
 				insert_proportion = (new Double(value)).doubleValue();
 			} else if (property.equals(INSERT_START_PROPERTY)) {
 				insert_start = (new Integer(value)).intValue();
+			} else if (property.equals(INSERT_COUNT_PROPERTY)) {
+				insert_count = Integer.parseInt(value);
 			} else if (property.equals(KEY_PREFIX_PROPERTY)) {
 				key_prefix = value;
 			} else if (property.equals(LABEL_PROPERTY)) {
@@ -279,6 +471,10 @@ public class Config implements Serializable {
 				hc_group_password = value;
 			} else if (property.equals(HC_USE_SUPER_CLIENT_PROPERTY)) {
 				hc_useSuperClient = (new Boolean(value)).booleanValue();
+			} else if (property.equals(HC_ASYNC_PROPERTY)) {
+				hc_async = Boolean.parseBoolean(value);
+			} else if (property.equals(HC_ASYNC_TIMEOUT_PROPERTY)) {
+				hc_asyncTimeoutMs = Integer.parseInt(value);
 			}
 			//end hc
 			else if (property.equals(OPERATION_COUNT_PROPERTY)) {
@@ -286,9 +482,25 @@ public class Config implements Serializable {
 			} else if (property.equals(MAX_EXECUTION_TIME)) {
 				max_execution_time = Integer.parseInt(value);
 			} else if (property.equals(SLEEP_TIME)) {//设置一个线程执行完一个操作后的睡眠时间
-				sleep_time = Integer.parseInt(value);
+				sleep_time = Double.parseDouble(value);
+			} else if (property.equals(PHASES_PROPERTY)) {
+				phases = value;
+			} else if (property.equals(PIPELINE_DEPTH_PROPERTY)) {
+				pipeline_depth = Integer.parseInt(value);
+			} else if (property.equals(PREGENERATE_PROPERTY)) {
+				pregenerate = Boolean.parseBoolean(value);
+			} else if (property.equals(PREGENERATE_DEPTH_PROPERTY)) {
+				pregenerate_depth = Integer.parseInt(value);
+			} else if (property.equals(PREGENERATE_THREADS_PROPERTY)) {
+				pregenerate_threads = Integer.parseInt(value);
 			} else if (property.equals(PRINT_STATS_INTERVAL_PROPERTY)) {
 				print_stats_interval = (new Integer(value)).intValue();
+			} else if (property.equals(RAMPUP_MODE_PROPERTY)) {
+				rampup_mode = value;
+			} else if (property.equals(RAMPUP_TIME_PROPERTY)) {
+				rampup_time = Integer.parseInt(value);
+			} else if (property.equals(RATE_PROFILE_PROPERTY)) {
+				rate_profile = value;
 			} else if (property.equals(READ_ALL_FIELDS_PROPERTY)) {
 				read_all_fields = (new Boolean(value)).booleanValue();
 			} else if (property.equals(READ_PROPORTION_PROPERTY)) {
@@ -298,32 +510,72 @@ public class Config implements Serializable {
 						.doubleValue();
 			} else if (property.equals(RECORD_COUNT_PROPERTY)) {
 				record_count = (new Integer(value)).intValue();
+			} else if (property.equals(REPLAY_FILE_PROPERTY)) {
+				replay_file = value;
+			} else if (property.equals(REPLAY_TIMING_PROPERTY)) {
+				replay_timing = value;
 			} else if (property.equals(REQUEST_DISTRIBUTION_PROPERTY)) {
 				request_distribution = value;
+			} else if (property.equals(SATURATION_MAX_PROPERTY)) {
+				saturation_max = Integer.parseInt(value);
+			} else if (property.equals(SATURATION_PRECISION_PROPERTY)) {
+				saturation_precision = Integer.parseInt(value);
+			} else if (property.equals(SATURATION_SEARCH_PROPERTY)) {
+				saturation_search = value;
+			} else if (property.equals(SATURATION_START_PROPERTY)) {
+				saturation_start = Integer.parseInt(value);
+			} else if (property.equals(SATURATION_STEP_PROPERTY)) {
+				saturation_step = Integer.parseInt(value);
 			} else if (property.equals(SCAN_LENGTH_DISTRIBUTION_PROPERTY)) {
 				scan_length_distribution = value;
 			} else if (property.equals(SCAN_PROPORTION_PROPERTY)) {
 				scan_proportion = (new Double(value)).doubleValue();
+			} else if (property.equals(SEED_PROPERTY)) {
+				seed = Long.parseLong(value);
 			} else if (property.equals(SLAVE_ADDRESS_PROPERTY)) {
 				slave_address = value;
+			} else if (property.equals(SLO_LATENCY_PROPERTY)) {
+				slo_latency = Double.parseDouble(value);
+			} else if (property.equals(SLO_OPERATION_PROPERTY)) {
+				slo_operation = value;
+			} else if (property.equals(SLO_PERCENTILE_PROPERTY)) {
+				slo_percentile = Double.parseDouble(value);
+			} else if (property.equals(START_TIMEOUT_PROPERTY)) {
+				start_timeout = Integer.parseInt(value);
 			} else if (property.equals(TABLENAME_PROPERTY)) {
 				table_name = value;
 			} else if (property.equals(TARGET_PROPERTY)) {
 				target = (new Integer(value)).intValue();
+			} else if (property.equals(THINK_TIME_DISTRIBUTION_PROPERTY)) {
+				think_time_distribution = value;
+			} else if (property.equals(THINK_TIME_FILE_PROPERTY)) {
+				think_time_file = value;
 			} else if (property.equals(THREAD_COUNT_PROPERTY)) {
 				thread_count = (new Integer(value)).intValue();
+			} else if (property.equals(THREAD_MODE_PROPERTY)) {
+				thread_mode = value;
 			} else if (property.equals(TIMESERIES_GRANULARITY_PROPERTY)) {
 				timeseries_granularity = (new Integer(value)).intValue();
+			} else if (property.equals(TRACE_FILE_PROPERTY)) {
+				trace_file = value;
 			} else if (property.equals(UPDATE_PROPORTION_PROPERTY)) {
 				update_proportion = (new Double(value)).doubleValue();
 			} else if (property.equals(VALUE_LENGTH_PROPERTY)) {
 				value_length = (new Integer(value)).intValue();
+			} else if (property.equals(WARMUP_OPERATIONS_PROPERTY)) {
+				warmup_operations = Integer.parseInt(value);
+			} else if (property.equals(WARMUP_TIME_PROPERTY)) {
+				warmup_time = Integer.parseInt(value);
+			} else if (property.equals(WORKERS_PER_DATASTORE_PROPERTY)) {
+				workers_per_datastore = Integer.parseInt(value);
 			} else if (property.equals(WORKING_SET_PROPERTY)) {
 				working_set = (new Integer(value)).intValue();
 			} else if (property.equals(WORKLOAD_PROPERTY)) {
 				workload = value;
 			} else if (property.equals(WRITE_ALL_FIELDS_PROPERTY)) {
 				write_all_fields = (new Boolean(value)).booleanValue();
+			} else if (property.equals(ZIPFIAN_CONSTANT_PROPERTY)) {
+				zipfian_constant = Double.parseDouble(value);
 			} else {
 				System.out.println("Unknown property " + property
 						+ " with value " + value);
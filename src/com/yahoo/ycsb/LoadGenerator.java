@@ -6,6 +6,7 @@ import java.util.Enumeration;
 import java.util.Properties;
 
 import com.yahoo.ycsb.client.MasterClient;
+import com.yahoo.ycsb.client.SaturationSearch;
 
 public class LoadGenerator {
 
@@ -14,6 +15,11 @@ public class LoadGenerator {
 		Config config = Config.getConfig();
 		loadConfig(args, config);
 
+		if (config.saturation_search != null) {
+			new SaturationSearch().execute();
+			return;
+		}
+
 		MasterClient client = MasterClient.getMasterClient();
 		client.init();
 		client.setupSlaves();
@@ -180,5 +186,26 @@ public class LoadGenerator {
 				.println("To run the load phase from multiple servers, start a separate client on each; additionally,");
 		System.out
 				.println("use the \"insertcount\" and \"insertstart\" properties to divide up the records to be inserted");
+		System.out
+				.println("or set \"bulkload=true\" on the master to have the records divided among the master, its slaves");
+		System.out
+				.println("and their threads automatically, and written in batches of \"bulkloadbatchsize\" records.");
+		System.out.println("");
+		System.out
+				.println("To find the highest throughput within a latency SLO, set \"saturationsearch=step\" or \"binary\"");
+		System.out
+				.println("and e.g. \"slooperation=GET\", \"slopercentile=99\", \"slolatency=2\" (ms); the test is run with");
+		System.out
+				.println("growing targets from \"saturationstart\" (ops/sec per client) until the SLO is violated.");
+		System.out.println("");
+		System.out
+				.println("To vary the target over time, set e.g. \"rateprofile=sine period=86400 amplitude=0.5\", or step,");
+		System.out
+				.println("sawtooth, spikes or csv; throughput and latency are then reported against the target of the moment.");
+		System.out.println("");
+		System.out
+				.println("To keep the generation of keys and values off the measured path, set \"pregenerate=true\"; producer");
+		System.out
+				.println("threads (\"pregeneratethreads\") then fill a ring of \"pregeneratedepth\" operations per thread.");
 	}
 }
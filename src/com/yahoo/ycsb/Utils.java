@@ -17,28 +17,30 @@
 
 package com.yahoo.ycsb;
 
-import java.util.Random;
+import java.util.SplittableRandom;
+
+import com.yahoo.ycsb.generator.RandomStream;
 
 /**
  * Utility functions.
  */
 public class Utils {
-	static Random random = new Random();
-
 	/**
-	 * Generate a random ASCII string of a given length.
+	 * Generate a random ASCII string of a given length, from the random
+	 * stream of the calling thread.
 	 */
 	public static String ASCIIString(int length) {
 		int interval = '~' - ' ' + 1;
+		SplittableRandom random = RandomStream.get();
 
-		byte[] buf = new byte[length];
-		random.nextBytes(buf);
+		char[] buf = new char[length];
+		long bits = 0;
 		for (int i = 0; i < length; i++) {
-			if (buf[i] < 0) {
-				buf[i] = (byte) ((-buf[i] % interval) + ' ');
-			} else {
-				buf[i] = (byte) ((buf[i] % interval) + ' ');
-			}
+			// 8 characters per random long
+			if ((i & 7) == 0)
+				bits = random.nextLong();
+			buf[i] = (char) (((bits & 0xFF) % interval) + ' ');
+			bits >>>= 8;
 		}
 		return new String(buf);
 	}
@@ -17,6 +17,8 @@
 
 package com.yahoo.ycsb;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * One experiment scenario. One object of this type will be instantiated and
  * shared among all client threads. This class should be constructed using a
@@ -65,6 +67,25 @@ public abstract class Workload {
 		return null;
 	}
 
+	/**
+	 * @return true if the workload sets the pace of its operations itself,
+	 *         e.g. a trace replayed with its recorded timing, so the client
+	 *         threads do not think (sleeptime) between them. A target still
+	 *         applies.
+	 */
+	public boolean isSelfPaced() {
+		return false;
+	}
+
+	/**
+	 * Apply a change of the Config (e.g. recordcount or workingset) made while
+	 * the run is in progress. Called in a control thread, concurrently with
+	 * the operations of the client threads, which should pick up the change
+	 * before their next operation.
+	 */
+	public void reconfigure() throws WorkloadException {
+	}
+
 	/**
 	 * Cleanup the scenario. Called once, in the main client thread, after all
 	 * operations have completed.
@@ -83,6 +104,34 @@ public abstract class Workload {
 	 */
 	public abstract boolean doInsert(DataStore db);
 
+	/**
+	 * Do one insert operation with the state initThread() returned for the
+	 * calling thread. The default ignores threadstate.
+	 */
+	public boolean doInsert(DataStore db, Object threadstate) {
+		return doInsert(db);
+	}
+
+	/**
+	 * Insert the records with the key numbers [firstkey, firstkey + count) in
+	 * as few requests as the DataStore allows. Called by the bulk loader
+	 * (bulkload=true), which partitions the key numbers among the clients and
+	 * their threads.
+	 * 
+	 * The default calls doInsert() count times, so a workload that does not
+	 * override it inserts the keys of its own insert sequence instead of the
+	 * partition.
+	 * 
+	 * @return true if all records were inserted
+	 */
+	public boolean doInsertBatch(DataStore db, Object threadstate,
+			int firstkey, int count) {
+		boolean ok = true;
+		for (int i = 0; i < count; i++)
+			ok &= doInsert(db, threadstate);
+		return ok;
+	}
+
 	/**
 	 * Do one transaction operation. Because it will be called concurrently from
 	 * multiple client threads, this function must be thread safe. However,
@@ -99,4 +148,95 @@ public abstract class Workload {
 	 *         when you are done.
 	 */
 	public abstract boolean doTransaction(DataStore db);
+
+	/**
+	 * Do one transaction operation with the state initThread() returned for
+	 * the calling thread. The default ignores threadstate.
+	 */
+	public boolean doTransaction(DataStore db, Object threadstate) {
+		return doTransaction(db);
+	}
+
+	/**
+	 * Issue one transaction operation without waiting for it to complete,
+	 * using the asynchronous methods of the DataStore. Used by the pipelined
+	 * executor (pipelinedepth &gt; 1), which keeps several operations in
+	 * flight per DataStore. The same thread safety rules as for
+	 * doTransaction() apply.
+	 *
+	 * The default runs doTransaction() and returns a completed future.
+	 *
+	 * @return a future that completes when the operation has completed, or
+	 *         a future completed with false if the workload knows it is done
+	 *         for this thread
+	 */
+	public CompletableFuture<?> doTransactionAsync(DataStore db) {
+		return CompletableFuture.completedFuture(doTransaction(db));
+	}
+
+	/**
+	 * Issue one transaction operation with the state initThread() returned
+	 * for the calling thread. The default ignores threadstate.
+	 */
+	public CompletableFuture<?> doTransactionAsync(DataStore db,
+			Object threadstate) {
+		return doTransactionAsync(db);
+	}
+
+	/**
+	 * @return true if the workload can generate its transaction operations
+	 *         apart from executing them (nextOperation() and doOperation()),
+	 *         so that producer threads can prepare them ahead of the client
+	 *         threads (pregenerate=true)
+	 */
+	public boolean canPregenerate() {
+		return false;
+	}
+
+	/**
+	 * Choose the next transaction operation, with its key and values, without
+	 * issuing it. Called by a producer thread with the state initThread()
+	 * returned to it for one client thread; the operation is executed later
+	 * by that client thread with doOperation() or doOperationAsync(). Only
+	 * called by the pool if canPregenerate() is true.
+	 * 
+	 * The default chooses nothing ahead: its operation is the state of the
+	 * thread, and doOperation() runs doTransaction() with it.
+	 * 
+	 * @return the operation, opaque to the caller
+	 */
+	public Object nextOperation(Object threadstate) {
+		return new DeferredOperation(threadstate);
+	}
+
+	/**
+	 * Execute an operation created by nextOperation(). The same thread safety
+	 * rules as for doTransaction() apply.
+	 * 
+	 * @return false if the workload knows it is done for this thread
+	 */
+	public boolean doOperation(DataStore db, Object operation) {
+		return doTransaction(db, ((DeferredOperation) operation).threadstate);
+	}
+
+	/**
+	 * Issue an operation created by nextOperation() without waiting for it to
+	 * complete, like doTransactionAsync(). The default runs doOperation() and
+	 * returns a completed future.
+	 */
+	public CompletableFuture<?> doOperationAsync(DataStore db, Object operation) {
+		return CompletableFuture.completedFuture(doOperation(db, operation));
+	}
+
+	/**
+	 * The operation of the default nextOperation(): the transaction is chosen
+	 * when it is executed.
+	 */
+	private static class DeferredOperation {
+		Object threadstate;
+
+		DeferredOperation(Object threadstate) {
+			this.threadstate = threadstate;
+		}
+	}
 }
@@ -1,99 +1,714 @@
 package com.yahoo.ycsb.client;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
 import com.yahoo.ycsb.Config;
 import com.yahoo.ycsb.DataStore;
 import com.yahoo.ycsb.DataStoreException;
 import com.yahoo.ycsb.UnknownDataStoreException;
 import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.database.DB;
 import com.yahoo.ycsb.database.DBFactory;
+import com.yahoo.ycsb.generator.ConstantIntervalGenerator;
+import com.yahoo.ycsb.generator.EmpiricalIntervalGenerator;
+import com.yahoo.ycsb.generator.ExponentialIntervalGenerator;
+import com.yahoo.ycsb.generator.IntervalGenerator;
+import com.yahoo.ycsb.generator.RandomStream;
+import com.yahoo.ycsb.generator.UniformIntervalGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.memcached.Memcached;
 import com.yahoo.ycsb.memcached.MemcachedFactory;
+import com.yahoo.ycsb.trace.TraceWriter;
+import com.yahoo.ycsb.trace.TracingDB;
+import com.yahoo.ycsb.trace.TracingMemcached;
 
 /**
  * A thread pool is a group of a limited number of threads that are used to
  * execute tasks.
+ *
+ * The workers run either as platform threads of this group, or as virtual
+ * threads (threadmode=virtual) when the JVM supports them, which allows tens
+ * of thousands of concurrent clients. Every workersperdatastore workers share
+ * one DataStore instance, so the DataStore implementation has to be thread
+ * safe if that value is greater than 1.
+ *
+ * Without a target every worker thinks for a time drawn from
+ * thinktimedistribution (mean sleeptime) after each operation; with a target
+ * the distribution spaces the operations of the open-loop schedule instead.
+ *
+ * With hc.async=true the workers issue transactions through
+ * Workload.doTransactionAsync() and do not wait for them: up to pipelinedepth
+ * operations may be in flight per DataStore. A worker blocks only when the
+ * window of its DataStore is full.
+ *
+ * With bulkload=true the load phase does not take keys from the shared insert
+ * sequence. Every worker writes its own {@link KeyPartition} in batches of
+ * bulkloadbatchsize records, as fast as it can.
+ *
+ * The workers connect and initialize, then wait until {@link #start(long)}
+ * lets them begin at a given wall-clock time, so that all pools of a
+ * distributed run start together. A run may begin with a ramp-up phase
+ * (rampuptime) and a warm-up phase (warmuptime, warmupoperations), in this
+ * order, whose measurements are recorded separately as RAMPUP and WARMUP and
+ * which count neither against operationcount nor maxexecutiontime.
+ *
+ * The measured part of a run may consist of a schedule of phases (phases),
+ * each with its own operation mix, distributions and target; the measurements
+ * are recorded per phase.
+ *
+ * With pregenerate=true the transactions are chosen by pregeneratethreads
+ * producer threads rather than by the workers: every worker takes its
+ * operations, with their keys and values, from a ring of pregeneratedepth
+ * operations its producer keeps filled, so the cost of generating them stays
+ * off the path of the measured operations. The rings are filled before the
+ * start. A worker that finds its ring empty waits for the producer, which is
+ * reported as the lag of the producers. Operations generated before a phase of
+ * the schedule begins are still executed after it, at most
+ * pregeneratedepth per worker.
+ *
+ * The target and the number of active workers can be changed while the pool
+ * runs. Workers beyond the active count pause until they are needed again;
+ * the workers apply a change before their next operation and start a new
+ * schedule from that moment.
  */
 public class ClientThreadPool extends ThreadGroup {
-	private boolean isAlive;
-	private int threadID;
-	private int ops;
+	public static final String PLATFORM_THREADS = "platform";
+	public static final String VIRTUAL_THREADS = "virtual";
+	public static final String RAMPUP_THREADS = "threads";
+	public static final String RAMPUP_TARGET = "target";
+	public static final String RAMPUP_PHASE = Measurements.RAMPUP_PHASE;
+	public static final String WARMUP_PHASE = Measurements.WARMUP_PHASE;
+
+	/**
+	 * How often a paused worker checks whether the run is over. Unit: ns
+	 */
+	private static final long PAUSE_CHECK_NANOS = 100000000L;
+
+	/**
+	 * Number of points the mean target of an interval is taken from
+	 */
+	private static final int TARGET_SAMPLES = 100;
+
+	/**
+	 * Most operations a producer adds to one ring before it turns to the
+	 * next, so that it keeps all its rings filled
+	 */
+	private static final int PRODUCER_BATCH = 64;
 
 	/**
-	 * Unit: ms
+	 * How long a producer waits when all its rings are full. Unit: ns
 	 */
-	private long maxExecutionTime;
+	private static final long PRODUCER_PARK_NANOS = 100000L;
 
-	private long start;
+	private boolean isAlive;
+	private OperationBudget budget;
 	private static int threadPoolID = 0;
 
+	private boolean virtual;
+	private Thread[] threads;
+	private PooledWorker[] workers;
+	private DataStore[] stores;
+	private Semaphore[] windows;
+	private KeyPartition partition;
+	private volatile int target;
+	private volatile int activethreads;
+
+	/**
+	 * Incremented on every change of target or activethreads
+	 */
+	private volatile int controlversion;
+	private volatile long startnanos;
+	private long endnanos;
+
+	/**
+	 * Start barrier: counted down by every worker once it is initialized, and
+	 * opened by start(). The workers give up the run if it is not opened
+	 * within start_timeout.
+	 */
+	private CountDownLatch ready;
+	private CountDownLatch gate;
+
+	/**
+	 * Unmeasured phases at the start of the run. Unit: ns
+	 */
+	private long rampnanos;
+	private long warmupnanos;
+	private boolean targetramp;
+	private AtomicLong warmupleft;
+	private volatile String phase;
+	private volatile boolean measuring;
+	private volatile long measuredstartnanos;
+
+	/**
+	 * Recorded think times of the empirical think time distribution, shared by
+	 * the generators of all workers. Unit: ns
+	 */
+	private long[] thinktimes;
+
+	/**
+	 * Measured phases of the run (phases property), null for one
+	 */
+	private PhaseSchedule schedule;
+	private Workload workload;
+
+	/**
+	 * Varies the target over time (rateprofile property), null for a constant
+	 * target
+	 */
+	private volatile RateProfile profile;
+
+	/**
+	 * Records the operations of the workers (tracefile property), null for
+	 * none
+	 */
+	private TraceWriter trace;
+
+	/**
+	 * Generate the operations of the workers (pregenerate property), null
+	 * if the workers generate their own
+	 */
+	private Producer[] producers;
+	private Thread[] producerthreads;
+
 	/**
 	 * 
 	 * @param numThreads
 	 * @param ops
 	 * @param maxExecutionTime
-	 *            单位s
+	 *            单位s, &lt;= 0 for no limit
+	 * @param target
+	 *            operations per second of the whole pool, 0 for no open-loop
+	 *            rate control (threads think sleep_time after each op instead)
 	 * @param workload
 	 */
 	public ClientThreadPool(int numThreads, int ops, int maxExecutionTime,
-			Workload workload) {
+			int target, Workload workload) {
 		super("ThreadPool-" + (++threadPoolID));
+		this.virtual = VIRTUAL_THREADS.equals(Config.getConfig().thread_mode);
+		if (virtual && !VirtualThreads.isSupported()) {
+			System.out.println("Virtual threads are not supported by this JVM,"
+					+ " falling back to platform threads");
+			virtual = false;
+		}
 		System.out.println("start threadpool " + threadPoolID + " with "
-				+ numThreads + " threads");
-		this.ops = ops;
-		this.maxExecutionTime = maxExecutionTime * 1000;
-		this.start = System.currentTimeMillis();
+				+ numThreads + (virtual ? " virtual" : "") + " threads");
+		this.budget = new OperationBudget(ops, numThreads,
+				maxExecutionTime * 1000L);
 		setDaemon(true);
 
 		isAlive = true;
+		this.workload = workload;
+		this.target = target;
+		this.activethreads = numThreads;
 
-		for (int i = 0; i < numThreads; i++) {
-			DataStore db = null;
+		if (Config.getConfig().trace_file != null) {
+			String filename = Config.getConfig().trace_file;
+			// the slaves may share a file system with the master
+			if (Config.getConfig().client_index > 0)
+				filename += "." + Config.getConfig().client_index;
 			try {
-				if (workload instanceof com.yahoo.ycsb.workloads.MemcachedCoreWorkload)
-					db = MemcachedFactory.newMemcached(Config.getConfig().db);
-				else if (workload instanceof com.yahoo.ycsb.workloads.DBCoreWorkload)
-					db = DBFactory.newDB(Config.getConfig().db);
-				else {
-					System.out.println("Invalid Database/Workload Combination");
-					System.exit(0);
-				}
-				db.init();
-			} catch (UnknownDataStoreException e) {
-				System.out
-						.println("Unknown DataStore " + Config.getConfig().db);
+				trace = new TraceWriter(filename);
+			} catch (IOException e) {
+				System.out.println("Could not create the trace " + filename
+						+ ": " + e.getMessage());
 				System.exit(0);
-			} catch (DataStoreException e) {
-				e.printStackTrace();
+			}
+			System.out.println("recording the operations to " + filename);
+		}
+
+		int perstore = Math.max(1, Config.getConfig().workers_per_datastore);
+		stores = new DataStore[(numThreads + perstore - 1) / perstore];
+		for (int i = 0; i < stores.length; i++) {
+			stores[i] = newDataStore(workload);
+		}
+		if (Config.getConfig().hc_async && Config.getConfig().do_transactions) {
+			windows = new Semaphore[stores.length];
+			for (int i = 0; i < windows.length; i++)
+				windows[i] = new Semaphore(Math.max(1,
+						Config.getConfig().pipeline_depth));
+		}
+
+		String thinktime = Config.getConfig().think_time_distribution;
+		if (thinktime.equals("empirical")) {
+			try {
+				thinktimes = EmpiricalIntervalGenerator.load(Config
+						.getConfig().think_time_file);
+			} catch (IOException e) {
+				System.out.println("Could not read the think times of "
+						+ Config.getConfig().think_time_file + ": "
+						+ e.getMessage());
 				System.exit(0);
 			}
-			new PooledThread(workload, db).start();
+		} else if (!thinktime.equals("constant") && !thinktime.equals("none")
+				&& !thinktime.equals("exponential")
+				&& !thinktime.equals("uniform")) {
+			System.out.println("Unknown think time distribution \""
+					+ thinktime + "\"");
+			System.exit(0);
 		}
+
+		if (Config.getConfig().bulk_load && !Config.getConfig().do_transactions) {
+			partition = KeyPartition.forClient();
+			System.out.println("bulk load of keys " + partition + " in batches of "
+					+ Config.getConfig().bulk_load_batch_size);
+		}
+
+		if (partition == null) {
+			rampnanos = Config.getConfig().rampup_time * 1000000000L;
+			warmupnanos = Config.getConfig().warmup_time * 1000000000L;
+			warmupleft = new AtomicLong(Config.getConfig().warmup_operations);
+			targetramp = RAMPUP_TARGET.equals(Config.getConfig().rampup_mode);
+			if (targetramp && target <= 0) {
+				System.out.println("Ramp-up by target needs a target,"
+						+ " ramping up by threads instead");
+				targetramp = false;
+			}
+			if (Config.getConfig().phases != null
+					&& Config.getConfig().do_transactions)
+				schedule = PhaseSchedule.parse(Config.getConfig().phases);
+			if (Config.getConfig().rate_profile != null
+					&& Config.getConfig().do_transactions)
+				profile = RateProfile.parse(Config.getConfig().rate_profile);
+		} else {
+			warmupleft = new AtomicLong(0);
+		}
+		measuring = false;
+		int producercount = 0;
+		if (Config.getConfig().pregenerate && Config.getConfig().do_transactions
+				&& partition == null) {
+			if (workload.canPregenerate())
+				producercount = Math.max(1, Math.min(numThreads, Config
+						.getConfig().pregenerate_threads));
+			else
+				System.out.println("The workload cannot pregenerate its"
+						+ " operations, the workers generate them");
+		}
+		// the producers fill the rings before the start
+		ready = new CountDownLatch(numThreads + producercount);
+		gate = new CountDownLatch(1);
+
+		threads = new Thread[numThreads];
+		workers = new PooledWorker[numThreads];
+		for (int i = 0; i < numThreads; i++) {
+			workers[i] = new PooledWorker(workload, stores[i / perstore],
+					windows == null ? null : windows[i / perstore], i,
+					numThreads);
+			if (partition != null)
+				workers[i].partition = KeyPartition.split(partition.first,
+						partition.count, i, numThreads);
+			String name = "PooledThread-" + i;
+			if (virtual)
+				threads[i] = VirtualThreads.newThread(name, workers[i]);
+			else
+				threads[i] = new Thread(this, workers[i], name);
+		}
+
+		if (producercount > 0) {
+			int depth = Math.max(1, Config.getConfig().pregenerate_depth);
+			producers = new Producer[producercount];
+			producerthreads = new Thread[producercount];
+			for (int p = 0; p < producercount; p++) {
+				PooledWorker[] mine = new PooledWorker[(numThreads
+						- p + producercount - 1) / producercount];
+				for (int i = 0; i < mine.length; i++) {
+					mine[i] = workers[p + i * producercount];
+					mine[i].ring = new OperationRing(depth);
+				}
+				producers[p] = new Producer(mine, numThreads + p);
+				producerthreads[p] = new Thread(this, producers[p],
+						"Producer-" + p);
+			}
+			System.out.println("pregenerating the operations in "
+					+ producercount + " threads, "
+					+ workers[0].ring.getCapacity() + " per worker");
+			for (Thread t : producerthreads)
+				t.start();
+		}
+
+		for (int i = 0; i < numThreads; i++)
+			threads[i].start();
 	}
 
-	protected synchronized boolean getTask() {
-		if (!isAlive || ops <= 0 || maxExecutionTimeReached())
-			return false;
+	/**
+	 * @return true once every worker is connected and initialized, and waits
+	 *         for start()
+	 */
+	public boolean isReady() {
+		return ready.getCount() == 0;
+	}
 
-		ops--;
+	/**
+	 * Lets the workers begin at the given time. Does not wait for it.
+	 * 
+	 * @param startmillis
+	 *            wall-clock time (System.currentTimeMillis) to begin at
+	 */
+	public synchronized void start(long startmillis) {
+		if (gate.getCount() == 0)
+			return;
+		long delay = Math.max(0, startmillis - System.currentTimeMillis());
+		// the schedule starts once every connection is set up, otherwise the
+		// threads created first would start out behind and burst to catch up
+		startnanos = System.nanoTime() + delay * 1000000L;
+
+		int n = workers.length;
+		for (int i = 0; i < n; i++) {
+			if (!targetramp)
+				workers[i].activationnanos = startnanos + rampnanos * i / n;
+			else
+				workers[i].activationnanos = startnanos;
+			if (target > 0)
+				workers[i].scheduler = new OpenLoopScheduler(target, i, n,
+						workers[i].activationnanos, targetramp ? rampnanos
+								: 0, newArrivalGenerator(), profile, startnanos);
+		}
+
+		if (rampnanos > 0) {
+			setPhase(RAMPUP_PHASE);
+		} else if (warmupnanos > 0 || warmupleft.get() > 0) {
+			setPhase(WARMUP_PHASE);
+		} else {
+			measuring = true;
+			measuredstartnanos = startnanos;
+			budget.start(delay);
+			if (schedule != null)
+				schedule.start(this, delay);
+		}
+		gate.countDown();
+	}
+
+	/**
+	 * Ends the run of a pool whose start() did not come in time, e.g. because
+	 * the master could not reach this slave.
+	 * 
+	 * @return false if start() came meanwhile
+	 */
+	private synchronized boolean giveUpStart() {
+		if (gate.getCount() == 0)
+			return false;
+		if (isAlive) {
+			System.out.println("Not started within "
+					+ Config.getConfig().start_timeout + " s, ending the run");
+			close();
+		}
 		return true;
 	}
 
 	/**
-	 * 是否达到了最大的测试持续时间
+	 * Change the target of the running pool.
 	 * 
-	 * @return
+	 * @param target
+	 *            operations per second of the whole pool, 0 to stop the
+	 *            open-loop rate control
+	 */
+	public synchronized void setTarget(int target) {
+		this.target = target;
+		controlChanged();
+	}
+
+	public int getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return operations per second the pool is meant to issue right now:
+	 *         the target times the rate profile, and during a ramp-up by
+	 *         target the share of it reached so far. 0 without a target
+	 */
+	public double getCurrentTarget() {
+		return getTargetAt(System.nanoTime());
+	}
+
+	/**
+	 * @return mean of the operations per second the pool is meant to issue
+	 *         between the given times (System.nanoTime)
+	 */
+	public double getMeanTarget(long fromnanos, long tonanos) {
+		if (tonanos <= fromnanos)
+			return getTargetAt(tonanos);
+		double sum = 0;
+		for (int i = 0; i < TARGET_SAMPLES; i++)
+			sum += getTargetAt(fromnanos + (tonanos - fromnanos) * (2 * i + 1)
+					/ (2 * TARGET_SAMPLES));
+		return sum / TARGET_SAMPLES;
+	}
+
+	private double getTargetAt(long nanos) {
+		double t = target;
+		long st = startnanos;
+		if (t <= 0 || st == 0)
+			return t;
+		long elapsed = nanos - st;
+		RateProfile p = profile;
+		if (p != null)
+			t *= p.getFactor(elapsed / 1000000000.0);
+		if (targetramp && elapsed < rampnanos)
+			t *= Math.max(0, (double) elapsed / rampnanos);
+		return t;
+	}
+
+	/**
+	 * @return true if the target varies over time with a rate profile
 	 */
-	private boolean maxExecutionTimeReached() {
-		long now = System.currentTimeMillis();
-		return (now - start) >= maxExecutionTime;
+	public boolean hasRateProfile() {
+		return profile != null;
+	}
+
+	/**
+	 * Change the number of workers that execute operations. The others pause.
+	 * 
+	 * @param count
+	 *            between 1 and the number of threads of the pool
+	 */
+	public synchronized void setActiveThreads(int count) {
+		activethreads = Math.max(1, Math.min(workers.length, count));
+		controlChanged();
+	}
+
+	public int getActiveThreads() {
+		return activethreads;
+	}
+
+	private void controlChanged() {
+		controlversion++;
+		System.out.println("threadpool " + getName() + ": target " + target
+				+ ", " + activethreads + " active threads");
+		// wake up the paused workers
+		for (Thread t : threads)
+			LockSupport.unpark(t);
+	}
+
+	/**
+	 * Called by a worker before every operation while the run is not measured
+	 * yet.
+	 * 
+	 * @return true if the operation belongs to an unmeasured phase, false if
+	 *         the measured phase has begun
+	 */
+	private boolean inUnmeasuredPhase() {
+		long now = System.nanoTime() - startnanos;
+		if (now < rampnanos)
+			return true;
+		boolean opsleft = warmupleft.decrementAndGet() >= 0;
+		if (now < rampnanos + warmupnanos || opsleft) {
+			if (phase != WARMUP_PHASE)
+				setPhase(WARMUP_PHASE);
+			return true;
+		}
+		beginMeasured();
+		return false;
+	}
+
+	private synchronized void setPhase(String name) {
+		if (measuring || phase == name)
+			return;
+		phase = name;
+		System.out.println("begin " + name + " phase");
+		Measurements.getMeasurements().setPhase(name);
+	}
+
+	private synchronized void beginMeasured() {
+		if (measuring)
+			return;
+		System.out.println("begin measured phase");
+		measuredstartnanos = System.nanoTime();
+		budget.start();
+		// straight into the first phase of the schedule, if any
+		if (schedule != null)
+			schedule.start(this, 0);
+		else
+			Measurements.getMeasurements().setPhase(null);
+		measuring = true;
+	}
+
+	/**
+	 * Apply the properties of a phase of the schedule, let the workload and
+	 * the workers pick them up and record the following operations under the
+	 * name of the phase.
+	 */
+	synchronized void beginScheduledPhase(PhaseSchedule.Phase next) {
+		if (!isAlive)
+			return;
+		Config config = Config.getConfig();
+		for (Map.Entry<String, String> e : next.properties.entrySet())
+			config.setProperty(e.getKey(), e.getValue());
+		try {
+			workload.reconfigure();
+		} catch (WorkloadException e) {
+			e.printStackTrace();
+		}
+
+		next.beginnanos = Math.max(System.nanoTime(), startnanos);
+		phase = next.name;
+		Measurements.getMeasurements().setPhase(next.name);
+		System.out.println("begin phase " + next.name + " " + next.properties);
+
+		target = config.target;
+		if (next.properties.containsKey(Config.RATE_PROFILE_PROPERTY))
+			profile = RateProfile.parse(config.rate_profile);
+		if (next.properties.containsKey(Config.THREAD_COUNT_PROPERTY))
+			activethreads = Math.max(1, Math.min(workers.length,
+					config.thread_count));
+		// the workers start a new schedule and think time
+		controlChanged();
+	}
+
+	/**
+	 * Ends the run after the last phase of the schedule.
+	 */
+	void endSchedule() {
+		System.out.println("end of the phase schedule");
+		budget.expire();
+	}
+
+	/**
+	 * @return duration of the measured phase so far. Unit: ms, 0 if it has
+	 *         not begun
+	 */
+	public long getMeasuredRunTime() {
+		long st = measuredstartnanos;
+		if (st == 0)
+			return 0;
+		long en = endnanos != 0 ? endnanos : System.nanoTime();
+		return Math.max(0, (en - st) / 1000000);
+	}
+
+	/**
+	 * @return true if the run begins with a ramp-up or warm-up phase
+	 */
+	public boolean hasUnmeasuredPhases() {
+		return rampnanos > 0 || warmupnanos > 0
+				|| Config.getConfig().warmup_operations > 0 && partition == null;
+	}
+
+	private DataStore newDataStore(Workload workload) {
+		DataStore db = null;
+		try {
+			if (workload instanceof com.yahoo.ycsb.workloads.MemcachedCoreWorkload)
+				db = MemcachedFactory.newMemcached(Config.getConfig().db);
+			else if (workload instanceof com.yahoo.ycsb.workloads.DBCoreWorkload)
+				db = DBFactory.newDB(Config.getConfig().db);
+			else if (workload instanceof com.yahoo.ycsb.workloads.TraceReplayWorkload)
+				db = com.yahoo.ycsb.workloads.TraceReplayWorkload.isMemcached() ? MemcachedFactory
+						.newMemcached(Config.getConfig().db)
+						: DBFactory.newDB(Config.getConfig().db);
+			else {
+				System.out.println("Invalid Database/Workload Combination");
+				System.exit(0);
+			}
+			if (trace != null && db instanceof Memcached)
+				db = new TracingMemcached((Memcached) db, trace);
+			else if (trace != null)
+				db = new TracingDB((DB) db, trace);
+			db.init();
+		} catch (UnknownDataStoreException e) {
+			System.out.println("Unknown DataStore " + Config.getConfig().db);
+			System.exit(0);
+		} catch (DataStoreException e) {
+			e.printStackTrace();
+			System.exit(0);
+		}
+		return db;
 	}
 
 	public synchronized void close() {
 		if (isAlive) {
 			isAlive = false;
-			interrupt();
+			budget.expire();
+			// virtual threads are not members of this group
+			for (Thread t : threads)
+				t.interrupt();
+			stopProducers();
 		}
 	}
 
+	private void stopProducers() {
+		if (producerthreads == null)
+			return;
+		for (Thread t : producerthreads)
+			t.interrupt();
+	}
+
+	/**
+	 * @return true if producer threads generate the operations of the workers
+	 */
+	public boolean isPregenerating() {
+		return producers != null;
+	}
+
+	/**
+	 * @return time the workers waited for the producers so far. Unit: ns
+	 */
+	public long getProducerWaitNanos() {
+		long wait = 0;
+		if (producers != null) {
+			for (PooledWorker w : workers)
+				wait += w.ring.getWaitNanos();
+		}
+		return wait;
+	}
+
+	/**
+	 * @return number of operations the workers started on the schedule of a
+	 *         target so far
+	 */
+	public long getScheduledOperations() {
+		long ops = 0;
+		for (PooledWorker w : workers)
+			ops += w.scheduled;
+		return ops;
+	}
+
+	/**
+	 * @return number of operations the workers started later than the
+	 *         interval of their schedule after their intended start so far,
+	 *         i.e. when the next one was due already
+	 */
+	public long getLateOperations() {
+		long ops = 0;
+		for (PooledWorker w : workers)
+			ops += w.late;
+		return ops;
+	}
+
+	/**
+	 * @return time the operations of a schedule started after their intended
+	 *         start so far, summed. Unit: ns
+	 */
+	public long getScheduleLagNanos() {
+		long lag = 0;
+		for (PooledWorker w : workers)
+			lag += w.lagnanos;
+		return lag;
+	}
+
+	/**
+	 * @return share of the rings of the active workers filled right now, in
+	 *         [0, 1]
+	 */
+	public double getRingFill() {
+		if (producers == null)
+			return 0;
+		int n = Math.min(workers.length, activethreads);
+		double fill = 0;
+		for (int i = 0; i < n; i++)
+			fill += (double) workers[i].ring.getSize()
+					/ workers[i].ring.getCapacity();
+		return fill / n;
+	}
+
 	/**
 	 * Closes this ThreadPool and waits for all running threads to finish. Any
 	 * waiting tasks are executed.
@@ -107,53 +722,678 @@ public class ClientThreadPool extends ThreadGroup {
 		}*/
 
 		// wait for all threads to finish
-		Thread[] threads = new Thread[activeCount()];
-		int count = enumerate(threads);
-		for (int i = 0; i < count; i++) {
+		for (int i = 0; i < threads.length; i++) {
 			try {
 				threads[i].join();
 			} catch (InterruptedException ex) {
 			}
 		}
+
+		synchronized (this) {
+			if (endnanos != 0)
+				return;
+			endnanos = System.nanoTime();
+			if (schedule != null)
+				schedule.stop();
+		}
+
+		stopProducers();
+		if (producerthreads != null) {
+			for (Thread t : producerthreads) {
+				try {
+					t.join();
+				} catch (InterruptedException ex) {
+				}
+			}
+		}
+
+		if (windows != null)
+			drain();
+
+		// a store may be shared, so it is cleaned up after all its workers
+		for (DataStore db : stores) {
+			try {
+				db.cleanup();
+			} catch (DataStoreException e) {
+				e.printStackTrace();
+			}
+		}
+
+		if (trace != null) {
+			try {
+				trace.close();
+				System.out.println("recorded " + trace.getRecords()
+						+ " operations to the trace");
+			} catch (IOException e) {
+				System.out.println("Could not write the trace: "
+						+ e.getMessage());
+			}
+		}
 	}
 
 	/**
-	 * A PooledThread is a Thread in a ThreadPool group, designed to run tasks
-	 * (Runnables).
+	 * Waits for the asynchronous operations still in flight, at most
+	 * hc.asyncTimeoutMs in total.
 	 */
-	private class PooledThread extends Thread {
+	private void drain() {
+		int depth = Math.max(1, Config.getConfig().pipeline_depth);
+		long timeout = Config.getConfig().hc_asyncTimeoutMs;
+		long deadline = System.currentTimeMillis() + timeout;
+		int pending = 0;
+		for (Semaphore window : windows) {
+			try {
+				if (timeout <= 0) {
+					window.acquire(depth);
+					continue;
+				}
+				long left = deadline - System.currentTimeMillis();
+				if (!window.tryAcquire(depth, Math.max(0, left),
+						TimeUnit.MILLISECONDS))
+					pending += depth - window.availablePermits();
+			} catch (InterruptedException e) {
+				pending += depth - window.availablePermits();
+			}
+		}
+		if (pending > 0)
+			System.out.println(pending + " asynchronous operations did not"
+					+ " complete within " + timeout + " ms");
+	}
+
+	/**
+	 * Export how busy the workers and the threads carrying them were.
+	 * WorkerUtilization is the share of the run the workers spent inside the
+	 * workload rather than waiting for their schedule. For virtual threads,
+	 * CarrierUtilization is the process CPU time over the capacity of the
+	 * carrier threads; it includes GC and the harness threads, so it is an
+	 * upper bound. With a target, SCHEDULE counts the operations that started
+	 * late, after the intended start of the next one of their worker, and the
+	 * mean delay of all operations from their intended start.
+	 */
+	public void exportMeasurements(MeasurementsExporter exporter)
+			throws IOException {
+		if (startnanos == 0)
+			return;
+		long wall = (endnanos != 0 ? endnanos : System.nanoTime()) - startnanos;
+		long busy = 0;
+		for (PooledWorker w : workers)
+			busy += w.busynanos;
+
+		exporter.write("THREADS", "Mode", virtual ? VIRTUAL_THREADS
+				: PLATFORM_THREADS);
+		exporter.write("THREADS", "Workers", workers.length);
+		if (activethreads != workers.length)
+			exporter.write("THREADS", "ActiveWorkers", activethreads);
+		exporter.write("THREADS", "DataStores", stores.length);
+		exporter.write("THREADS", "PeakPlatformThreads", ManagementFactory
+				.getThreadMXBean().getPeakThreadCount());
+		if (wall > 0 && workers.length > 0)
+			exporter.write("THREADS", "WorkerUtilization(%)", 100.0 * busy
+					/ ((double) wall * workers.length));
+
+		if (schedule != null) {
+			Measurements measurements = Measurements.getMeasurements();
+			for (PhaseSchedule.Phase p : schedule.getPhases()) {
+				long runtime = p.getRunTime();
+				if (runtime == 0)
+					continue;
+				long ops = measurements.getOperations(p.name);
+				exporter.write("PHASE " + p.name, "RunTime(ms)",
+						(int) (runtime / 1000000));
+				exporter.write("PHASE " + p.name, "Operations", (int) ops);
+				exporter.write("PHASE " + p.name, "Throughput(ops/sec)", 1e9
+						* ops / runtime);
+			}
+		}
+
+		if (producers != null) {
+			long generated = 0;
+			long producerbusy = 0;
+			for (Producer p : producers) {
+				generated += p.operations;
+				producerbusy += p.busynanos;
+			}
+			long empty = 0;
+			long wait = 0;
+			for (PooledWorker w : workers) {
+				empty += w.ring.getEmpty();
+				wait += w.ring.getWaitNanos();
+			}
+			exporter.write("PREGENERATE", "Producers", producers.length);
+			exporter.write("PREGENERATE", "RingSize", workers[0].ring
+					.getCapacity());
+			exporter.write("PREGENERATE", "Operations", generated);
+			exporter.write("PREGENERATE", "EmptyRing", empty);
+			exporter.write("PREGENERATE", "WorkerWait(ms)", wait / 1000000);
+			if (wall > 0) {
+				exporter.write("PREGENERATE", "WorkerWait(%)", 100.0 * wait
+						/ ((double) wall * workers.length));
+				exporter.write("PREGENERATE", "ProducerUtilization(%)", 100.0
+						* producerbusy / ((double) wall * producers.length));
+			}
+		}
+
+		if (partition != null) {
+			int loaded = 0;
+			for (PooledWorker w : workers) {
+				KeyPartition p = w.partition;
+				loaded += p.loaded;
+				exporter.write("BULKLOAD", "Partition" + p + " Records",
+						p.loaded);
+				exporter.write("BULKLOAD", "Partition" + p
+						+ " Rate(records/sec)", p.getRate());
+			}
+			exporter.write("BULKLOAD", "Records", loaded);
+			if (wall > 0)
+				exporter.write("BULKLOAD", "Rate(records/sec)", 1e9 * loaded
+						/ wall);
+		}
+
+		if (virtual) {
+			int carriers = VirtualThreads.getParallelism();
+			exporter.write("THREADS", "CarrierThreads", carriers);
+			long cpu = VirtualThreads.getProcessCpuTime();
+			if (cpu >= 0 && wall > 0)
+				exporter.write("THREADS", "CarrierUtilization(%)", 100.0 * cpu
+						/ ((double) wall * carriers));
+		}
+
+		long scheduled = getScheduledOperations();
+		if (scheduled > 0) {
+			exporter.write("SCHEDULE", "Operations", scheduled);
+			exporter.write("SCHEDULE", "LateOperations", getLateOperations());
+			exporter.write("SCHEDULE", "LateOperations(%)", 100.0
+					* getLateOperations() / scheduled);
+			exporter.write("SCHEDULE", "MeanLag(ms)", getScheduleLagNanos()
+					/ 1e6 / scheduled);
+		}
+	}
+
+	/**
+	 * @param meannanos
+	 *            mean think time, ignored by the empirical distribution which
+	 *            uses the recorded times as they are
+	 * @return a generator of the think times of one worker, null for none
+	 */
+	private IntervalGenerator newThinkTimeGenerator(double meannanos) {
+		String d = Config.getConfig().think_time_distribution;
+		if (d.equals("none") || (meannanos <= 0 && thinktimes == null))
+			return null;
+		else if (d.equals("exponential"))
+			return new ExponentialIntervalGenerator(meannanos);
+		else if (d.equals("uniform"))
+			return new UniformIntervalGenerator(meannanos);
+		else if (d.equals("empirical"))
+			return new EmpiricalIntervalGenerator(thinktimes, 0);
+		else
+			return new ConstantIntervalGenerator(meannanos);
+	}
+
+	/**
+	 * @return a generator of the distance between two operations of an
+	 *         open-loop schedule, null for evenly spaced operations
+	 */
+	private IntervalGenerator newArrivalGenerator() {
+		String d = Config.getConfig().think_time_distribution;
+		if (d.equals("constant") || d.equals("none"))
+			return null;
+		// the scheduler sets the mean
+		return newThinkTimeGenerator(1);
+	}
+
+	/**
+	 * A PooledWorker is the task run by one thread of the pool: it executes
+	 * operations until the budget is used up or the pool is closed.
+	 */
+	private class PooledWorker implements Runnable {
 		private Workload workload;
 		private DataStore db;
+		private OpenLoopScheduler scheduler;
 
-		public PooledThread(Workload workload, DataStore db) {
-			super(ClientThreadPool.this, "PooledThread-" + (threadID++));
+		/**
+		 * Think time after every operation without a schedule, null for none
+		 */
+		private IntervalGenerator thinktime;
+		private OperationBudget.Lease lease;
+		private Semaphore window;
+		private int threadid;
+		private int threadcount;
+		private KeyPartition partition;
+
+		/**
+		 * Operations generated for this worker by a producer, null if it
+		 * generates them itself
+		 */
+		private OperationRing ring;
+
+		/**
+		 * Time this worker begins. Later than the start of the pool for
+		 * workers started during a ramp-up by threads. Unit: ns
+		 */
+		private long activationnanos;
+
+		/**
+		 * Value of controlversion the schedule of this worker is made for
+		 */
+		private int controlseen;
+
+		/**
+		 * Time spent inside the workload. Unit: ns
+		 */
+		private volatile long busynanos;
+
+		/**
+		 * Set when the worker has left its loop of operations
+		 */
+		private volatile boolean finished;
+
+		/**
+		 * Operations started on a schedule, those of them that started later
+		 * than the interval of the schedule after their intended start, and
+		 * the time all of them started after their intended start. Only
+		 * written by the worker. Unit: ns
+		 */
+		private volatile long scheduled;
+		private volatile long late;
+		private volatile long lagnanos;
+
+		public PooledWorker(Workload workload, DataStore db, Semaphore window,
+				int threadid, int threadcount) {
 			this.workload = workload;
 			this.db = db;
+			this.window = window;
+			this.threadid = threadid;
+			this.threadcount = threadcount;
+			this.lease = budget.newLease();
 		}
 
 		public void run() {
-			while (!isInterrupted() && getTask()) {
-				if (Config.getConfig().do_transactions) {
-					workload.doTransaction(db);
+			Thread self = Thread.currentThread();
+			long busy = 0;
+			Measurements measurements = Measurements.getMeasurements();
+			RandomStream.seed(threadid);
+			// created by the thread that uses it, the producer if any
+			Object threadstate = null;
+			try {
+				if (ring == null)
+					threadstate = workload.initThread(threadid, threadcount);
+			} catch (WorkloadException e) {
+				e.printStackTrace();
+				ready.countDown();
+				return;
+			}
+
+			ready.countDown();
+			try {
+				if (!gate.await(Config.getConfig().start_timeout,
+						TimeUnit.SECONDS) && giveUpStart())
+					return;
+			} catch (InterruptedException e) {
+				return;
+			}
+			long remaining;
+			while ((remaining = activationnanos - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(remaining);
+				if (self.isInterrupted())
+					return;
+			}
+
+			if (partition != null) {
+				busynanos = load(threadstate);
+				return;
+			}
+			thinktime = workload.isSelfPaced() ? null
+					: newThinkTimeGenerator(Config.getConfig().sleep_time * 1000000);
+
+			while (!self.isInterrupted()
+					&& (controlseen == controlversion || applyControl())
+					&& ((!measuring && inUnmeasuredPhase()) || lease.next())) {
+				long intended = 0;
+				if (scheduler != null) {
+					intended = scheduler.acquire();
+					if (self.isInterrupted())
+						break;
+				}
+				// the wait for the producer is part of the wait for the
+				// operation, and counted as its lag
+				Object operation = null;
+				if (ring != null && (operation = ring.take()) == null)
+					break;
+
+				// a full window is waiting time, not time spent in the workload
+				if (window != null) {
+					try {
+						window.acquire();
+					} catch (InterruptedException e) {
+						break;
+					}
+				}
+
+				long st = System.nanoTime();
+				if (trace != null)
+					trace.setIntended(scheduler != null ? intended : st);
+				// the wrappers measure the response time from here
+				if (scheduler != null)
+					measurements.setIntendedStart(intended);
+				else
+					measurements.clearIntendedStart();
+				if (scheduler != null)
+					keepTime(intended, st);
+				if (window != null) {
+					CompletableFuture<?> f;
+					try {
+						f = operation != null ? workload.doOperationAsync(db,
+								operation) : workload.doTransactionAsync(db,
+								threadstate);
+					} catch (RuntimeException e) {
+						// failed before it was issued: handled like an
+						// operation that fails, so its permit is released
+						CompletableFuture<Object> failed = new CompletableFuture<Object>();
+						failed.completeExceptionally(e);
+						f = failed;
+					}
+					f.whenComplete(new Release(window));
+					if (f.isDone() && !f.isCompletedExceptionally()
+							&& Boolean.FALSE.equals(f.getNow(null)))
+						break;
+				} else if (operation != null) {
+					if (!workload.doOperation(db, operation))
+						break;
+				} else if (Config.getConfig().do_transactions) {
+					// the workload is done for this thread, e.g. a trace
+					if (!workload.doTransaction(db, threadstate))
+						break;
 				} else {
-					workload.doInsert(db);
+					workload.doInsert(db, threadstate);
 				}
+				busy += System.nanoTime() - st;
+				if (scheduler != null)
+					continue;
+
 				//by zx,增加sleep，以使得负载较易控制（能够随线程数增加线性增加）
-				try {
-					Thread.sleep(Config.getConfig().sleep_time);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
+				if (thinktime != null && !think())
+					break;
+			}
+			busynanos = busy;
+			finished = true;
+
+			//System.out.println("Client Thread Done");//by zx
+		}
+
+		/**
+		 * Counts an operation of the schedule, and whether it started late.
+		 */
+		private void keepTime(long intended, long st) {
+			long lag = Math.max(0, st - intended);
+			scheduled++;
+			lagnanos += lag;
+			if (lag > scheduler.getInterval())
+				late++;
+		}
+
+		/**
+		 * Waits for the next think time of this worker, without spinning.
+		 * 
+		 * @return false if the worker was interrupted while waiting
+		 */
+		private boolean think() {
+			Thread self = Thread.currentThread();
+			long until = System.nanoTime() + thinktime.nextNanos();
+			long remaining;
+			while ((remaining = until - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(remaining);
+				if (self.isInterrupted())
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Applies a change of target or activethreads: pauses while this
+		 * worker is not active, then starts a new schedule. A paused worker
+		 * gives the rest of its lease back to the budget; it resumes to
+		 * execute the operations given back if no active worker is left to.
+		 * 
+		 * @return false if the worker was interrupted or the run ended while
+		 *         paused
+		 */
+		private boolean applyControl() {
+			Thread self = Thread.currentThread();
+			int version;
+			do {
+				version = controlversion;
+				if (threadid >= activethreads)
+					lease.release();
+				while (threadid >= activethreads && version == controlversion) {
+					// nobody wakes a paused worker at the end of the run
+					LockSupport.parkNanos(this, PAUSE_CHECK_NANOS);
+					if (self.isInterrupted() || budget.isUsedUp())
+						return false;
+					if (activeFinished())
+						break;
 				}
+			} while (version != controlversion);
+			controlseen = version;
+
+			thinktime = workload.isSelfPaced() ? null
+					: newThinkTimeGenerator(Config.getConfig().sleep_time * 1000000);
+			int t = target;
+			if (t > 0)
+				scheduler = new OpenLoopScheduler(t, threadid, activethreads,
+						System.nanoTime(), 0, newArrivalGenerator(), profile,
+						startnanos);
+			else
+				scheduler = null;
+			return true;
+		}
+
+		/**
+		 * @return true if every active worker has left its loop, e.g. because
+		 *         the budget was used up before a paused worker gave its lease
+		 *         back
+		 */
+		private boolean activeFinished() {
+			for (int i = 0; i < activethreads; i++)
+				if (!workers[i].finished)
+					return false;
+			return true;
+		}
+
+		/**
+		 * Writes the partition of this worker in batches until it is done, the
+		 * execution time is up or the pool is closed.
+		 * 
+		 * @return time spent inside the workload. Unit: ns
+		 */
+		private long load(Object threadstate) {
+			Thread self = Thread.currentThread();
+			int batch = Math.max(1, Config.getConfig().bulk_load_batch_size);
+			int next = partition.first;
+			int end = partition.first + partition.count;
+			long busy = 0;
+
+			partition.startnanos = System.nanoTime();
+			while (next < end && !self.isInterrupted() && !budget.isExpired()) {
+				int n = Math.min(batch, end - next);
+				long st = System.nanoTime();
+				if (trace != null)
+					trace.setIntended(st);
+				if (!workload.doInsertBatch(db, threadstate, next, n))
+					System.out.println("Could not insert keys [" + next + ","
+							+ (next + n) + ")");
+				busy += System.nanoTime() - st;
+				next += n;
+				partition.loaded = next - partition.first;
 			}
+			partition.endnanos = System.nanoTime();
+			return busy;
+		}
+	}
+
+	/**
+	 * Generates the operations of some workers into their rings, round robin,
+	 * until it is interrupted or fails; then it closes their rings. Creates the
+	 * state of the workload for each of its workers, since it is the thread
+	 * that uses it.
+	 */
+	private class Producer implements Runnable {
+		private PooledWorker[] workers;
+
+		/**
+		 * Number of the random stream of this producer, after those of the
+		 * workers
+		 */
+		private int stream;
+
+		/**
+		 * Operations generated so far, and the time it took. Unit: ns
+		 */
+		private volatile long operations;
+		private volatile long busynanos;
+
+		Producer(PooledWorker[] workers, int stream) {
+			this.workers = workers;
+			this.stream = stream;
+		}
 
-			// TODO: Probably shouldn't be here
+		public void run() {
+			Thread self = Thread.currentThread();
+			RandomStream.seed(stream);
+			Object[] states = new Object[workers.length];
+			boolean filled = false;
 			try {
-				db.cleanup();
-			} catch (DataStoreException e) {
+				for (int i = 0; i < workers.length; i++)
+					states[i] = workload.initThread(workers[i].threadid,
+							workers[i].threadcount);
+
+				// the rings are full before the start
+				long ops = 0;
+				int n;
+				while ((n = fill(states)) > 0)
+					ops += n;
+				operations = ops;
+				filled = true;
+				ready.countDown();
+
+				long busy = 0;
+				while (!self.isInterrupted()) {
+					long st = System.nanoTime();
+					n = fill(states);
+					if (n == 0) {
+						LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+						continue;
+					}
+					busy += System.nanoTime() - st;
+					ops += n;
+					operations = ops;
+					busynanos = busy;
+				}
+			} catch (WorkloadException e) {
+				System.out.println(self.getName()
+						+ " failed, its workers end: " + e);
+				e.printStackTrace();
+			} catch (RuntimeException e) {
+				System.out.println(self.getName()
+						+ " failed, its workers end: " + e);
 				e.printStackTrace();
+			} finally {
+				// the workers end once they took what was generated
+				for (PooledWorker w : workers)
+					w.ring.close();
+				if (!filled)
+					ready.countDown();
 			}
+		}
 
-			//System.out.println("Client Thread Done");//by zx
+		/**
+		 * Add up to PRODUCER_BATCH operations to each ring.
+		 * 
+		 * @return the number of operations added
+		 */
+		private int fill(Object[] states) {
+			int n = 0;
+			for (int i = 0; i < workers.length; i++) {
+				OperationRing r = workers[i].ring;
+				for (int free = Math.min(PRODUCER_BATCH, r.getFree()); free > 0; free--) {
+					r.offer(workload.nextOperation(states[i]));
+					n++;
+				}
+			}
+			return n;
+		}
+	}
+
+	/**
+	 * Gives the slot of a completed asynchronous operation back to the window
+	 * of its DataStore.
+	 */
+	private static class Release implements BiConsumer<Object, Throwable> {
+		private Semaphore window;
+
+		Release(Semaphore window) {
+			this.window = window;
+		}
+
+		public void accept(Object result, Throwable t) {
+			if (t != null)
+				t.printStackTrace();
+			window.release();
+		}
+	}
+
+	/**
+	 * Access to virtual threads through reflection, so the client still builds
+	 * and runs with platform threads on JVMs older than Java 21.
+	 */
+	static class VirtualThreads {
+		private static Object builder;
+		private static Method name;
+		private static Method unstarted;
+
+		static {
+			try {
+				Class<?> builderclass = Class.forName("java.lang.Thread$Builder");
+				builder = Thread.class.getMethod("ofVirtual").invoke(null);
+				name = builderclass.getMethod("name", String.class);
+				unstarted = builderclass.getMethod("unstarted", Runnable.class);
+			} catch (Exception e) {
+				builder = null;
+			}
+		}
+
+		static boolean isSupported() {
+			return builder != null;
+		}
+
+		static Thread newThread(String threadname, Runnable task) {
+			try {
+				synchronized (VirtualThreads.class) {
+					name.invoke(builder, threadname);
+					return (Thread) unstarted.invoke(builder, task);
+				}
+			} catch (Exception e) {
+				throw new IllegalStateException(
+						"Could not create virtual thread", e);
+			}
+		}
+
+		/**
+		 * Number of carrier threads of the default virtual thread scheduler
+		 */
+		static int getParallelism() {
+			return Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+					Runtime.getRuntime().availableProcessors());
+		}
+
+		/**
+		 * @return CPU time used by the process so far, -1 if unknown. Unit: ns
+		 */
+		static long getProcessCpuTime() {
+			java.lang.management.OperatingSystemMXBean os = ManagementFactory
+					.getOperatingSystemMXBean();
+			if (os instanceof com.sun.management.OperatingSystemMXBean)
+				return ((com.sun.management.OperatingSystemMXBean) os)
+						.getProcessCpuTime();
+			return -1;
 		}
 	}
 }
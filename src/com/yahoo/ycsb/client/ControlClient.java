@@ -0,0 +1,69 @@
+package com.yahoo.ycsb.client;
+
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+
+import com.yahoo.ycsb.rmi.MasterRMIInterface;
+
+/**
+ * Changes the load of a test while it runs, through the MasterRMIInterface of
+ * its master. Every change applies to the master and all its slaves.
+ */
+public class ControlClient {
+
+	public static void usageMessage() {
+		System.out.println("Usage: java com.yahoo.ycsb.client.ControlClient <masterhost> <command>");
+		System.out.println("Commands:");
+		System.out.println("  throughput n: target n ops/sec per client, 0 for no rate control");
+		System.out.println("  threads n: n active threads per client, at most threadcount");
+		System.out.println("  workingset n: working set of the churn distribution");
+		System.out.println("  itemcount delta seconds max: add delta to recordcount every");
+		System.out.println("      seconds (at once if seconds <= 0) until it reaches max");
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 3) {
+			usageMessage();
+			System.exit(0);
+		}
+
+		MasterRMIInterface master = null;
+		try {
+			Registry registry = LocateRegistry.getRegistry(args[0],
+					SlaveClient.RMI_PORT);
+			master = (MasterRMIInterface) registry
+					.lookup(MasterClient.REGISTRY_NAME);
+		} catch (RemoteException e) {
+			System.out.println("Could not connect to master at " + args[0]);
+			System.exit(1);
+		} catch (NotBoundException e) {
+			System.out.println("Master not bound at " + args[0]);
+			System.exit(1);
+		}
+
+		try {
+			String command = args[1];
+			if (command.compareTo("throughput") == 0) {
+				master.changeThroughput(Integer.parseInt(args[2]));
+			} else if (command.compareTo("threads") == 0) {
+				master.changeThreadCount(Integer.parseInt(args[2]));
+			} else if (command.compareTo("workingset") == 0) {
+				master.changeWorkingSet(Integer.parseInt(args[2]));
+			} else if (command.compareTo("itemcount") == 0 && args.length >= 5) {
+				master.changeItemCount(Integer.parseInt(args[2]),
+						Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+			} else {
+				usageMessage();
+				System.exit(0);
+			}
+		} catch (NumberFormatException e) {
+			System.out.println("Not a number: " + e.getMessage());
+			System.exit(1);
+		} catch (RemoteException e) {
+			System.out.println("Could not reach master: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
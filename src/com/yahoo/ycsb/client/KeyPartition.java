@@ -0,0 +1,76 @@
+package com.yahoo.ycsb.client;
+
+import com.yahoo.ycsb.Config;
+
+/**
+ * A contiguous range of key numbers loaded by one thread in a bulk load, and
+ * how far the thread got. The key space [insertstart, insertstart +
+ * insertcount) is split evenly among the clients, and the range of a client
+ * evenly among its threads, so no two threads ever write the same key and no
+ * thread has to coordinate with another one.
+ */
+public class KeyPartition {
+	/**
+	 * First key number of the partition
+	 */
+	final int first;
+
+	/**
+	 * Number of keys in the partition
+	 */
+	final int count;
+
+	/**
+	 * Number of keys loaded so far. Only written by the owning thread.
+	 */
+	volatile int loaded;
+
+	/**
+	 * Time the owning thread started and finished loading. Unit: ns
+	 * (System.nanoTime), 0 if not yet
+	 */
+	volatile long startnanos;
+	volatile long endnanos;
+
+	KeyPartition(int first, int count) {
+		this.first = first;
+		this.count = count;
+	}
+
+	/**
+	 * @return part index of parts of the range [first, first + count)
+	 */
+	static KeyPartition split(long first, long count, int index, int parts) {
+		long lo = first + count * index / parts;
+		long hi = first + count * (index + 1) / parts;
+		return new KeyPartition((int) lo, (int) (hi - lo));
+	}
+
+	/**
+	 * @return the partition of this client, as given by clientindex and
+	 *         clientcount
+	 */
+	static KeyPartition forClient() {
+		Config config = Config.getConfig();
+		long count = config.insert_count > 0 ? config.insert_count
+				: (long) config.record_count - config.insert_start;
+		return split(config.insert_start, Math.max(0, count),
+				config.client_index, Math.max(1, config.client_count));
+	}
+
+	/**
+	 * @return records loaded per second, 0 if the thread has not started.
+	 *         Until the thread is done, the rate so far.
+	 */
+	double getRate() {
+		long st = startnanos;
+		if (st == 0)
+			return 0;
+		long en = endnanos != 0 ? endnanos : System.nanoTime();
+		return en > st ? 1e9 * loaded / (en - st) : 0;
+	}
+
+	public String toString() {
+		return "[" + first + "," + (first + count) + ")";
+	}
+}
@@ -27,6 +27,7 @@ import com.yahoo.ycsb.measurements.Measurements;
  */
 public class LoadThread extends Thread {
 	private Workload workload;
+	private volatile ClientThreadPool pool;
 	
 	public LoadThread() {
 		this.workload = null;
@@ -58,11 +59,51 @@ public class LoadThread extends Thread {
 		}
 	}
 	
+	/**
+	 * @return the pool executing the workload, null before it is started
+	 */
+	public ClientThreadPool getThreadPool() {
+		return pool;
+	}
+
+	public Workload getWorkload() {
+		return workload;
+	}
+
+	/**
+	 * Change the target of the running pool, if any.
+	 */
+	public void setTarget(int target) {
+		ClientThreadPool p = pool;
+		if (p != null)
+			p.setTarget(target);
+	}
+
+	/**
+	 * Change the number of active threads of the running pool, if any.
+	 */
+	public void setActiveThreads(int count) {
+		ClientThreadPool p = pool;
+		if (p != null)
+			p.setActiveThreads(count);
+	}
+
+	/**
+	 * Let the workload pick up a change of the Config.
+	 */
+	public void reconfigure() {
+		try {
+			workload.reconfigure();
+		} catch (WorkloadException e) {
+			e.printStackTrace();
+		}
+	}
+
 	public void run() {
 		// Run the client threads
 		Config config = Config.getConfig();
 
-		ClientThreadPool pool = new ClientThreadPool(config.thread_count, config.operation_count,config.max_execution_time, workload);
+		pool = new ClientThreadPool(config.thread_count, config.operation_count,config.max_execution_time, config.target, workload);
 		pool.join();
 		
 		// Wait until the status thread grabs the last piece of stats data
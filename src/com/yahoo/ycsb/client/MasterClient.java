@@ -4,9 +4,13 @@ import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.rmi.server.ExportException;
+import java.rmi.server.UnicastRemoteObject;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,11 +23,18 @@ import com.yahoo.ycsb.rmi.SlaveRMIInterface;
 public class MasterClient implements MasterRMIInterface {
 	private static final Logger LOG = LoggerFactory
 			.getLogger(MasterClient.class);
+	public static final String REGISTRY_NAME = "MasterRMIInterface";
 	public static MasterClient client = null;
 
 	LoadThread lt;
 	StatusThread st;
 	HashMap<String, Registry> rmiClients;
+	private Registry registry;
+
+	/**
+	 * Steps the item count of a changeItemCount in progress
+	 */
+	private Timer itemcounttimer;
 
 	private MasterClient() {
 		lt = null;
@@ -38,8 +49,34 @@ public class MasterClient implements MasterRMIInterface {
 	}
 
 	public void init() {
-		if (Config.getConfig().do_transactions)
+		// a bulk load is partitioned among the master and all slaves
+		if (Config.getConfig().do_transactions || Config.getConfig().bulk_load)
 			initSlaveRMI();
+		initControlRMI();
+	}
+
+	/**
+	 * Export the master, so that a running test can be controlled through
+	 * MasterRMIInterface (see ControlClient).
+	 */
+	private void initControlRMI() {
+		if (registry != null)
+			return;
+		try {
+			MasterRMIInterface stub = (MasterRMIInterface) UnicastRemoteObject
+					.exportObject(this, 0);
+			try {
+				registry = LocateRegistry.createRegistry(SlaveClient.RMI_PORT);
+			} catch (ExportException e) {
+				// a slave on the same host already runs the registry
+				registry = LocateRegistry.getRegistry(SlaveClient.RMI_PORT);
+			}
+			registry.rebind(REGISTRY_NAME, stub);
+		} catch (RemoteException e) {
+			LOG.error("MasterRMI interface cannot be created, "
+					+ "the test cannot be controlled while it runs");
+			registry = null;
+		}
 	}
 
 	private void initSlaveRMI() {
@@ -63,31 +100,47 @@ public class MasterClient implements MasterRMIInterface {
 		}
 	}
 
+	/**
+	 * Send the properties to the slaves, with the index of each among the
+	 * clients. A slave that cannot take them is removed from the setup, and
+	 * the others are numbered anew, so that the partitions of the slaves
+	 * that run cover the whole key range.
+	 */
 	public void setupSlaves() {
 		int res;
-		Set<String> keys = rmiClients.keySet();
-		Iterator<String> itr = keys.iterator();
+		Config config = Config.getConfig();
+		boolean complete;
 
-		for (int i = 1; itr.hasNext(); i++) {
-			String key = itr.next();
-			try {
-				SlaveRMIInterface loadgen = (SlaveRMIInterface) rmiClients.get(
-						key).lookup(SlaveClient.REGISTRY_NAME);
-				res = loadgen.setProperties(Config.getConfig());
-				if (res != 0)
-					System.out.println("Properties sent to Slave were NULL");
-			} catch (NotBoundException e) {
-				LOG.error("Could not send properties to "
-						+ key
-						+ " because slave was not bound\nRemoving slave node from setup");
-				rmiClients.remove(key);
-			} catch (RemoteException e) {
-				LOG.error("Could not send properties to "
-						+ key
-						+ " because slave is not running\nRemoving slave node from setup");
-				rmiClients.remove(key);
+		do {
+			complete = true;
+			// the master is client 0, the slaves get the following indexes
+			config.client_count = rmiClients.size() + 1;
+			Iterator<String> itr = rmiClients.keySet().iterator();
+			for (int i = 1; itr.hasNext(); i++) {
+				String key = itr.next();
+				try {
+					SlaveRMIInterface loadgen = (SlaveRMIInterface) rmiClients
+							.get(key).lookup(SlaveClient.REGISTRY_NAME);
+					config.client_index = i;
+					res = loadgen.setProperties(config);
+					if (res != 0)
+						System.out.println("Properties sent to Slave were NULL");
+				} catch (NotBoundException e) {
+					LOG.error("Could not send properties to "
+							+ key
+							+ " because slave was not bound\nRemoving slave node from setup");
+					itr.remove();
+					complete = false;
+				} catch (RemoteException e) {
+					LOG.error("Could not send properties to "
+							+ key
+							+ " because slave is not running\nRemoving slave node from setup");
+					itr.remove();
+					complete = false;
+				}
 			}
-		}
+		} while (!complete);
+		config.client_index = 0;
 	}
 
 	public void execute() {
@@ -124,11 +177,32 @@ public class MasterClient implements MasterRMIInterface {
 		System.out.println("End Test");
 	}
 
+	/**
+	 * @return operations per second of the last test, over all clients
+	 */
+	public double getThroughput() {
+		return st == null ? 0 : st.getThroughput();
+	}
+
 	/**
 	 * 关闭slave节点
 	 */
 	public void shutdown() {
 		shutdownSlaves();
+		stopItemCount();
+		if (registry != null) {
+			try {
+				registry.unbind(REGISTRY_NAME);
+			} catch (Exception e) {
+				// the registry may be gone with a slave on the same host
+			}
+			try {
+				UnicastRemoteObject.unexportObject(this, true);
+			} catch (RemoteException e) {
+				e.printStackTrace();
+			}
+			registry = null;
+		}
 		lt = null;
 		st = null;
 		System.out.println("MasterClient is shut down");
@@ -156,19 +230,120 @@ public class MasterClient implements MasterRMIInterface {
 		rmiClients.clear();
 	}
 
-	public void changeWorkingSet(int workingset) throws RemoteException {
-		// TODO Auto-generated method stub
+	/**
+	 * A change sent to every slave
+	 */
+	private static abstract class SlaveCommand {
+		abstract void run(SlaveRMIInterface slave) throws RemoteException;
+	}
+
+	private synchronized void onSlaves(String what, SlaveCommand command) {
+		Set<String> keys = rmiClients.keySet();
+		Iterator<String> itr = keys.iterator();
+
+		while (itr.hasNext()) {
+			String key = itr.next();
+			try {
+				SlaveRMIInterface loadgen = (SlaveRMIInterface) rmiClients.get(
+						key).lookup(SlaveClient.REGISTRY_NAME);
+				command.run(loadgen);
+			} catch (NotBoundException e) {
+				LOG.error("Could not " + what + " of " + key
+						+ " because slave was not bound");
+			} catch (RemoteException e) {
+				LOG.error("Could not " + what + " of " + key
+						+ " because slave is not running");
+			}
+		}
+	}
+
+	public void changeWorkingSet(final int workingset) throws RemoteException {
+		System.out.println("Changing working set to " + workingset);
+		Config.getConfig().working_set = workingset;
+		LoadThread t = lt;
+		if (t != null)
+			t.reconfigure();
+		onSlaves("change the working set", new SlaveCommand() {
+			void run(SlaveRMIInterface slave) throws RemoteException {
+				slave.changeWorkingSet(workingset);
+			}
+		});
+	}
 
+	public void changeThroughput(final int throughput) throws RemoteException {
+		System.out.println("Changing target to " + throughput
+				+ " ops/sec per client");
+		Config.getConfig().target = throughput;
+		LoadThread t = lt;
+		if (t != null)
+			t.setTarget(throughput);
+		onSlaves("change the target", new SlaveCommand() {
+			void run(SlaveRMIInterface slave) throws RemoteException {
+				slave.changeThroughput(throughput);
+			}
+		});
 	}
 
-	public void changeThroughput(int throughput) throws RemoteException {
-		// TODO Auto-generated method stub
+	public void changeThreadCount(final int threads) throws RemoteException {
+		System.out.println("Changing active threads to " + threads
+				+ " per client");
+		LoadThread t = lt;
+		if (t != null)
+			t.setActiveThreads(threads);
+		onSlaves("change the thread count", new SlaveCommand() {
+			void run(SlaveRMIInterface slave) throws RemoteException {
+				slave.changeThreadCount(threads);
+			}
+		});
+	}
 
+	public synchronized void changeItemCount(final int delta, int seconds,
+			final int maxitems) throws RemoteException {
+		stopItemCount();
+		if (seconds <= 0) {
+			setItemCount(Config.getConfig().record_count + delta, delta,
+					maxitems);
+			return;
+		}
+		itemcounttimer = new Timer("MasterClient-itemcount", true);
+		itemcounttimer.schedule(new TimerTask() {
+			public void run() {
+				if (!setItemCount(Config.getConfig().record_count + delta,
+						delta, maxitems))
+					cancel();
+			}
+		}, seconds * 1000L, seconds * 1000L);
 	}
 
-	public void changeItemCount(int delta, int seconds, int maxitems)
-			throws RemoteException {
-		// TODO Auto-generated method stub
+	private synchronized void stopItemCount() {
+		if (itemcounttimer != null) {
+			itemcounttimer.cancel();
+			itemcounttimer = null;
+		}
+	}
 
+	/**
+	 * Set the item count of every client to count, bounded by maxitems: an
+	 * upper bound if the count grows, a lower bound if it shrinks.
+	 *
+	 * @return false if maxitems has been reached
+	 */
+	private boolean setItemCount(int count, int delta, int maxitems) {
+		if (maxitems > 0)
+			count = delta >= 0 ? Math.min(count, maxitems) : Math.max(count,
+					maxitems);
+		count = Math.max(1, count);
+		final int itemcount = count;
+		System.out.println("Changing item count to " + itemcount);
+		Config.getConfig().record_count = itemcount;
+		LoadThread t = lt;
+		if (t != null)
+			t.reconfigure();
+		onSlaves("change the item count", new SlaveCommand() {
+			void run(SlaveRMIInterface slave) throws RemoteException {
+				slave.changeItemCount(itemcount);
+			}
+		});
+		return maxitems <= 0 || itemcount != maxitems;
 	}
 }
@@ -0,0 +1,270 @@
+package com.yahoo.ycsb.client;
+
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.generator.IntervalGenerator;
+
+/**
+ * Paces one client thread against an absolute schedule of intended start
+ * times. Every thread of a pool owns one scheduler; the schedules of all
+ * threads are interleaved so that together they issue <code>target</code>
+ * operations per second, no matter how long a single operation takes (open
+ * loop).
+ *
+ * The n-th intended start is computed as <code>base + n * interval</code>
+ * rather than by adding the interval to the previous start, so rounding and
+ * wake-up jitter never accumulate into a rate error. If an operation overruns
+ * its slot the thread does not wait for the following ones until it has caught
+ * up with the schedule again.
+ *
+ * With a ramp, the rate of the pool grows linearly from 0 to target over the
+ * ramp time and stays at target afterwards.
+ *
+ * With an arrival generator the distance between two intended starts is drawn
+ * from its distribution (e.g. exponential for Poisson arrivals) instead of
+ * being constant, once the ramp is over. Each start is still computed from the
+ * previous intended start, not from the time the thread woke up.
+ *
+ * With a rate profile the rate of the pool is target times the factor of the
+ * profile at the time, and the next start is where the rate of this thread,
+ * integrated from the previous intended start, reaches one operation (or the
+ * unit-mean distance drawn from the arrival generator).
+ */
+public class OpenLoopScheduler {
+	/**
+	 * Time of the first intended start of this thread. Unit: ns (System.nanoTime)
+	 */
+	private long base;
+
+	/**
+	 * Distance between two intended starts of this thread. Unit: ns
+	 */
+	private double interval;
+
+	/**
+	 * Number of intended starts handed out since base
+	 */
+	private long count;
+
+	/**
+	 * Index of the owning thread and number of threads sharing the target
+	 */
+	private int threadid;
+	private int threadcount;
+
+	/**
+	 * Operations per ns of the whole pool once the ramp is over
+	 */
+	private double rate;
+
+	/**
+	 * Duration of the linear ramp from 0 to target. Unit: ns, 0 for none
+	 */
+	private double ramp;
+
+	/**
+	 * Draws the distance between two intended starts, null for evenly spaced
+	 * starts
+	 */
+	private IntervalGenerator arrivals;
+
+	/**
+	 * Intended start of the last operation when drawn from arrivals or the
+	 * profile, only set once count &gt; 0. Unit: ns (System.nanoTime)
+	 */
+	private long last;
+
+	/**
+	 * Varies the rate over time, null for a constant rate
+	 */
+	private RateProfile profile;
+
+	/**
+	 * Time 0 of the profile and of the ramp with a profile, and start of this
+	 * schedule. Unit: ns (System.nanoTime)
+	 */
+	private long origin;
+	private long start;
+
+	/**
+	 * Step of the integration of the profile rate. Unit: ns
+	 */
+	private static final long PROFILE_STEP = 1000000L;
+
+	/**
+	 * Farthest a start is looked for when the profile rate stays at 0. Unit:
+	 * ns
+	 */
+	private static final long PROFILE_HORIZON = 3600L * 1000000000L;
+
+	/**
+	 * @param target
+	 *            operations per second of the whole pool
+	 * @param threadid
+	 *            index of the owning thread in [0, threadcount)
+	 * @param threadcount
+	 *            number of threads sharing the target
+	 * @param startnanos
+	 *            System.nanoTime() at which the schedule starts
+	 */
+	public OpenLoopScheduler(double target, int threadid, int threadcount,
+			long startnanos) {
+		this(target, threadid, threadcount, startnanos, 0);
+	}
+
+	/**
+	 * @param rampnanos
+	 *            duration of a linear ramp from 0 to target operations per
+	 *            second at the start of the schedule. Unit: ns, 0 for none
+	 */
+	public OpenLoopScheduler(double target, int threadid, int threadcount,
+			long startnanos, long rampnanos) {
+		interval = 1000000000.0 * threadcount / target;
+		// stagger the threads so the pool as a whole issues evenly spaced ops
+		base = startnanos + (long) (interval * threadid / threadcount);
+		count = 0;
+		this.threadid = threadid;
+		this.threadcount = threadcount;
+		this.rate = target / 1000000000.0;
+		this.ramp = rampnanos;
+		if (ramp > 0)
+			base = startnanos;
+	}
+
+	/**
+	 * @param arrivals
+	 *            draws the distance between two intended starts; its mean is
+	 *            set to the interval of this thread. null for evenly spaced
+	 *            starts
+	 */
+	public OpenLoopScheduler(double target, int threadid, int threadcount,
+			long startnanos, long rampnanos, IntervalGenerator arrivals) {
+		this(target, threadid, threadcount, startnanos, rampnanos);
+		this.arrivals = arrivals;
+		if (arrivals != null)
+			arrivals.setMean(interval);
+	}
+
+	/**
+	 * @param profile
+	 *            varies the rate over time, null for a constant rate
+	 * @param originnanos
+	 *            System.nanoTime() at which the profile, and the ramp if
+	 *            any, begin; the start of the pool rather than of this
+	 *            schedule so that the profile carries on when the schedule is
+	 *            replaced
+	 */
+	public OpenLoopScheduler(double target, int threadid, int threadcount,
+			long startnanos, long rampnanos, IntervalGenerator arrivals,
+			RateProfile profile, long originnanos) {
+		this(target, threadid, threadcount, startnanos, rampnanos, arrivals);
+		this.profile = profile;
+		this.origin = originnanos;
+		this.start = startnanos;
+		if (profile != null && arrivals != null)
+			// draws the number of operations to the next start, in ns
+			arrivals.setMean(1000000000.0);
+	}
+
+	/**
+	 * Waits until the next intended start time of this thread and returns it.
+	 * Returns immediately if the thread is behind schedule, and early if the
+	 * thread is interrupted while waiting; the caller has to check
+	 * Thread.isInterrupted() before it starts the operation.
+	 *
+	 * @return the intended start time (System.nanoTime) of the next operation
+	 */
+	public long acquire() {
+		long intended;
+		if (profile != null) {
+			intended = nextFromProfile();
+		} else if (arrivals == null || inRamp(count)) {
+			intended = base + offset(count);
+		} else if (count == 0) {
+			intended = base + offset(count) + arrivals.nextNanos();
+		} else {
+			intended = last + arrivals.nextNanos();
+		}
+		last = intended;
+		count++;
+
+		long remaining;
+		while ((remaining = intended - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(remaining);
+			if (Thread.currentThread().isInterrupted())
+				break;
+		}
+		return intended;
+	}
+
+	/**
+	 * @return the first time after the last start at which the profile rate
+	 *         of this thread, integrated from there, reaches the next
+	 *         operation
+	 */
+	private long nextFromProfile() {
+		double need = arrivals == null ? 1 : arrivals.nextNanos() / 1000000000.0;
+		long t = last;
+		if (count == 0) {
+			t = start;
+			if (arrivals == null)
+				// stagger the threads as without a profile
+				need = (threadid + 1.0) / threadcount;
+		}
+		long horizon = t + PROFILE_HORIZON;
+		while (t < horizon) {
+			double r = getRate(t) / threadcount;
+			if (r * PROFILE_STEP >= need)
+				return t + (long) (need / r);
+			need -= r * PROFILE_STEP;
+			t += PROFILE_STEP;
+		}
+		return t;
+	}
+
+	/**
+	 * @return operations per ns of the whole pool at the given time
+	 *         (System.nanoTime)
+	 */
+	private double getRate(long nanos) {
+		long elapsed = nanos - origin;
+		double r = rate;
+		if (profile != null)
+			r *= profile.getFactor(elapsed / 1000000000.0);
+		if (ramp > 0 && elapsed < ramp)
+			r *= Math.max(0, elapsed) / ramp;
+		return r;
+	}
+
+	/**
+	 * @return time of the n-th intended start of this thread after base.
+	 *         Unit: ns
+	 */
+	private long offset(long n) {
+		if (ramp <= 0)
+			return (long) (n * interval);
+		// index of the operation among those of the whole pool
+		double g = (double) n * threadcount + threadid;
+		// the pool has issued rate * t^2 / (2 * ramp) ops at time t of the ramp
+		double rampops = rate * ramp / 2;
+		if (g < rampops)
+			return (long) Math.sqrt(2 * ramp * g / rate);
+		return (long) (ramp + (g - rampops) / rate);
+	}
+
+	/**
+	 * @return true if the n-th intended start of this thread is part of the
+	 *         ramp
+	 */
+	private boolean inRamp(long n) {
+		return ramp > 0 && (double) n * threadcount + threadid < rate * ramp / 2;
+	}
+
+	/**
+	 * @return distance between two intended starts of this thread once the
+	 *         ramp is over. Unit: ns
+	 */
+	public double getInterval() {
+		return interval;
+	}
+}
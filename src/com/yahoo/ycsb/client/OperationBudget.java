@@ -0,0 +1,144 @@
+package com.yahoo.ycsb.client;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The number of operations a thread pool may still execute, and the deadline
+ * after which it has to stop.
+ *
+ * Threads do not take operations one by one from the shared counter. Each
+ * thread holds a {@link Lease} and takes a chunk of operations from the shared
+ * counter only when its lease is used up, so the shared counter is touched
+ * once per chunk instead of once per operation. The deadline is a volatile
+ * flag set by a timer, so checking it costs a read instead of a clock call.
+ */
+public class OperationBudget {
+	/**
+	 * Upper bound for the chunk size. Near the end of the run a thread may hold
+	 * up to one chunk that other threads cannot take over any more.
+	 */
+	public static final int MAX_LEASE_SIZE = 1000;
+
+	private final AtomicLong remaining;
+	private final int leasesize;
+	private final long maxExecutionTime;
+	private volatile boolean expired;
+	private Timer timer;
+
+	/**
+	 * @param ops
+	 *            total number of operations
+	 * @param threadcount
+	 *            number of threads that will lease from this budget
+	 * @param maxExecutionTime
+	 *            Unit: ms, &lt;= 0 for no deadline
+	 */
+	public OperationBudget(long ops, int threadcount, long maxExecutionTime) {
+		remaining = new AtomicLong(ops);
+		// small enough that every thread gets a share of the last chunks
+		long size = ops / (Math.max(threadcount, 1) * 16L);
+		leasesize = (int) Math.max(1, Math.min(MAX_LEASE_SIZE, size));
+		this.maxExecutionTime = maxExecutionTime;
+		expired = false;
+	}
+
+	/**
+	 * Arms the deadline. Call it when the threads start executing, so that
+	 * connection setup does not count against the execution time.
+	 */
+	public void start() {
+		start(0);
+	}
+
+	/**
+	 * Arms the deadline for a start in delay ms.
+	 */
+	public synchronized void start(long delay) {
+		if (maxExecutionTime > 0 && timer == null && !expired) {
+			timer = new Timer("OperationBudget-deadline", true);
+			timer.schedule(new TimerTask() {
+				public void run() {
+					expire();
+				}
+			}, delay + maxExecutionTime);
+		}
+	}
+
+	/**
+	 * Stops every lease of this budget after its current operation.
+	 */
+	public synchronized void expire() {
+		expired = true;
+		if (timer != null)
+			timer.cancel();
+	}
+
+	public boolean isExpired() {
+		return expired;
+	}
+
+	/**
+	 * @return true if the deadline has passed or every operation has been
+	 *         taken by a lease
+	 */
+	public boolean isUsedUp() {
+		return expired || remaining.get() <= 0;
+	}
+
+	/**
+	 * Create the lease of one thread. A lease must not be shared between
+	 * threads.
+	 */
+	public Lease newLease() {
+		return new Lease();
+	}
+
+	/**
+	 * Takes up to leasesize operations from the shared counter.
+	 *
+	 * @return the number of operations taken, 0 if the budget is used up
+	 */
+	private int take() {
+		while (true) {
+			long left = remaining.get();
+			if (left <= 0)
+				return 0;
+			int n = (int) Math.min(left, leasesize);
+			if (remaining.compareAndSet(left, left - n))
+				return n;
+		}
+	}
+
+	/**
+	 * The operations one thread has taken from the budget but not executed yet.
+	 */
+	public class Lease {
+		private int left = 0;
+
+		/**
+		 * @return true if the owning thread may execute one more operation
+		 */
+		public boolean next() {
+			if (expired)
+				return false;
+			if (left == 0 && (left = take()) == 0)
+				return false;
+			left--;
+			return true;
+		}
+
+		/**
+		 * Gives the operations of this lease that were not executed back to
+		 * the budget, e.g. when the owning thread pauses, so that the other
+		 * threads execute them.
+		 */
+		public void release() {
+			if (left > 0) {
+				remaining.addAndGet(left);
+				left = 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.yahoo.ycsb.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The operations a producer thread has generated ahead of time for one
+ * worker (pregenerate=true): a bounded ring with exactly one producer and
+ * one consumer, so neither side takes a lock. The producer only advances
+ * tail, the worker only advances head.
+ *
+ * A worker that finds its ring empty waits for the producer; how often and
+ * how long it waited is the lag of the producer, i.e. the time generation
+ * rather than the DataStore held the worker up.
+ */
+class OperationRing {
+	/**
+	 * Longest wait of a worker before it checks its ring again, in case a
+	 * wake-up of the producer was missed. Unit: ns
+	 */
+	private static final long WAIT_NANOS = 100000L;
+
+	private final Object[] slots;
+	private final int mask;
+
+	/**
+	 * Number of operations taken and offered so far
+	 */
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * The worker while it waits for the producer
+	 */
+	private volatile Thread waiter;
+
+	/**
+	 * Set by the producer when it offers no more operations
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Times the worker found the ring empty, and the time it waited. Only
+	 * written by the worker. Unit: ns
+	 */
+	private volatile long empty;
+	private volatile long waitnanos;
+
+	/**
+	 * @param capacity
+	 *            rounded up to a power of 2
+	 */
+	OperationRing(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		slots = new Object[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * @return number of operations the producer can still offer
+	 */
+	int getFree() {
+		return slots.length - (int) (tail.get() - head.get());
+	}
+
+	/**
+	 * @return number of operations waiting for the worker
+	 */
+	int getSize() {
+		return (int) (tail.get() - head.get());
+	}
+
+	int getCapacity() {
+		return slots.length;
+	}
+
+	/**
+	 * Called by the producer only, when getFree() &gt; 0.
+	 */
+	void offer(Object operation) {
+		long t = tail.get();
+		slots[(int) t & mask] = operation;
+		tail.set(t + 1);
+		Thread w = waiter;
+		if (w != null)
+			LockSupport.unpark(w);
+	}
+
+	/**
+	 * Called by the producer when it ends, e.g. because it failed. The worker
+	 * takes the operations left, then finds the ring closed.
+	 */
+	void close() {
+		closed = true;
+		Thread w = waiter;
+		if (w != null)
+			LockSupport.unpark(w);
+	}
+
+	/**
+	 * Called by the worker only. Waits for the producer if the ring is empty.
+	 *
+	 * @return the next operation, null if the worker was interrupted while
+	 *         waiting or the ring is empty and closed
+	 */
+	Object take() {
+		long h = head.get();
+		if (tail.get() == h && !await(h))
+			return null;
+		int i = (int) h & mask;
+		Object operation = slots[i];
+		slots[i] = null;
+		head.lazySet(h + 1);
+		return operation;
+	}
+
+	private boolean await(long h) {
+		Thread self = Thread.currentThread();
+		long st = System.nanoTime();
+		empty++;
+		waiter = self;
+		try {
+			while (tail.get() == h) {
+				if (closed)
+					return tail.get() != h;
+				LockSupport.parkNanos(this, WAIT_NANOS);
+				if (self.isInterrupted())
+					return false;
+			}
+			return true;
+		} finally {
+			waiter = null;
+			waitnanos += System.nanoTime() - st;
+		}
+	}
+
+	/**
+	 * @return times the worker found the ring empty
+	 */
+	long getEmpty() {
+		return empty;
+	}
+
+	/**
+	 * @return time the worker waited for the producer. Unit: ns
+	 */
+	long getWaitNanos() {
+		return waitnanos;
+	}
+}
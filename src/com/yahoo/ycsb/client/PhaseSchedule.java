@@ -0,0 +1,175 @@
+package com.yahoo.ycsb.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import com.yahoo.ycsb.Config;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A sequence of measured phases within one run, each with its own duration and
+ * its own properties, e.g. the operation mix, the request distribution and
+ * the target. Configured by the "phases" property: phases separated by "|",
+ * each one "name seconds property=value ...", e.g.
+ *
+ * <pre>
+ * phases=readheavy 300 readproportion=0.95 updateproportion=0.05 target=50000 |\
+ *        mixed 300 readproportion=0.5 updateproportion=0.5 target=80000 |\
+ *        spike 30 target=150000
+ * </pre>
+ *
+ * The properties of a phase stay in effect in the following phases unless
+ * they are changed again. threadcount changes the number of active threads,
+ * up to the threadcount the run was started with. The schedule begins with
+ * the measured part of the run, after the ramp-up and warm-up, and the run
+ * ends with the last phase. Every client (master and slaves) runs the
+ * schedule on its own from the common start.
+ */
+public class PhaseSchedule {
+
+	/**
+	 * One phase of the schedule
+	 */
+	public static class Phase {
+		final String name;
+
+		/**
+		 * Unit: ns
+		 */
+		final long duration;
+		final Map<String, String> properties;
+
+		/**
+		 * Time the phase began and ended. Unit: ns (System.nanoTime), 0 if
+		 * not yet
+		 */
+		volatile long beginnanos;
+		volatile long endnanos;
+
+		Phase(String name, long duration, Map<String, String> properties) {
+			this.name = name;
+			this.duration = duration;
+			this.properties = properties;
+		}
+
+		/**
+		 * @return time the phase ran so far. Unit: ns
+		 */
+		long getRunTime() {
+			long st = beginnanos;
+			if (st == 0)
+				return 0;
+			long en = endnanos != 0 ? endnanos : System.nanoTime();
+			return en - st;
+		}
+	}
+
+	private final List<Phase> phases;
+	private Timer timer;
+
+	PhaseSchedule(List<Phase> phases) {
+		this.phases = phases;
+	}
+
+	/**
+	 * Parse the phases property. Exits on a malformed schedule, so that it
+	 * does not fail in the middle of a run.
+	 */
+	public static PhaseSchedule parse(String spec) {
+		List<Phase> phases = new ArrayList<Phase>();
+		// properties are checked on a scratch configuration
+		Config scratch = new Config();
+		for (String item : spec.split("\\|")) {
+			String[] fields = item.trim().split("\\s+");
+			if (fields.length < 2) {
+				System.out.println("Phase \"" + item.trim()
+						+ "\" needs a name and a duration");
+				System.exit(0);
+			}
+			String name = fields[0];
+			if (name.contains(Measurements.PHASE_SEPARATOR)
+					|| Measurements.RAMPUP_PHASE.equals(name)
+					|| Measurements.WARMUP_PHASE.equals(name)) {
+				System.out.println("Phase name \"" + name + "\" is not allowed");
+				System.exit(0);
+			}
+			double seconds = 0;
+			try {
+				seconds = Double.parseDouble(fields[1]);
+			} catch (NumberFormatException e) {
+				System.out.println("Duration of phase " + name
+						+ " is not a number: " + fields[1]);
+				System.exit(0);
+			}
+			Map<String, String> properties = new LinkedHashMap<String, String>();
+			for (int i = 2; i < fields.length; i++) {
+				int eq = fields[i].indexOf('=');
+				if (eq <= 0) {
+					System.out.println("Phase " + name
+							+ ": not a property=value: " + fields[i]);
+					System.exit(0);
+				}
+				String property = fields[i].substring(0, eq);
+				String value = fields[i].substring(eq + 1);
+				scratch.setProperty(property, value);
+				if (property.equals(Config.RATE_PROFILE_PROPERTY))
+					RateProfile.parse(value);
+				properties.put(property, value);
+			}
+			phases.add(new Phase(name, (long) (seconds * 1e9), properties));
+		}
+		return new PhaseSchedule(phases);
+	}
+
+	public List<Phase> getPhases() {
+		return phases;
+	}
+
+	/**
+	 * Begin the first phase now and the following ones after delay plus the
+	 * duration of the ones before. Closes the pool when the last one is over.
+	 *
+	 * @param delay
+	 *            time until the first phase begins. Unit: ms
+	 */
+	synchronized void start(final ClientThreadPool pool, long delay) {
+		if (timer != null || phases.isEmpty())
+			return;
+		timer = new Timer("PhaseSchedule", true);
+		pool.beginScheduledPhase(phases.get(0));
+
+		long at = delay * 1000000L;
+		for (int i = 0; i < phases.size(); i++) {
+			final Phase phase = phases.get(i);
+			final Phase next = i + 1 < phases.size() ? phases.get(i + 1) : null;
+			at += phase.duration;
+			timer.schedule(new TimerTask() {
+				public void run() {
+					phase.endnanos = System.nanoTime();
+					if (next != null)
+						pool.beginScheduledPhase(next);
+					else
+						pool.endSchedule();
+				}
+			}, at / 1000000L);
+		}
+	}
+
+	/**
+	 * Stop the schedule at the end of the run, which may come before the end
+	 * of the last phase.
+	 */
+	synchronized void stop() {
+		if (timer != null)
+			timer.cancel();
+		long now = System.nanoTime();
+		for (Phase p : phases) {
+			if (p.beginnanos != 0 && p.endnanos == 0)
+				p.endnanos = now;
+		}
+	}
+}
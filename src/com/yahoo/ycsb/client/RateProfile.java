@@ -0,0 +1,258 @@
+package com.yahoo.ycsb.client;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Varies the target of the open-loop schedule over time, e.g. with the
+ * traffic of a day or with bursts. A profile is a factor the target is
+ * multiplied with, as a function of the time since the start of the run.
+ * Configured by the "rateprofile" property, "name parameter=value ...":
+ *
+ * <pre>
+ * sine period=600 amplitude=0.5 shift=0      1 + amplitude * sin(2 pi (t + shift) / period)
+ * step duration=60 levels=0.5,1,1.5,2        each level for duration seconds, in turn
+ * sawtooth period=600 min=0.5 max=1.5        rises from min to max, then drops back
+ * spikes period=300 width=10 height=4 offset=0  height for width seconds every period
+ * csv file=profile.csv repeat=true            "seconds,factor" per line, interpolated
+ * </pre>
+ *
+ * Every profile but csv repeats with its period. Times are in seconds. The
+ * parameters may also be separated by ";", e.g. to change the profile within
+ * a phase of a PhaseSchedule: "rateprofile=spikes;period=60;width=5;height=3".
+ */
+public abstract class RateProfile {
+
+	/**
+	 * @param seconds
+	 *            time since the start of the run
+	 * @return the factor of the target at that time, &gt;= 0
+	 */
+	public abstract double getFactor(double seconds);
+
+	/**
+	 * Parse the rateprofile property. Exits on a malformed profile.
+	 */
+	public static RateProfile parse(String spec) {
+		String[] fields = spec.trim().split("[\\s;]+");
+		Map<String, String> params = new HashMap<String, String>();
+		for (int i = 1; i < fields.length; i++) {
+			int eq = fields[i].indexOf('=');
+			if (eq <= 0)
+				fail(spec, "not a parameter=value: " + fields[i]);
+			params.put(fields[i].substring(0, eq), fields[i].substring(eq + 1));
+		}
+
+		String name = fields[0];
+		try {
+			if (name.equals("sine")) {
+				return new Sine(get(params, "period", spec), opt(params,
+						"amplitude", 0.5), opt(params, "shift", 0));
+			} else if (name.equals("step")) {
+				String levels = params.get("levels");
+				if (levels == null)
+					fail(spec, "levels missing");
+				String[] items = levels.split(",");
+				double[] values = new double[items.length];
+				for (int i = 0; i < items.length; i++)
+					values[i] = Double.parseDouble(items[i]);
+				return new Step(get(params, "duration", spec), values);
+			} else if (name.equals("sawtooth")) {
+				return new Sawtooth(get(params, "period", spec), opt(params,
+						"min", 0), opt(params, "max", 1));
+			} else if (name.equals("spikes")) {
+				return new Spikes(get(params, "period", spec), get(params,
+						"width", spec), get(params, "height", spec), opt(params,
+						"offset", 0));
+			} else if (name.equals("csv")) {
+				String file = params.get("file");
+				if (file == null)
+					fail(spec, "file missing");
+				return Csv.load(file, !"false".equals(params.get("repeat")));
+			}
+		} catch (NumberFormatException e) {
+			fail(spec, "not a number: " + e.getMessage());
+		} catch (IOException e) {
+			fail(spec, e.getMessage());
+		}
+		fail(spec, "unknown profile " + name);
+		return null;
+	}
+
+	private static void fail(String spec, String message) {
+		System.out.println("Rate profile \"" + spec + "\": " + message);
+		System.exit(0);
+	}
+
+	private static double get(Map<String, String> params, String name,
+			String spec) {
+		String value = params.get(name);
+		if (value == null)
+			fail(spec, name + " missing");
+		double d = Double.parseDouble(value);
+		if (d <= 0)
+			fail(spec, name + " has to be positive");
+		return d;
+	}
+
+	private static double opt(Map<String, String> params, String name,
+			double def) {
+		String value = params.get(name);
+		return value == null ? def : Double.parseDouble(value);
+	}
+
+	/**
+	 * @return position within the period, in [0, period)
+	 */
+	static double within(double seconds, double period) {
+		double t = seconds % period;
+		return t < 0 ? t + period : t;
+	}
+
+	static class Sine extends RateProfile {
+		final double period;
+		final double amplitude;
+		final double shift;
+
+		Sine(double period, double amplitude, double shift) {
+			this.period = period;
+			this.amplitude = amplitude;
+			this.shift = shift;
+		}
+
+		public double getFactor(double seconds) {
+			return Math.max(0, 1 + amplitude
+					* Math.sin(2 * Math.PI * (seconds + shift) / period));
+		}
+	}
+
+	static class Step extends RateProfile {
+		final double duration;
+		final double[] levels;
+
+		Step(double duration, double[] levels) {
+			this.duration = duration;
+			this.levels = levels;
+		}
+
+		public double getFactor(double seconds) {
+			int i = (int) (within(seconds, duration * levels.length) / duration);
+			return Math.max(0, levels[Math.min(i, levels.length - 1)]);
+		}
+	}
+
+	static class Sawtooth extends RateProfile {
+		final double period;
+		final double min;
+		final double max;
+
+		Sawtooth(double period, double min, double max) {
+			this.period = period;
+			this.min = min;
+			this.max = max;
+		}
+
+		public double getFactor(double seconds) {
+			return Math.max(0, min + (max - min) * within(seconds, period)
+					/ period);
+		}
+	}
+
+	static class Spikes extends RateProfile {
+		final double period;
+		final double width;
+		final double height;
+		final double offset;
+
+		Spikes(double period, double width, double height, double offset) {
+			this.period = period;
+			this.width = width;
+			this.height = height;
+			this.offset = offset;
+		}
+
+		public double getFactor(double seconds) {
+			return within(seconds - offset, period) < width ? height : 1;
+		}
+	}
+
+	static class Csv extends RateProfile {
+		/**
+		 * Points of the profile, ascending in time. Unit: s
+		 */
+		final double[] times;
+		final double[] factors;
+		final boolean repeat;
+
+		Csv(double[] times, double[] factors, boolean repeat) {
+			this.times = times;
+			this.factors = factors;
+			this.repeat = repeat;
+		}
+
+		/**
+		 * Read a profile of "seconds,factor" lines, ascending in time. Empty
+		 * lines and lines starting with # are skipped.
+		 */
+		static Csv load(String filename, boolean repeat) throws IOException {
+			ArrayList<double[]> points = new ArrayList<double[]>();
+			BufferedReader reader = new BufferedReader(new FileReader(filename));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					line = line.trim();
+					if (line.length() == 0 || line.startsWith("#"))
+						continue;
+					String[] items = line.split("[,;\\s]+");
+					if (items.length < 2)
+						throw new IOException("not a \"seconds,factor\" line in "
+								+ filename + ": " + line);
+					double t = Double.parseDouble(items[0]);
+					if (!points.isEmpty()
+							&& t <= points.get(points.size() - 1)[0])
+						throw new IOException("times not ascending in "
+								+ filename + ": " + line);
+					points.add(new double[] { t, Double.parseDouble(items[1]) });
+				}
+			} finally {
+				reader.close();
+			}
+			if (points.isEmpty())
+				throw new IOException("no points in " + filename);
+			double[] times = new double[points.size()];
+			double[] factors = new double[points.size()];
+			for (int i = 0; i < times.length; i++) {
+				times[i] = points.get(i)[0];
+				factors[i] = Math.max(0, points.get(i)[1]);
+			}
+			return new Csv(times, factors, repeat);
+		}
+
+		public double getFactor(double seconds) {
+			int n = times.length;
+			double end = times[n - 1];
+			if (repeat && end > 0)
+				seconds = within(seconds, end);
+			if (seconds <= times[0])
+				return factors[0];
+			if (seconds >= end)
+				return factors[n - 1];
+			// binary search for the segment [times[lo], times[lo + 1]]
+			int lo = 0;
+			int hi = n - 1;
+			while (hi - lo > 1) {
+				int mid = (lo + hi) >>> 1;
+				if (times[mid] <= seconds)
+					lo = mid;
+				else
+					hi = mid;
+			}
+			double f = (seconds - times[lo]) / (times[hi] - times[lo]);
+			return factors[lo] + f * (factors[hi] - factors[lo]);
+		}
+	}
+}
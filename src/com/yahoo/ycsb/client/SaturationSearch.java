@@ -0,0 +1,227 @@
+package com.yahoo.ycsb.client;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.yahoo.ycsb.Config;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import com.yahoo.ycsb.process.Prop;
+
+/**
+ * Finds the highest throughput the system under test sustains within a
+ * latency SLO, e.g. the 99th percentile of GET below 2 ms. The configured test
+ * is run once per target and the target, the throughput reached and the
+ * latency of every run are reported as the latency vs. throughput curve,
+ * together with the highest throughput that met the SLO.
+ *
+ * "step" raises the target by saturationstep until a run violates the SLO.
+ * "binary" doubles the target until then and bisects between the last good
+ * and the first bad target until they are saturationprecision apart.
+ *
+ * A run also fails when all clients together do not reach SUSTAINED_RATIO of
+ * their target, since the system is saturated then whatever the latency.
+ */
+public class SaturationSearch {
+	public static final double SUSTAINED_RATIO = 0.95;
+
+	/**
+	 * The result of the run at one target
+	 */
+	static class Step {
+		/**
+		 * Operations per second of each client
+		 */
+		int target;
+
+		/**
+		 * Operations per second of all clients together
+		 */
+		double throughput;
+
+		/**
+		 * Latency at the SLO percentile. Unit: us
+		 */
+		double latency;
+
+		boolean sustained;
+	}
+
+	private final List<Step> curve = new ArrayList<Step>();
+
+	public void execute() {
+		Config config = Config.getConfig();
+		boolean binary = false;
+		if (config.saturation_search.equals("binary")) {
+			binary = true;
+		} else if (!config.saturation_search.equals("step")) {
+			System.out.println("Unknown saturation search \""
+					+ config.saturation_search + "\", use step or binary");
+			System.exit(0);
+		}
+		if (config.measurement_type.compareTo("histogram") != 0
+				&& config.measurement_type.compareTo("hdrhistogram") != 0) {
+			System.out
+					.println("The saturation search needs measurementtype=histogram or hdrhistogram");
+			System.exit(0);
+		}
+		if (!config.do_transactions || config.saturation_start <= 0) {
+			System.out
+					.println("The saturation search needs the transaction phase and saturationstart > 0");
+			System.exit(0);
+		}
+
+		int step = config.saturation_step > 0 ? config.saturation_step
+				: config.saturation_start;
+		int max = config.saturation_max;
+		int good = 0;
+		int bad = 0;
+
+		int target = config.saturation_start;
+		while (true) {
+			if (!run(target).sustained) {
+				bad = target;
+				break;
+			}
+			good = target;
+			if (max > 0 && target >= max)
+				break;
+			long next = binary ? 2L * target : (long) target + step;
+			if (max > 0)
+				next = Math.min(next, max);
+			target = (int) Math.min(next, Integer.MAX_VALUE);
+		}
+
+		if (binary && bad > 0) {
+			int precision = config.saturation_precision > 0 ? config.saturation_precision
+					: Math.max(1, config.saturation_start / 20);
+			while (bad - good > precision) {
+				int mid = good + (bad - good) / 2;
+				if (run(mid).sustained)
+					good = mid;
+				else
+					bad = mid;
+			}
+		}
+
+		try {
+			export();
+		} catch (IOException e) {
+			System.err.println("Could not export the saturation search, error: "
+					+ e.getMessage());
+			e.printStackTrace();
+		}
+		MasterClient.getMasterClient().shutdown();
+	}
+
+	/**
+	 * Run the test once with the given target of each client.
+	 */
+	private Step run(int target) {
+		Config config = Config.getConfig();
+		config.target = target;
+		System.out.println("  ===Saturation search: target " + target
+				+ " ops/sec per client");
+
+		MasterClient client = MasterClient.getMasterClient();
+		Measurements.reload();
+		client.init();
+		client.setupSlaves();
+		client.execute();
+
+		Step s = new Step();
+		s.target = target;
+		s.throughput = client.getThroughput();
+		s.latency = Measurements.getMeasurements().getPercentileLatency(
+				config.slo_operation, config.slo_percentile / 100.0);
+		if (s.latency < 0) {
+			System.out.println("No latency measured for "
+					+ (config.slo_operation == null ? "any operation"
+							: config.slo_operation));
+			System.exit(0);
+		}
+		s.sustained = s.throughput >= SUSTAINED_RATIO * target
+				* config.client_count
+				&& (config.slo_latency <= 0 || s.latency <= config.slo_latency * 1000);
+		curve.add(s);
+
+		System.out.println(String.format(
+				"  ===Saturation search: target %d, %.1f ops/sec, %sth percentile %.3f ms, %s",
+				target, s.throughput, formatPercentile(), s.latency / 1000,
+				s.sustained ? "sustained" : "violated"));
+		return s;
+	}
+
+	static String formatPercentile() {
+		double p = Config.getConfig().slo_percentile;
+		return p == Math.floor(p) ? Integer.toString((int) p) : Double
+				.toString(p);
+	}
+
+	/**
+	 * Exports the curve to the destination of the measurements.
+	 */
+	private void export() throws IOException {
+		Config config = Config.getConfig();
+		MeasurementsExporter exporter = null;
+		OutputStream out = null;
+		try {
+			if (config.export_file == null) {
+				out = System.out;
+			} else {
+				out = new FileOutputStream(new File(
+						Prop.getExportedResultsFolder(), config.export_file),
+						true);
+			}
+			try {
+				exporter = (MeasurementsExporter) Class.forName(config.exporter)
+						.getConstructor(OutputStream.class).newInstance(out);
+			} catch (Exception e) {
+				System.err.println("Could not find exporter " + config.exporter
+						+ ", will use default text reporter.");
+				exporter = new TextMeasurementsExporter(out);
+			}
+
+			List<Step> sorted = new ArrayList<Step>(curve);
+			Collections.sort(sorted, new Comparator<Step>() {
+				public int compare(Step a, Step b) {
+					return a.target < b.target ? -1 : (a.target == b.target ? 0
+							: 1);
+				}
+			});
+
+			String latencyname = formatPercentile() + "thPercentileLatency(ms)";
+			Step best = null;
+			for (Step s : sorted) {
+				String metric = "SATURATION Target=" + s.target;
+				exporter.write(metric, "Throughput(ops/sec)", s.throughput);
+				exporter.write(metric, latencyname, s.latency / 1000);
+				exporter.write(metric, "Sustained", Boolean.toString(s.sustained));
+				if (s.sustained
+						&& (best == null || s.throughput > best.throughput))
+					best = s;
+			}
+			if (best != null) {
+				exporter.write("SATURATION", "MaxTarget(ops/sec)", best.target);
+				exporter.write("SATURATION", "MaxThroughput(ops/sec)",
+						best.throughput);
+				exporter.write("SATURATION", latencyname, best.latency / 1000);
+			} else {
+				exporter.write("SATURATION", "MaxThroughput(ops/sec)",
+						"not sustained at saturationstart");
+			}
+		} finally {
+			if (exporter != null)
+				exporter.close();
+			if (out != null && out != System.out)
+				out.close();
+		}
+	}
+}
@@ -71,6 +71,41 @@ public class SlaveClient implements SlaveRMIInterface {
 		return 0;
 	}
 
+	public boolean isReady() {
+		if (lt == null)
+			return false;
+		ClientThreadPool pool = lt.getThreadPool();
+		return pool != null && pool.isReady();
+	}
+
+	public void start(long startmillis) {
+		if (lt != null && lt.getThreadPool() != null)
+			lt.getThreadPool().start(startmillis);
+	}
+
+	public void changeThroughput(int target) {
+		Config.getConfig().target = target;
+		if (lt != null)
+			lt.setTarget(target);
+	}
+
+	public void changeThreadCount(int count) {
+		if (lt != null)
+			lt.setActiveThreads(count);
+	}
+
+	public void changeWorkingSet(int workingset) {
+		Config.getConfig().working_set = workingset;
+		if (lt != null)
+			lt.reconfigure();
+	}
+
+	public void changeItemCount(int itemcount) {
+		Config.getConfig().record_count = itemcount;
+		if (lt != null)
+			lt.reconfigure();
+	}
+
 	public Thread.State getStatus() {
 		if (lt == null)
 			return null;
@@ -9,8 +9,10 @@ import java.io.OutputStreamWriter;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.Registry;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import com.yahoo.ycsb.Config;
@@ -29,12 +31,63 @@ import com.yahoo.ycsb.rmi.SlaveRMIInterface;
  * 
  */
 public class StatusThread extends Thread {
+	/**
+	 * Time between the moment every client is ready and the common start, so
+	 * that every slave is told about it in time. The clocks of the clients
+	 * have to be synchronized (e.g. NTP) for them to start together. Unit: ms
+	 */
+	public static final long START_DELAY = 1000;
+
+	/**
+	 * Share of the operations of a status interval that have to start late
+	 * for it to count as behind schedule, so that the odd late wake-up of a
+	 * thread does not flag an interval in which the client kept up with the
+	 * target rate
+	 */
+	static final double BEHIND_SHARE = 0.01;
+
 	HashMap<String, Registry> rmiClients;
 	LoadThread lt;
 	String _label;
 	boolean _standardstatus;
 	long _printstatsinterval;
 
+	/**
+	 * Operations per second of all clients in the measured phases
+	 */
+	private volatile double throughput;
+
+	/**
+	 * With a rate profile: per status interval the time since the start
+	 * (s), the target (ops/sec), the throughput (ops/sec) and the latency at
+	 * the SLO percentile (us) of all clients
+	 */
+	private final List<double[]> profilesamples = new ArrayList<double[]>();
+
+	/**
+	 * End of the last status interval. Unit: ns (System.nanoTime)
+	 */
+	private long lastsummary;
+
+	/**
+	 * Time the workers had waited for the producers at the end of the last
+	 * status interval. Unit: ns
+	 */
+	private long lastproducerwait;
+
+	/**
+	 * Operations of the schedule of the target, late ones and their lag
+	 * (ns) at the end of the last status interval
+	 */
+	private long lastscheduled;
+	private long lastlate;
+	private long lastlag;
+
+	/**
+	 * Number of status intervals in which the schedule fell behind
+	 */
+	private int behindintervals;
+
 	public StatusThread(LoadThread lt, HashMap<String, Registry> rmiClients) {
 		this.rmiClients = rmiClients;
 		this.lt = lt;
@@ -52,6 +105,7 @@ public class StatusThread extends Thread {
 		long en = System.currentTimeMillis();
 		boolean alldone;
 		lt.start();
+		st = startTogether();
 
 		do {
 			alldone = true;
@@ -90,7 +144,7 @@ public class StatusThread extends Thread {
 			if (!alldone) {
 				en = System.currentTimeMillis();
 				System.out.println(_label + " " + ((en - st) / 1000) + " sec: "
-						+ Measurements.getMeasurements().getSummary() + "\n");
+						+ summarize(en - st) + "\n");
 			}
 
 			try {
@@ -115,6 +169,160 @@ public class StatusThread extends Thread {
 		}
 	}
 
+	/**
+	 * Start barrier: waits until the local threads and the threads of every
+	 * slave are connected and initialized, then lets all of them begin at the
+	 * same time.
+	 * 
+	 * @return the common start time (System.currentTimeMillis)
+	 */
+	private long startTogether() {
+		long deadline = System.currentTimeMillis()
+				+ Config.getConfig().start_timeout * 1000L;
+		while (!isEveryoneReady()) {
+			if (System.currentTimeMillis() > deadline) {
+				System.out.println("Not every client is ready after "
+						+ Config.getConfig().start_timeout
+						+ " s, starting the ones that are");
+				break;
+			}
+			try {
+				sleep(100);
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+
+		long startmillis = System.currentTimeMillis() + START_DELAY;
+		if (rmiClients != null) {
+			for (String key : rmiClients.keySet()) {
+				try {
+					((SlaveRMIInterface) rmiClients.get(key).lookup(
+							SlaveClient.REGISTRY_NAME)).start(startmillis);
+				} catch (NotBoundException e) {
+					System.out.println("Could not start " + key
+							+ " because slave was not bound");
+				} catch (RemoteException e) {
+					System.out.println("Could not start " + key
+							+ " because slave is not running");
+				}
+			}
+		}
+		if (lt.getThreadPool() != null)
+			lt.getThreadPool().start(startmillis);
+
+		try {
+			sleep(Math.max(0, startmillis - System.currentTimeMillis()));
+		} catch (InterruptedException e) {
+		}
+		return startmillis;
+	}
+
+	/**
+	 * @return the summary of the last status interval, with the mean target
+	 *         of all clients during it when there is one, a flag if this
+	 *         client fell behind its schedule, and the lag of the producers
+	 *         of this client when they pregenerate the operations
+	 */
+	private String summarize(long elapsed) {
+		Measurements measurements = Measurements.getMeasurements();
+		ClientThreadPool pool = lt.getThreadPool();
+		long now = System.nanoTime();
+		long from = lastsummary != 0 ? lastsummary : now
+				- _printstatsinterval * 1000000000L;
+		lastsummary = now;
+		double target = pool == null ? 0 : pool.getMeanTarget(from, now)
+				* Config.getConfig().client_count;
+		if (target <= 0)
+			return measurements.getSummary()
+					+ summarizeProducers(pool, now - from);
+
+		synchronized (measurements) {
+			if (pool.hasRateProfile() && elapsed > 0) {
+				// reported against the target of the moment rather than of
+				// the run, which it may be far from
+				profilesamples.add(new double[] {
+						elapsed / 1000.0,
+						target,
+						(double) measurements.getPartialOperations()
+								/ _printstatsinterval,
+						measurements.getPartialPercentileLatency(Config
+								.getConfig().slo_percentile / 100.0) });
+			}
+			return measurements.getSummary()
+					+ String.format(" target=%.0f ops/sec", target)
+					+ summarizeSchedule(pool)
+					+ summarizeProducers(pool, now - from);
+		}
+	}
+
+	/**
+	 * @return the share of the operations of the interval that started late,
+	 *         i.e. after the intended start of the next one of their worker,
+	 *         and the mean lag of all of them, empty if the schedule was kept
+	 *         (fewer than BEHIND_SHARE late)
+	 */
+	private String summarizeSchedule(ClientThreadPool pool) {
+		long scheduled = pool.getScheduledOperations();
+		long late = pool.getLateOperations();
+		long lag = pool.getScheduleLagNanos();
+		long ops = scheduled - lastscheduled;
+		long lateops = late - lastlate;
+		long lagnanos = lag - lastlag;
+		lastscheduled = scheduled;
+		lastlate = late;
+		lastlag = lag;
+		if (lateops <= 0 || lateops < BEHIND_SHARE * ops)
+			return "";
+		behindintervals++;
+		return String.format(" BEHIND SCHEDULE late=%.1f%% mean-lag=%.2f ms",
+				100.0 * lateops / ops, lagnanos / 1e6 / ops);
+	}
+
+	/**
+	 * @return the share of the interval the active workers waited for the
+	 *         producers, and how full their rings are, empty if the workers
+	 *         generate their own operations
+	 */
+	private String summarizeProducers(ClientThreadPool pool, long interval) {
+		if (pool == null || !pool.isPregenerating())
+			return "";
+		long wait = pool.getProducerWaitNanos();
+		double share = interval <= 0 ? 0 : (double) (wait - lastproducerwait)
+				/ ((double) interval * pool.getActiveThreads());
+		lastproducerwait = wait;
+		return String.format(" producer-wait=%.1f%% ring-fill=%.0f%%",
+				100 * share, 100 * pool.getRingFill());
+	}
+
+	private boolean isEveryoneReady() {
+		if (lt.getState() != Thread.State.TERMINATED
+				&& (lt.getThreadPool() == null || !lt.getThreadPool()
+						.isReady()))
+			return false;
+		if (rmiClients != null) {
+			for (String key : rmiClients.keySet()) {
+				try {
+					if (!((SlaveRMIInterface) rmiClients.get(key).lookup(
+							SlaveClient.REGISTRY_NAME)).isReady())
+						return false;
+				} catch (NotBoundException e) {
+					// not waited for, the stats loop reports it
+				} catch (RemoteException e) {
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return operations per second of all clients in the measured phases,
+	 *         once the test is over
+	 */
+	public double getThroughput() {
+		return throughput;
+	}
+
 	/**
 	 * Exports the measurements to either sysout or a file using the exporter
 	 * loaded from conf.
@@ -154,8 +362,38 @@ public class StatusThread extends Thread {
 			double throughput = 1000.0 * ((double) opcount)
 					/ ((double) runtime);
 			exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
+			this.throughput = throughput;
+
+			ClientThreadPool pool = lt.getThreadPool();
+			long measuredtime = pool == null ? 0 : pool.getMeasuredRunTime();
+			if (measuredtime > 0) {
+				// without the ramp-up and warm-up phases and the time the
+				// status thread takes to notice the end
+				this.throughput = 1000.0 * Measurements.getMeasurements()
+						.getMeasuredOperations() / measuredtime;
+			}
+			if (pool != null && pool.hasUnmeasuredPhases()) {
+				exporter.write("OVERALL", "MeasuredRunTime(ms)", measuredtime);
+				exporter.write("OVERALL", "MeasuredThroughput(ops/sec)",
+						measuredtime > 0 ? this.throughput : 0);
+			}
+
+			String latencyname = SaturationSearch.formatPercentile()
+					+ "thPercentileLatency(ms)";
+			for (double[] sample : profilesamples) {
+				String metric = String.format("RATEPROFILE Time(s)=%.0f",
+						sample[0]);
+				exporter.write(metric, "Target(ops/sec)", sample[1]);
+				exporter.write(metric, "Throughput(ops/sec)", sample[2]);
+				exporter.write(metric, latencyname, sample[3] < 0 ? 0
+						: sample[3] / 1000);
+			}
 
 			Measurements.getMeasurements().exportMeasurements(exporter);
+			if (lt.getThreadPool() != null)
+				lt.getThreadPool().exportMeasurements(exporter);
+			if (behindintervals > 0)
+				exporter.write("SCHEDULE", "BehindIntervals", behindintervals);
 
 			//by zx,增加两空行
 			BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out));
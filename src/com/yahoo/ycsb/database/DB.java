@@ -18,8 +18,10 @@
 package com.yahoo.ycsb.database;
 
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 
 import com.yahoo.ycsb.DataStore;
 
@@ -129,4 +131,60 @@ public abstract class DB extends DataStore{
 	 *         description for a discussion of error codes.
 	 */
 	public abstract int delete(String table, String key);
+
+	/**
+	 * Insert several records at once, e.g. with one batch statement. Used by
+	 * the bulk loader. The default inserts the records one by one.
+	 * 
+	 * @param table
+	 *            The name of the table
+	 * @param records
+	 *            record key to field/value pairs of the records to insert
+	 * @return Zero on success, the first non-zero error code of the records
+	 *         otherwise
+	 */
+	public int insertAll(String table,
+			Map<String, HashMap<String, String>> records) {
+		int res = 0;
+		for (Map.Entry<String, HashMap<String, String>> e : records.entrySet()) {
+			int r = insert(table, e.getKey(), e.getValue());
+			if (res == 0)
+				res = r;
+		}
+		return res;
+	}
+
+	/*
+	 * Asynchronous variants. Each returns a future of the return code of the
+	 * blocking method. The defaults run the blocking method and return a
+	 * completed future; bindings with an asynchronous client override them so
+	 * several operations can be in flight on one connection.
+	 */
+
+	public CompletableFuture<Integer> readAsync(String table, String key,
+			Set<String> fields, HashMap<String, String> result) {
+		return CompletableFuture.completedFuture(read(table, key, fields,
+				result));
+	}
+
+	public CompletableFuture<Integer> scanAsync(String table, String startkey,
+			int recordcount, Set<String> fields,
+			Vector<HashMap<String, String>> result) {
+		return CompletableFuture.completedFuture(scan(table, startkey,
+				recordcount, fields, result));
+	}
+
+	public CompletableFuture<Integer> updateAsync(String table, String key,
+			HashMap<String, String> values) {
+		return CompletableFuture.completedFuture(update(table, key, values));
+	}
+
+	public CompletableFuture<Integer> insertAsync(String table, String key,
+			HashMap<String, String> values) {
+		return CompletableFuture.completedFuture(insert(table, key, values));
+	}
+
+	public CompletableFuture<Integer> deleteAsync(String table, String key) {
+		return CompletableFuture.completedFuture(delete(table, key));
+	}
 }
@@ -18,9 +18,12 @@
 package com.yahoo.ycsb.database;
 
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 import com.yahoo.ycsb.DataStoreException;
 import com.yahoo.ycsb.measurements.Measurements;
@@ -86,7 +89,8 @@ public class DBWrapper extends DB {
 		long st = System.nanoTime();
 		int res = _db.read(table, key, fields, result);
 		long en = System.nanoTime();
-		_measurements.measure("READ", (int) ((en - st) / 1000));
+		_measurements.measureNanos("READ", en - st);
+		_measurements.measureIntended("READ", en);
 		_measurements.reportReturnCode("READ", res);
 		return res;
 	}
@@ -113,7 +117,8 @@ public class DBWrapper extends DB {
 		long st = System.nanoTime();
 		int res = _db.scan(table, startkey, recordcount, fields, result);
 		long en = System.nanoTime();
-		_measurements.measure("SCAN", (int) ((en - st) / 1000));
+		_measurements.measureNanos("SCAN", en - st);
+		_measurements.measureIntended("SCAN", en);
 		_measurements.reportReturnCode("SCAN", res);
 		return res;
 	}
@@ -135,7 +140,8 @@ public class DBWrapper extends DB {
 		long st = System.nanoTime();
 		int res = _db.update(table, key, values);
 		long en = System.nanoTime();
-		_measurements.measure("UPDATE", (int) ((en - st) / 1000));
+		_measurements.measureNanos("UPDATE", en - st);
+		_measurements.measureIntended("UPDATE", en);
 		_measurements.reportReturnCode("UPDATE", res);
 		return res;
 	}
@@ -157,11 +163,26 @@ public class DBWrapper extends DB {
 		long st = System.nanoTime();
 		int res = _db.insert(table, key, values);
 		long en = System.nanoTime();
-		_measurements.measure("INSERT", (int) ((en - st) / 1000));
+		_measurements.measureNanos("INSERT", en - st);
+		_measurements.measureIntended("INSERT", en);
 		_measurements.reportReturnCode("INSERT", res);
 		return res;
 	}
 
+	/**
+	 * Inserts several records at once. Measured as one operation.
+	 */
+	public int insertAll(String table,
+			Map<String, HashMap<String, String>> records) {
+		long st = System.nanoTime();
+		int res = _db.insertAll(table, records);
+		long en = System.nanoTime();
+		_measurements.measureNanos("INSERTALL", en - st);
+		_measurements.measureIntended("INSERTALL", en);
+		_measurements.reportReturnCode("INSERTALL", res);
+		return res;
+	}
+
 	/**
 	 * Delete a record from the database.
 	 * 
@@ -175,8 +196,71 @@ public class DBWrapper extends DB {
 		long st = System.nanoTime();
 		int res = _db.delete(table, key);
 		long en = System.nanoTime();
-		_measurements.measure("DELETE", (int) ((en - st) / 1000));
+		_measurements.measureNanos("DELETE", en - st);
+		_measurements.measureIntended("DELETE", en);
 		_measurements.reportReturnCode("DELETE", res);
 		return res;
 	}
+
+	/**
+	 * Records the latency of an asynchronous operation when it completes,
+	 * measured from the time it was issued, and from its intended start if
+	 * the issuing thread follows a schedule.
+	 */
+	class AsyncMeasurement implements BiConsumer<Integer, Throwable> {
+		String op;
+		long st;
+		long intended;
+		boolean scheduled;
+
+		AsyncMeasurement(String op, long st) {
+			this.op = op;
+			this.st = st;
+			this.scheduled = _measurements.hasIntendedStart();
+			this.intended = _measurements.getIntendedStart();
+		}
+
+		public void accept(Integer res, Throwable t) {
+			long en = System.nanoTime();
+			_measurements.measureNanos(op, en - st);
+			if (scheduled)
+				_measurements.measureIntended(op, intended, en);
+			_measurements.reportReturnCode(op, t == null ? res : -1);
+		}
+	}
+
+	public CompletableFuture<Integer> readAsync(String table, String key,
+			Set<String> fields, HashMap<String, String> result) {
+		long st = System.nanoTime();
+		return _db.readAsync(table, key, fields, result).whenComplete(
+				new AsyncMeasurement("READ", st));
+	}
+
+	public CompletableFuture<Integer> scanAsync(String table, String startkey,
+			int recordcount, Set<String> fields,
+			Vector<HashMap<String, String>> result) {
+		long st = System.nanoTime();
+		return _db.scanAsync(table, startkey, recordcount, fields, result)
+				.whenComplete(new AsyncMeasurement("SCAN", st));
+	}
+
+	public CompletableFuture<Integer> updateAsync(String table, String key,
+			HashMap<String, String> values) {
+		long st = System.nanoTime();
+		return _db.updateAsync(table, key, values).whenComplete(
+				new AsyncMeasurement("UPDATE", st));
+	}
+
+	public CompletableFuture<Integer> insertAsync(String table, String key,
+			HashMap<String, String> values) {
+		long st = System.nanoTime();
+		return _db.insertAsync(table, key, values).whenComplete(
+				new AsyncMeasurement("INSERT", st));
+	}
+
+	public CompletableFuture<Integer> deleteAsync(String table, String key) {
+		long st = System.nanoTime();
+		return _db.deleteAsync(table, key).whenComplete(
+				new AsyncMeasurement("DELETE", st));
+	}
 }
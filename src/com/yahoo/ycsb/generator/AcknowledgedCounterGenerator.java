@@ -0,0 +1,137 @@
+package com.yahoo.ycsb.generator;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BiConsumer;
+
+/**
+ * A counter of inserted records. nextInt() hands out the number of the next
+ * record to insert, as CounterGenerator does, but lastInt() only counts a
+ * record once its insert and the inserts of all records before it have
+ * completed, i.e. have been acknowledged. Generators of existing records
+ * bound by lastInt() therefore never choose a record that is not written
+ * yet.
+ *
+ * The acknowledgements that arrive out of order are kept in a sliding window
+ * until the records before them are acknowledged too. Every thread that
+ * acknowledges a record advances the contiguous prefix as far as it can, so
+ * the counter takes no lock.
+ *
+ * advance() skips records that exist without being handed out, e.g. loaded
+ * beyond the record count the counter started at.
+ */
+public class AcknowledgedCounterGenerator extends CounterGenerator {
+	/**
+	 * Inserts that can be in flight at once, a power of 2. An acknowledgement
+	 * this far ahead of the prefix waits for it to advance.
+	 */
+	static final int WINDOW = 1 << 20;
+
+	private static final int MASK = WINDOW - 1;
+
+	/**
+	 * Slot of every record in the window, holding the number of the record
+	 * once it is acknowledged
+	 */
+	private final AtomicIntegerArray window = new AtomicIntegerArray(WINDOW);
+
+	/**
+	 * The last record of the acknowledged prefix
+	 */
+	private final AtomicInteger limit;
+
+	/**
+	 * Last record of every range skipped by advance(), by its first record
+	 */
+	private final ConcurrentHashMap<Integer, Integer> skipped = new ConcurrentHashMap<Integer, Integer>();
+
+	/**
+	 * Create a counter that starts at countstart. The records before it are
+	 * taken as acknowledged.
+	 */
+	public AcknowledgedCounterGenerator(int countstart) {
+		super(countstart);
+		limit = new AtomicInteger(countstart - 1);
+		// no slot may hold the number of a record the window has not reached
+		for (int i = 0; i < WINDOW; i++)
+			window.set(i, countstart - 1);
+	}
+
+	/**
+	 * Acknowledge the insert of a record handed out by nextInt(), whether it
+	 * succeeded or not. Every record has to be acknowledged exactly once, or
+	 * the records after it are never counted.
+	 */
+	public void acknowledge(int value) {
+		while (value - limit.get() > WINDOW)
+			Thread.yield();
+		window.set(value & MASK, value);
+		advanceLimit();
+	}
+
+	/**
+	 * Moves the prefix past the records acknowledged or skipped after it.
+	 * Whoever acknowledges the last record of a gap does so.
+	 */
+	private void advanceLimit() {
+		int last;
+		Integer end;
+		while (true) {
+			last = limit.get();
+			if (window.get((last + 1) & MASK) == last + 1)
+				limit.compareAndSet(last, last + 1);
+			else if (!skipped.isEmpty()
+					&& (end = skipped.get(last + 1)) != null) {
+				if (limit.compareAndSet(last, end))
+					skipped.remove(last + 1);
+			} else
+				return;
+		}
+	}
+
+	/**
+	 * Take the records up to count - 1 as acknowledged, and hand out count
+	 * next, unless the counter has already passed it. The records handed out
+	 * before still have to be acknowledged for the prefix to reach count - 1.
+	 */
+	public void advance(int count) {
+		int next;
+		while ((next = counter.get()) < count) {
+			if (counter.compareAndSet(next, count)) {
+				skipped.put(next, count - 1);
+				// the prefix may already wait at the first skipped record
+				advanceLimit();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Acknowledge the insert of a record handed out by nextInt() when the
+	 * asynchronous insert completes, right away if there is no future.
+	 *
+	 * @return the future of the insert, completed after the acknowledgement
+	 */
+	public <T> CompletableFuture<T> acknowledge(CompletableFuture<T> insert,
+			final int value) {
+		if (insert == null) {
+			acknowledge(value);
+			return null;
+		}
+		return insert.whenComplete(new BiConsumer<T, Throwable>() {
+			public void accept(T res, Throwable t) {
+				acknowledge(value);
+			}
+		});
+	}
+
+	/**
+	 * The last record of the contiguous prefix of acknowledged records
+	 */
+	@Override
+	public int lastInt() {
+		return limit.get();
+	}
+}
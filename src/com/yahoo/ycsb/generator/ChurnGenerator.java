@@ -17,16 +17,15 @@
 
 package com.yahoo.ycsb.generator;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Generate a popularity distribution of items, skewed to favor recent items
  * significantly more than older items.
  */
 public class ChurnGenerator extends IntegerGenerator {
-	int recordcount;
-	Random _r;
-	int[] workingset;
+	volatile int recordcount;
+	volatile int[] workingset;
 	int workingsetsize;
 	int workingsetmaxsize;
 	int workingsetdelta;
@@ -34,7 +33,6 @@ public class ChurnGenerator extends IntegerGenerator {
 	
 
 	public ChurnGenerator(int workingsetmaxsize, int workingsetdelta, int recordcount) {
-		_r = new Random();
 		this.workingset = new int[workingsetmaxsize];
 		this.workingsetsize = 0;
 		this.workingsetmaxsize = workingsetmaxsize;
@@ -49,26 +47,42 @@ public class ChurnGenerator extends IntegerGenerator {
 	 * items most recently returned by the basis generator.
 	 */
 	public int nextInt() {
-		while (workingsetsize < workingsetmaxsize) {
-			workingset[workingsetsize] = _r.nextInt(recordcount);
+		// the working set may be resized by another thread meanwhile
+		int[] ws = workingset;
+		int records = recordcount;
+		SplittableRandom _r = RandomStream.get();
+		while (workingsetsize < ws.length) {
+			ws[workingsetsize] = _r.nextInt(records);
 			workingsetsize++;
 		}
 		if (ops > workingsetdelta) {
 			ops = 0;
-			int index = _r.nextInt(workingsetsize);
-			int next_val = _r.nextInt(recordcount);
-			workingset[index] = next_val;
+			int index = _r.nextInt(ws.length);
+			int next_val = _r.nextInt(records);
+			ws[index] = next_val;
 		}
 		ops++;
-		return workingset[_r.nextInt(workingsetmaxsize)];
+		return ws[_r.nextInt(ws.length)];
 	}
 	
 	/**
-	 * 
-	 * @param args
+	 * Change the size of the working set and the number of records while the
+	 * generator is in use. The items of the working set that fit into the new
+	 * size and the record count are kept, the others are chosen anew.
 	 */
-	public void resizeWorkingSet() {
-		
+	public synchronized void resizeWorkingSet(int workingsetmaxsize,
+			int recordcount) {
+		int[] ws = new int[workingsetmaxsize];
+		int kept = 0;
+		for (int i = 0; i < Math.min(workingsetsize, workingset.length)
+				&& kept < workingsetmaxsize; i++) {
+			if (workingset[i] < recordcount)
+				ws[kept++] = workingset[i];
+		}
+		this.recordcount = recordcount;
+		this.workingsetmaxsize = workingsetmaxsize;
+		this.workingsetsize = kept;
+		this.workingset = ws;
 	}
 
 	public static void main(String[] args) {
@@ -17,18 +17,20 @@
 
 package com.yahoo.ycsb.generator;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Generates a sequence of integers 0, 1, ...
+ * Generates a sequence of integers 0, 1, ... The counter is shared by all
+ * client threads, so it is lock-free.
  */
 public class CounterGenerator extends IntegerGenerator {
-	int counter;
+	final AtomicInteger counter;
 
 	/**
 	 * Create a counter that starts at countstart
 	 */
 	public CounterGenerator(int countstart) {
-		counter = countstart;
-		setLastInt(countstart - 1);
+		counter = new AtomicInteger(countstart);
 	}
 
 	/**
@@ -36,11 +38,20 @@ public class CounterGenerator extends IntegerGenerator {
 	 * as an int. Default is to return -1, which is appropriate for generators
 	 * that do not return numeric values.
 	 */
-	public synchronized int nextInt() {
-		int lastint = counter;
-		counter++;
-		setLastInt(lastint);
-		return lastint;
+	public int nextInt() {
+		return counter.getAndIncrement();
+	}
+
+	/**
+	 * The last value handed out by any thread
+	 */
+	@Override
+	public int lastInt() {
+		return counter.get() - 1;
 	}
 
+	@Override
+	public String lastString() {
+		return "" + lastInt();
+	}
 }
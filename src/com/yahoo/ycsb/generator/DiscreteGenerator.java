@@ -17,69 +17,129 @@
 
 package com.yahoo.ycsb.generator;
 
-import java.util.Vector;
-import java.util.Random;
-
 import com.yahoo.ycsb.WorkloadException;
 
 /**
  * Generates a distribution by choosing from a discrete set of values.
+ * 
+ * A value is chosen in constant time from an alias table (Vose's method),
+ * which is built when the values change rather than summed up on every call.
+ * The values may be any objects, e.g. the constants of an enum the caller
+ * dispatches on without comparing strings. The weights may be changed while
+ * the generator is in use, also by another thread: every change builds a new
+ * table and publishes it at once.
  */
 public class DiscreteGenerator extends Generator
 {
-	class Pair
+	/**
+	 * The alias table of a set of weighted values. Not changed once built.
+	 */
+	static class Table
 	{
-		public double _weight;
-		public String _value;
+		final Object[] _values;
+		final double[] _weights;
+
+		/**
+		 * Probability of choosing column i itself rather than its alias
+		 */
+		final double[] _prob;
+		final int[] _alias;
 
-		Pair(double weight, String value)
+		Table(Object[] values, double[] weights)
 		{
-			_weight=weight;
-			_value=value;
+			int n=values.length;
+			_values=values;
+			_weights=weights;
+			_prob=new double[n];
+			_alias=new int[n];
+
+			double sum=0;
+			for (double w : weights)
+			{
+				sum+=w;
+			}
+			if (sum<=0)
+			{
+				return;
+			}
+
+			// columns with less than the mean weight are topped up by one alias
+			double[] scaled=new double[n];
+			int[] small=new int[n];
+			int[] large=new int[n];
+			int smalls=0,larges=0;
+			for (int i=0; i<n; i++)
+			{
+				scaled[i]=weights[i]*n/sum;
+				if (scaled[i]<1)
+					small[smalls++]=i;
+				else
+					large[larges++]=i;
+			}
+			while (smalls>0 && larges>0)
+			{
+				int s=small[--smalls];
+				int l=large[--larges];
+				_prob[s]=scaled[s];
+				_alias[s]=l;
+				scaled[l]=scaled[l]+scaled[s]-1;
+				if (scaled[l]<1)
+					small[smalls++]=l;
+				else
+					large[larges++]=l;
+			}
+			// what is left is 1 up to rounding
+			while (larges>0)
+			{
+				int l=large[--larges];
+				_prob[l]=1;
+				_alias[l]=l;
+			}
+			while (smalls>0)
+			{
+				int s=small[--smalls];
+				_prob[s]=1;
+				_alias[s]=s;
+			}
 		}
 	}
 
-	Vector<Pair> _values;
-	Random _random;
-	String _lastvalue;
+	volatile Table _table;
+	Object _lastvalue;
 
 	public DiscreteGenerator()
 	{
-		_values=new Vector<Pair>();
-		_random=new Random();
+		_table=new Table(new Object[0],new double[0]);
 		_lastvalue=null;
 	}
 
 	/**
-	 * Generate the next string in the distribution.
+	 * Generate the next value in the distribution.
 	 */
-	public String nextString()
+	public Object nextValue()
 	{
-		double sum=0;
-
-		for (Pair p : _values)
+		Table t=_table;
+		int n=t._values.length;
+		if (n==0)
 		{
-			sum+=p._weight;
-		}
-
-		double val=_random.nextDouble();
-
-		for (Pair p : _values)
-		{
-			if (val<p._weight/sum)
-			{
-				return p._value;
-			}
-
-			val-=p._weight/sum;
+			System.out.println("No values to choose from.");
+			System.exit(0);
 		}
 
-		//should never get here.
-		System.out.println("oops. should not get here.");
-
-		System.exit(0);
+		// one random number for the column and the choice within it
+		double x=RandomStream.get().nextDouble()*n;
+		int i=(int)x;
+		Object value=x-i<t._prob[i] ? t._values[i] : t._values[t._alias[i]];
+		_lastvalue=value;
+		return value;
+	}
 
-		return null;
+	/**
+	 * Generate the next string in the distribution.
+	 */
+	public String nextString()
+	{
+		return String.valueOf(nextValue());
 	}
 
 	/**
@@ -102,14 +162,62 @@ public class DiscreteGenerator extends Generator
 	{
 		if (_lastvalue==null)
 		{
-			_lastvalue=nextString();
+			return nextString();
 		}
-		return _lastvalue;
+		return String.valueOf(_lastvalue);
 	}
 
 	public void addValue(double weight, String value)
 	{
-		_values.add(new Pair(weight,value));
+		addValue(weight,(Object)value);
 	}
 
+	/**
+	 * Add a value, or add to its weight if it is one of the values already.
+	 */
+	public synchronized void addValue(double weight, Object value)
+	{
+		setWeight(value,getWeight(value)+weight);
+	}
+
+	/**
+	 * Set the weight of a value, adding the value if it is new. A weight of 0
+	 * keeps the value from being chosen. Takes effect for the next choice of
+	 * every thread.
+	 */
+	public synchronized void setWeight(Object value, double weight)
+	{
+		Table t=_table;
+		int n=t._values.length;
+		int i=0;
+		while (i<n && !t._values[i].equals(value))
+		{
+			i++;
+		}
+		Object[] values=t._values;
+		double[] weights=new double[Math.max(n,i+1)];
+		System.arraycopy(t._weights,0,weights,0,n);
+		if (i==n)
+		{
+			values=new Object[n+1];
+			System.arraycopy(t._values,0,values,0,n);
+			values[n]=value;
+		}
+		weights[i]=weight;
+		_table=new Table(values,weights);
+	}
+
+	/**
+	 * @return the weight of a value, 0 if it is not one of the values
+	 */
+	public double getWeight(Object value)
+	{
+		Table t=_table;
+		for (int i=0; i<t._values.length; i++)
+		{
+			if (t._values[i].equals(value))
+				return t._weights[i];
+		}
+		return 0;
+	}
 }
@@ -0,0 +1,90 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Intervals drawn at random from recorded ones, e.g. the think times seen in a
+ * production trace, scaled to the requested mean.
+ */
+public class EmpiricalIntervalGenerator extends IntervalGenerator {
+	long[] samples;
+	double samplemean;
+
+	/**
+	 * @param samples
+	 *            the recorded intervals, shared read-only between generators.
+	 *            Unit: ns
+	 * @param meannanos
+	 *            mean the samples are scaled to, &lt;= 0 to use them as they
+	 *            are
+	 */
+	public EmpiricalIntervalGenerator(long[] samples, double meannanos) {
+		super(0);
+		this.samples = samples;
+		double sum = 0;
+		for (long s : samples)
+			sum += s;
+		samplemean = sum / samples.length;
+		mean = meannanos > 0 ? meannanos : samplemean;
+	}
+
+	public long nextNanos() {
+		long s = samples[RandomStream.get().nextInt(samples.length)];
+		long ret = samplemean > 0 ? (long) (s * mean / samplemean) : s;
+		setLastNanos(ret);
+		return ret;
+	}
+
+	/**
+	 * Read the recorded intervals of a file, one per line in ms (fractions
+	 * allowed). Empty lines and lines starting with # are skipped.
+	 * 
+	 * @return the intervals. Unit: ns
+	 */
+	public static long[] load(String filename) throws IOException {
+		ArrayList<Long> values = new ArrayList<Long>();
+		BufferedReader reader = new BufferedReader(new FileReader(filename));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#"))
+					continue;
+				try {
+					values.add((long) (Double.parseDouble(line) * 1000000));
+				} catch (NumberFormatException e) {
+					throw new IOException("Not an interval in " + filename
+							+ ": " + line);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		if (values.isEmpty())
+			throw new IOException("No intervals in " + filename);
+		long[] ret = new long[values.size()];
+		for (int i = 0; i < ret.length; i++)
+			ret[i] = Math.max(0, values.get(i));
+		return ret;
+	}
+}
@@ -0,0 +1,36 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * Exponentially distributed intervals, i.e. the events form a Poisson process:
+ * they arrive independently of each other, in bursts and gaps like the
+ * requests of many independent users.
+ */
+public class ExponentialIntervalGenerator extends IntervalGenerator {
+	public ExponentialIntervalGenerator(double meannanos) {
+		super(meannanos);
+	}
+
+	public long nextNanos() {
+		// inverse of the cumulative distribution; 1 - u is never 0
+		long ret = (long) (-mean * Math.log(1.0 - RandomStream.get().nextDouble()));
+		setLastNanos(ret);
+		return ret;
+	}
+}
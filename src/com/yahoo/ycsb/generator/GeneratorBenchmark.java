@@ -0,0 +1,137 @@
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Measures the cost of drawing keys and values as the number of threads
+ * grows. Compares the former generators, which held a java.util.Random
+ * (shared by all threads, as were Utils.random and the generators of callers
+ * without a thread state, or one per thread), with the generators drawing
+ * from the RandomStream of the calling thread.
+ *
+ * Usage: java com.yahoo.ycsb.generator.GeneratorBenchmark [opsperthread]
+ */
+public class GeneratorBenchmark {
+	static final int RECORDS = 1000000;
+	static final int VALUE_LENGTH = 100;
+
+	/**
+	 * The former UniformIntegerGenerator
+	 */
+	static class RandomUniform {
+		private Random random = new Random();
+
+		int nextInt() {
+			return random.nextInt(RECORDS);
+		}
+	}
+
+	/**
+	 * The former Utils.ASCIIString()
+	 */
+	static final Random legacyrandom = new Random();
+
+	static String legacyASCIIString(int length) {
+		int interval = '~' - ' ' + 1;
+
+		byte[] buf = new byte[length];
+		legacyrandom.nextBytes(buf);
+		for (int i = 0; i < length; i++) {
+			if (buf[i] < 0) {
+				buf[i] = (byte) ((-buf[i] % interval) + ' ');
+			} else {
+				buf[i] = (byte) ((buf[i] % interval) + ' ');
+			}
+		}
+		return new String(buf);
+	}
+
+	static final int SHARED_RANDOM = 0;
+	static final int THREAD_RANDOM = 1;
+	static final int STREAM = 2;
+	static final int LEGACY_VALUES = 3;
+	static final int STREAM_VALUES = 4;
+
+	/**
+	 * Keeps the results alive
+	 */
+	static volatile long sink;
+
+	/**
+	 * @return thread time spent per operation. Unit: ns
+	 */
+	static double run(int threadcount, final long opsperthread, final int mode)
+			throws InterruptedException {
+		final RandomUniform shared = new RandomUniform();
+		final UniformIntegerGenerator generator = new UniformIntegerGenerator(
+				0, RECORDS - 1);
+
+		Thread[] threads = new Thread[threadcount];
+		for (int i = 0; i < threadcount; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					RandomUniform own = new RandomUniform();
+					long sum = 0;
+					for (long n = 0; n < opsperthread; n++) {
+						if (mode == SHARED_RANDOM)
+							sum += shared.nextInt();
+						else if (mode == THREAD_RANDOM)
+							sum += own.nextInt();
+						else if (mode == STREAM)
+							sum += generator.nextInt();
+						else if (mode == LEGACY_VALUES)
+							sum += legacyASCIIString(VALUE_LENGTH).length();
+						else
+							sum += Utils.ASCIIString(VALUE_LENGTH).length();
+					}
+					sink += sum;
+				}
+			};
+		}
+
+		long st = System.nanoTime();
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+		long en = System.nanoTime();
+
+		return ((double) (en - st)) / opsperthread;
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		long opsperthread = 2000000;
+		if (args.length > 0)
+			opsperthread = Long.parseLong(args[0]);
+
+		// warm up every code path
+		for (int mode = SHARED_RANDOM; mode <= STREAM_VALUES; mode++)
+			run(4, opsperthread / 10, mode);
+
+		System.out.println("key choice (uniform over " + RECORDS + " records)");
+		System.out
+				.println("threads\tshared Random(ns/op)\tRandom per thread(ns/op)\tRandomStream(ns/op)");
+		for (int threads = 1; threads <= 64; threads *= 2) {
+			double shared = run(threads, opsperthread / threads + 1,
+					SHARED_RANDOM);
+			double own = run(threads, opsperthread / threads + 1,
+					THREAD_RANDOM);
+			double stream = run(threads, opsperthread / threads + 1, STREAM);
+			System.out.println(String.format("%d\t%.1f\t%.1f\t%.1f", threads,
+					shared, own, stream));
+		}
+
+		System.out.println("values (" + VALUE_LENGTH + " characters)");
+		System.out
+				.println("threads\tshared Random(ns/op)\tRandomStream(ns/op)");
+		for (int threads = 1; threads <= 64; threads *= 2) {
+			long ops = opsperthread / 10 / threads + 1;
+			double legacy = run(threads, ops, LEGACY_VALUES);
+			double stream = run(threads, ops, STREAM_VALUES);
+			System.out.println(String.format("%d\t%.1f\t%.1f", threads,
+					legacy, stream));
+		}
+	}
+}
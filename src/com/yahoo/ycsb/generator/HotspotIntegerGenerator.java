@@ -16,7 +16,8 @@
  */
 package com.yahoo.ycsb.generator;
 
-import java.util.Random;
+
+import java.util.SplittableRandom;
 
 import org.apache.log4j.Logger;
 
@@ -40,7 +41,6 @@ public class HotspotIntegerGenerator extends IntegerGenerator {
 	private final int coldInterval;
 	private final double hotsetFraction;
 	private final double hotOpnFraction;
-	private final Random random;
 
 	/*
 	 * 本次调用，热点区起始位置的偏移
@@ -82,7 +82,6 @@ public class HotspotIntegerGenerator extends IntegerGenerator {
 		this.hotInterval = (int) (interval * hotsetFraction);
 		this.coldInterval = interval - hotInterval;
 		this.hotOpnFraction = hotOpnFraction;
-		random = new Random();
 
 		/**
 		 * add by zx，最终选出的key值在原来key值基础上偏移一个随机数。一次测试中本值唯一，每次测试热点数据区不一样
@@ -97,6 +96,7 @@ public class HotspotIntegerGenerator extends IntegerGenerator {
 	@Override
 	public int nextInt() {
 		int value = 0;
+		SplittableRandom random = RandomStream.get();
 		if (random.nextDouble() < hotOpnFraction) {
 			// Choose a value from the hot set.
 			value = lowerBound + random.nextInt(hotInterval);
@@ -40,6 +40,22 @@ public abstract class IntegerGenerator extends Generator
 	 * Return the next value as an int. When overriding this method, be sure to call setLastString() properly, or the lastString() call won't work.
 	 */
 	public abstract int nextInt();
+
+	/**
+	 * Return the next value below itemcount, e.g. of the records that exist
+	 * so far of a key space sized for the inserts to come. Generators whose
+	 * values can reach itemcount draw from the first itemcount items; the
+	 * default draws again until the value is below itemcount, which it never
+	 * has to for a generator whose values stay below it.
+	 */
+	public int nextInt(int itemcount)
+	{
+		int value;
+		do {
+			value = nextInt();
+		} while (value >= itemcount);
+		return value;
+	}
 	
 	/**
 	 * Generate the next string in the distribution.
@@ -0,0 +1,72 @@
+/**                                                                                                                                                                                
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.                                                                                                                             
+ *                                                                                                                                                                                 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you                                                                                                             
+ * may not use this file except in compliance with the License. You                                                                                                                
+ * may obtain a copy of the License at                                                                                                                                             
+ *                                                                                                                                                                                 
+ * http://www.apache.org/licenses/LICENSE-2.0                                                                                                                                      
+ *                                                                                                                                                                                 
+ * Unless required by applicable law or agreed to in writing, software                                                                                                             
+ * distributed under the License is distributed on an "AS IS" BASIS,                                                                                                               
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or                                                                                                                 
+ * implied. See the License for the specific language governing                                                                                                                    
+ * permissions and limitations under the License. See accompanying                                                                                                                 
+ * LICENSE file.                                                                                                                                                                   
+ */
+
+package com.yahoo.ycsb.generator;
+
+/**
+ * Generates the time between two events, e.g. the think time of a client
+ * thread or the distance between two arrivals of an open-loop schedule,
+ * following some distribution (constant, exponential, uniform, empirical).
+ * Not thread safe: every thread owns its generator.
+ */
+public abstract class IntervalGenerator extends Generator {
+	/**
+	 * Mean of the distribution. Unit: ns
+	 */
+	double mean;
+	long lastnanos;
+
+	public IntervalGenerator(double meannanos) {
+		this.mean = meannanos;
+	}
+
+	/**
+	 * Change the mean of the distribution, keeping its shape.
+	 */
+	public void setMean(double meannanos) {
+		this.mean = meannanos;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * @return the next interval. Unit: ns
+	 */
+	public abstract long nextNanos();
+
+	/**
+	 * Subclasses must use this call to properly set the last interval, or the
+	 * lastString() and lastNanos() calls won't work.
+	 */
+	void setLastNanos(long last) {
+		lastnanos = last;
+	}
+
+	public long lastNanos() {
+		return lastnanos;
+	}
+
+	public String nextString() {
+		return "" + nextNanos();
+	}
+
+	public String lastString() {
+		return "" + lastnanos;
+	}
+}
@@ -0,0 +1,72 @@
+package com.yahoo.ycsb.generator;
+
+import java.util.SplittableRandom;
+
+import com.yahoo.ycsb.Config;
+
+/**
+ * The random numbers of the generators. Every thread draws from a stream of
+ * its own, a SplittableRandom that only it uses, so the threads never
+ * contend for the seed of a shared java.util.Random, and a generator shared
+ * by several threads simply draws from the stream of the calling thread.
+ *
+ * Without the seed property the streams are split from a root stream seeded
+ * by the clock. With it, a thread that calls seed() before it draws gets a
+ * stream determined by the seed, the index of the client (clientindex) and
+ * the number it passes, e.g. the id of a pool thread, so every thread of
+ * every slave repeats its random choices from run to run. The other threads
+ * get streams split from a root seeded by the seed, in the order they first
+ * draw.
+ */
+public final class RandomStream {
+	private static SplittableRandom root;
+
+	private static final ThreadLocal<SplittableRandom> stream = new ThreadLocal<SplittableRandom>() {
+		protected SplittableRandom initialValue() {
+			synchronized (RandomStream.class) {
+				if (root == null) {
+					long seed = Config.getConfig().seed;
+					root = seed != 0 ? new SplittableRandom(seed)
+							: new SplittableRandom();
+				}
+				return root.split();
+			}
+		}
+	};
+
+	private RandomStream() {
+	}
+
+	/**
+	 * @return the stream of the calling thread, not to be handed to another
+	 *         thread
+	 */
+	public static SplittableRandom get() {
+		return stream.get();
+	}
+
+	/**
+	 * Give the calling thread the stream of the given number, derived from
+	 * the seed property and the index of the client. Without a seed the
+	 * thread keeps a stream of its own split from the root.
+	 */
+	public static void seed(int number) {
+		long seed = Config.getConfig().seed;
+		if (seed == 0)
+			return;
+		long client = Config.getConfig().client_index;
+		stream.set(new SplittableRandom(mix(seed ^ mix((client << 32)
+				+ number))));
+	}
+
+	/**
+	 * Spreads neighbouring values (client and thread numbers) over the whole
+	 * range of seeds, so that their streams do not overlap. The finalizer of
+	 * MurmurHash3.
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return z ^ (z >>> 33);
+	}
+}
@@ -64,17 +64,14 @@ public class ScrambledZipfianGenerator extends IntegerGenerator
 	 * @param _items The number of items in the distribution.
 	 * @param _zipfianconstant The zipfian constant to use.
 	 */
-	/*
-// not supported, as the value of zeta depends on the zipfian constant, and we have only precomputed zeta for one zipfian constant
 	public ScrambledZipfianGenerator(long _items, double _zipfianconstant)
 	{
 		this(0,_items-1,_zipfianconstant);
 	}
-*/
 	
 	/**
-	 * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant. If you 
-	 * use a zipfian constant other than 0.99, this will take a long time to complete because we need to recompute zeta.
+	 * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant. The value of
+	 * zeta for 0.99 is precomputed, for other zipfian constants it is approximated (see ZipfianGenerator), which is fast too.
 	 * @param min The smallest integer to generate in the sequence.
 	 * @param max The largest integer to generate in the sequence.
 	 * @param _zipfianconstant The zipfian constant to use.
@@ -113,6 +110,19 @@ public class ScrambledZipfianGenerator extends IntegerGenerator
 		return ret;
 	}
 	
+	/**
+	 * Return the next value of the first itemcount items only, e.g. of the
+	 * records that exist so far of a key space sized for the inserts to come.
+	 * The popular items are scattered over those items.
+	 */
+	@Override
+	public int nextInt(int itemcount)
+	{
+		long ret=_min+Utils.FNVhash64(gen.nextLong())%Math.min(itemcount,_itemcount);
+		setLastInt((int)ret);
+		return (int)ret;
+	}
+	
 	public static void main(String[] args)
 	{
 	    //double newzetan = ZipfianGenerator.zetastatic(ITEM_COUNT,ZipfianGenerator.ZIPFIAN_CONSTANT);
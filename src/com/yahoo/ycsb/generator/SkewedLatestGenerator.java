@@ -26,9 +26,30 @@ public class SkewedLatestGenerator extends IntegerGenerator
 	ZipfianGenerator _zipfian;
 
 	public SkewedLatestGenerator(CounterGenerator basis)
+	{
+		this(basis,ZipfianGenerator.ZIPFIAN_CONSTANT);
+	}
+
+	/**
+	 * Create a generator over basis, skewed by the given zipfian constant.
+	 */
+	public SkewedLatestGenerator(CounterGenerator basis, double zipfianconstant)
+	{
+		_basis=basis;
+		_zipfian=new ZipfianGenerator(_basis.lastInt(),zipfianconstant);
+		nextInt();
+	}
+
+	/**
+	 * Create a generator over the same basis as prototype, for another thread.
+	 * It takes over the zipfian constant and the zeta computed by the prototype.
+	 */
+	public SkewedLatestGenerator(CounterGenerator basis, SkewedLatestGenerator prototype)
 	{
 		_basis=basis;
-		_zipfian=new ZipfianGenerator(Integer.parseInt(_basis.lastString()));
+		ZipfianGenerator z=prototype._zipfian;
+		ZipfianGenerator.Zeta zeta=z.zeta.get();
+		_zipfian=new ZipfianGenerator(0,zeta.countforzeta-1,z.zipfianconstant,zeta.zetan);
 		nextInt();
 	}
 
@@ -37,7 +58,7 @@ public class SkewedLatestGenerator extends IntegerGenerator
 	 */
 	public int nextInt()
 	{
-		int max=Integer.parseInt(_basis.lastString());
+		int max=_basis.lastInt();
 		int nextint=max-_zipfian.nextInt(max);
 		setLastInt(nextint);
 		return nextint;
@@ -17,14 +17,11 @@
 
 package com.yahoo.ycsb.generator;
 
-import java.util.Random;
-
 /**
  * Generates integers randomly uniform from an interval.
  */
 public class UniformIntegerGenerator extends IntegerGenerator 
 {
-	Random _random;
 	int _lb,_ub,_interval;
 	
 	/**
@@ -35,7 +32,6 @@ public class UniformIntegerGenerator extends IntegerGenerator
 	 */
 	public UniformIntegerGenerator(int lb, int ub)
 	{
-		_random=new Random();
 		_lb=lb;
 		_ub=ub;
 		_interval=_ub-_lb+1;
@@ -44,7 +40,7 @@ public class UniformIntegerGenerator extends IntegerGenerator
 	@Override
 	public int nextInt() 
 	{
-		int ret=_random.nextInt(_interval)+_lb;
+		int ret=RandomStream.get().nextInt(_interval)+_lb;
 		setLastInt(ret);
 		
 		return ret;
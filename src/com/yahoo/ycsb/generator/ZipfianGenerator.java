@@ -17,7 +17,7 @@
 
 package com.yahoo.ycsb.generator;
 
-import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A generator of a zipfian distribution. It produces a sequence of items, such that some items are more popular than others, according
@@ -29,11 +29,9 @@ import java.util.Random;
  * popular, min+1 the next most popular, etc.) If you don't want this clustering, and instead want the popular items scattered throughout the 
  * item space, then use ScrambledZipfianGenerator instead.
  * 
- * Be aware: initializing this generator may take a long time if there are lots of items to choose from (e.g. over a minute
- * for 100 million objects). This is because certain mathematical values need to be computed to properly generate a zipfian skew, and one of those
- * values (zeta) is a sum sequence from 1 to n, where n is the itemcount. Note that if you increase the number of items in the set, we can compute
- * a new zeta incrementally, so it should be fast unless you have added millions of items. However, if you decrease the number of items, we recompute
- * zeta from scratch, so this can take a long time. 
+ * Initializing this generator is fast even for billions of items. The mathematical value it needs to generate a zipfian skew, zeta, is a sum sequence
+ * from 1 to n, where n is the itemcount; only its first terms are summed one by one, the rest is approximated by Euler-Maclaurin summation to the
+ * precision of a double. If you change the number of items in the set, zeta is corrected the same way.
  *
  * The algorithm used here is from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994.
  */
@@ -59,20 +57,32 @@ public class ZipfianGenerator extends IntegerGenerator
 	/**
 	 * Computed parameters for generating the distribution.
 	 */
-	double alpha,zetan,eta,theta,zeta2theta;
-	
-	Random random;
+	double alpha,theta,zeta2theta;
 
 	/**
-	 * The number of items used to compute zetan the last time.
+	 * The computed parameters that depend on the number of items, for the number of items used to compute them the last time.
+	 * They are immutable and replaced as a whole when the number of items changes, so threads read them without a lock.
 	 */
-	long countforzeta;
+	static final class Zeta
+	{
+		final long countforzeta;
+		final double zetan,eta;
+
+		Zeta(long _countforzeta, double _zetan, double _eta)
+		{
+			countforzeta=_countforzeta;
+			zetan=_zetan;
+			eta=_eta;
+		}
+	}
+
+	final AtomicReference<Zeta> zeta=new AtomicReference<Zeta>();
 	
 	/**
 	 * Flag to prevent problems. If you increase the number of items the zipfian generator is allowed to choose from, this code will incrementally compute a new zeta
-	 * value for the larger itemcount. However, if you decrease the number of items, the code computes zeta from scratch; this is expensive for large itemsets.
+	 * value for the larger itemcount. However, if you decrease the number of items, the code computes zeta from scratch.
 	 * Usually this is not intentional; e.g. one thread thinks the number of items is 1001 and calls "nextLong()" with that item count; then another thread who thinks the 
-	 * number of items is 1000 calls nextLong() with itemcount=1000 triggering the expensive recomputation. (It is expensive for 100 million items, not really for 1000 items.) Why
+	 * number of items is 1000 calls nextLong() with itemcount=1000, and the threads keep replacing each other's zeta. Why
 	 * did the second thread think there were only 1000 items? maybe it read the item count before the first thread incremented it. So this flag allows you to say if you really do
 	 * want that recomputation. If true, then the code will recompute zeta if the itemcount goes down. If false, the code will assume itemcount only goes up, and never recompute. 
 	 */
@@ -131,23 +141,22 @@ public class ZipfianGenerator extends IntegerGenerator
 	 */
 	public ZipfianGenerator(long min, long max, double _zipfianconstant, double _zetan)
 	{
+		if (!(_zipfianconstant>0 && _zipfianconstant<1))
+		{
+			throw new IllegalArgumentException("The zipfian constant has to be between 0 and 1, not "+_zipfianconstant);
+		}
 
 		items=max-min+1;
 		base=min;
 		zipfianconstant=_zipfianconstant;
 
-		random=new Random();	 
-
 		theta=zipfianconstant;
 
-		zeta2theta=zeta(2,theta);
+		zeta2theta=zetastatic(2,theta);
 
 		
 		alpha=1.0/(1.0-theta);
-		//zetan=zeta(items,theta);
-		zetan=_zetan;
-		countforzeta=items;
-		eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
+		zeta.set(new Zeta(items,_zetan,eta(_zetan)));
 		
 		//System.out.println("XXXX 3 XXXX");
 		nextInt();
@@ -158,44 +167,75 @@ public class ZipfianGenerator extends IntegerGenerator
 	
 	/**
 	 * Compute the zeta constant needed for the distribution. Do this from scratch for a distribution with n items, using the 
-	 * zipfian constant theta. Remember the value of n, so if we change the itemcount, we can recompute zeta.
-	 * 
+	 * zipfian constant theta. This is a static version of the function which will not remember n.
 	 * @param n The number of items to compute zeta over.
 	 * @param theta The zipfian constant.
 	 */
-	double zeta(long n, double theta)
+	static double zetastatic(long n, double theta)
 	{
-		countforzeta=n;
-		return zetastatic(n,theta);
+		return zetastatic(0,n,theta,0);
 	}
 	
 	/**
-	 * Compute the zeta constant needed for the distribution. Do this from scratch for a distribution with n items, using the 
-	 * zipfian constant theta. This is a static version of the function which will not remember n.
-	 * @param n The number of items to compute zeta over.
-	 * @param theta The zipfian constant.
+	 * Compute eta, which depends on zeta, for the distribution.
+	 * @param zetan The value of zeta for the number of items.
 	 */
-	static double zetastatic(long n, double theta)
+	double eta(double zetan)
 	{
-		return zetastatic(0,n,theta,0);
+		return (1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
 	}
-	
+
 	/**
-	 * Compute the zeta constant needed for the distribution. Do this incrementally for a distribution that
-	 * has n items now but used to have st items. Use the zipfian constant theta. Remember the new value of 
-	 * n so that if we change the itemcount, we'll know to recompute zeta.
-	 * 
-	 * @param st The number of items used to compute the last initialsum
-	 * @param n The number of items to compute zeta over.
-	 * @param theta The zipfian constant.
-     * @param initialsum The value of zeta we are computing incrementally from.
+	 * Compute zetan and eta for a new number of items, incrementally from z if the number has grown, and publish them. Unless
+	 * decreasing the number of items is allowed, they are only published if no other thread has published them for at least as
+	 * many items meanwhile. No thread waits for another: threads that see the same new number at once each compute it, in
+	 * constant time (see zetatail()), and all but one drop their result.
+	 *
+	 * @param z The parameters the calling thread has read.
+	 * @param itemcount The new number of items.
+	 * @return The parameters for itemcount items.
 	 */
-	double zeta(long st, long n, double theta, double initialsum)
+	Zeta resize(Zeta z, long itemcount)
 	{
-		countforzeta=n;
-		return zetastatic(st,n,theta,initialsum);
+		double zetan;
+		if (itemcount>z.countforzeta)
+		{
+			//we have added more items. can compute zetan incrementally, which is cheaper
+			zetan=zetastatic(z.countforzeta,itemcount,theta,z.zetan);
+		}
+		else
+		{
+			//have to start over with zetan
+			zetan=zetastatic(itemcount,theta);
+		}
+		Zeta next=new Zeta(itemcount,zetan,eta(zetan));
+
+		if (allowitemcountdecrease)
+		{
+			zeta.set(next);
+			return next;
+		}
+		while (true)
+		{
+			Zeta published=zeta.get();
+			if (published.countforzeta>=itemcount || zeta.compareAndSet(published,next))
+			{
+				return next;
+			}
+		}
 	}
-	
+
+	/**
+	 * Number of leading terms of zeta that are summed one by one. Beyond them the error of the Euler-Maclaurin
+	 * approximation is far below the precision of a double.
+	 */
+	static final long EXACT_TERMS=1000;
+
+	/**
+	 * Up to this many new terms, e.g. when a few items have been inserted, summing them is cheaper than the approximation.
+	 */
+	static final long INCREMENT_TERMS=8;
+
 	/**
 	 * Compute the zeta constant needed for the distribution. Do this incrementally for a distribution that
 	 * has n items now but used to have st items. Use the zipfian constant theta. Remember the new value of 
@@ -208,17 +248,47 @@ public class ZipfianGenerator extends IntegerGenerator
 	static double zetastatic(long st, long n, double theta, double initialsum)
 	{
 		double sum=initialsum;
-		for (long i=st; i<n; i++)
+		long exact=n-st<=INCREMENT_TERMS ? n : Math.min(n,Math.max(st,EXACT_TERMS));
+		for (long i=st; i<exact; i++)
 		{
-
 			sum+=1/(Math.pow(i+1,theta));
 		}
-		
-		//System.out.println("countforzeta="+countforzeta);
-		
+		if (exact<n)
+		{
+			sum+=zetatail(exact+1,n,theta);
+		}
 		return sum;
 	}
 
+	/**
+	 * Approximate the sum of 1/i^theta for i from a to b by Euler-Maclaurin summation: the integral of x^-theta from a to b, plus the
+	 * mean of the end terms, plus the corrections of the first and third derivatives. This takes constant time whatever the number of
+	 * terms, and for a above EXACT_TERMS the first neglected correction is below 1e-17.
+	 * @param a The first term, at least 1.
+	 * @param b The last term, at least a.
+	 * @param theta The zipfian constant.
+	 */
+	static double zetatail(long a, long b, double theta)
+	{
+		double la=Math.log(a);
+		double lb=Math.log(b);
+		double s=1-theta;
+
+		//(b^s-a^s)/s, without the cancellation of the difference for theta close to 1
+		double integral=s==0 ? lb-la : Math.exp(s*la)*Math.expm1(s*(lb-la))/s;
+
+		double fa=Math.exp(-theta*la);
+		double fb=Math.exp(-theta*lb);
+		double a3=(double)a*a*a;
+		double b3=(double)b*b*b;
+
+		//f'(x)=-theta*x^(-theta-1), f'''(x)=-theta*(theta+1)*(theta+2)*x^(-theta-3), Bernoulli numbers B2/2!=1/12 and B4/4!=-1/720
+		double d1=-theta*(fb/b-fa/a);
+		double d3=-theta*(theta+1)*(theta+2)*(fb/b3-fa/a3);
+
+		return integral+(fa+fb)/2+d1/12-d3/720;
+	}
+
 	/****************************************************************************************/
 	
 	/** 
@@ -242,39 +312,15 @@ public class ZipfianGenerator extends IntegerGenerator
 	{
 		//from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994
 
-		if (itemcount!=countforzeta)
+		Zeta z=zeta.get();
+		if (itemcount>z.countforzeta || (itemcount<z.countforzeta && allowitemcountdecrease))
 		{
-
 			//have to recompute zetan and eta, since they depend on itemcount
-			synchronized(this)
-			{
-				if (itemcount>countforzeta)
-				{
-					//System.err.println("WARNING: Incrementally recomputing Zipfian distribtion. (itemcount="+itemcount+" countforzeta="+countforzeta+")");
-					
-					//we have added more items. can compute zetan incrementally, which is cheaper
-					zetan=zeta(countforzeta,itemcount,theta,zetan);
-					eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
-				}
-				else if ( (itemcount<countforzeta) && (allowitemcountdecrease) )
-				{
-					//have to start over with zetan
-					//note : for large itemsets, this is very slow. so don't do it!
-
-					//TODO: can also have a negative incremental computation, e.g. if you decrease the number of items, then just subtract
-					//the zeta sequence terms for the items that went away. This would be faster than recomputing from scratch when the number of items
-					//decreases
-					
-					System.err.println("WARNING: Recomputing Zipfian distribtion. This is slow and should be avoided. (itemcount="+itemcount+" countforzeta="+countforzeta+")");
-					
-					zetan=zeta(itemcount,theta);
-					eta=(1-Math.pow(2.0/items,1-theta))/(1-zeta2theta/zetan);
-				}
-			}
+			z=resize(z,itemcount);
 		}
 
-		double u=random.nextDouble();
-		double uz=u*zetan;
+		double u=RandomStream.get().nextDouble();
+		double uz=u*z.zetan;
 
 		if (uz<1.0)
 		{
@@ -286,7 +332,7 @@ public class ZipfianGenerator extends IntegerGenerator
 			return 1;
 		}
 
-		long ret=base+(long)((itemcount) * Math.pow(eta*u - eta + 1, alpha));
+		long ret=base+(long)((itemcount) * Math.pow(z.eta*u - z.eta + 1, alpha));
 		setLastInt((int)ret);
 		return ret;
 	}
@@ -314,6 +360,23 @@ public class ZipfianGenerator extends IntegerGenerator
 	
 	public static void main(String[] args)
 	{
-		new ZipfianGenerator(ScrambledZipfianGenerator.ITEM_COUNT);
+		long st=System.nanoTime();
+		double fast=zetastatic(ScrambledZipfianGenerator.ITEM_COUNT,ZIPFIAN_CONSTANT);
+		long en=System.nanoTime();
+		System.out.println("zeta("+ScrambledZipfianGenerator.ITEM_COUNT+","+ZIPFIAN_CONSTANT+")="+fast+" in "+(en-st)/1000+" us");
+
+		//compare with the sum of every term for the number of items given, e.g. 100000000
+		if (args.length>0)
+		{
+			long n=Long.parseLong(args[0]);
+			double sum=0;
+			st=System.nanoTime();
+			for (long i=0; i<n; i++)
+			{
+				sum+=1/(Math.pow(i+1,ZIPFIAN_CONSTANT));
+			}
+			en=System.nanoTime();
+			System.out.println("summed: "+sum+" in "+(en-st)/1000000+" ms, approximated: "+zetastatic(n,ZIPFIAN_CONSTANT));
+		}
 	}
 }
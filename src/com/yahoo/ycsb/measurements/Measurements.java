@@ -8,6 +8,26 @@ import java.util.Set;
 import com.yahoo.ycsb.Config;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
+/**
+ * The latencies and return codes of the operations of all threads.
+ *
+ * With histograms (measurementtype=histogram or hdrhistogram), the threads
+ * record into a fixed set of Recorders, twice as many as there are
+ * processors, by the id of the thread. measure() then only takes the lock of
+ * the recorder of its thread, which the other threads rarely hold, and the
+ * number of recorders does not grow with the number of threads, however many
+ * virtual threads the pool runs. The recorders are collected into the totals
+ * and the data of the current status interval whenever those are read, i.e.
+ * at least once per interval by the StatusThread (or the master, for a
+ * slave). Time series are kept in one series per operation, shared by the
+ * threads.
+ *
+ * With a target rate, every operation is also measured from its intended
+ * start in the schedule, under INTENDED_PREFIX and the name of the operation.
+ * Its response time then includes the time it waited because the ones
+ * before it were late, which the service time alone hides when the store
+ * stalls.
+ */
 public class Measurements {
 	private static final long serialVersionUID = -311232927139188477L;
 
@@ -26,11 +46,110 @@ public class Measurements {
 		measurements = new Measurements();
 	}
 
+	/**
+	 * Separates the phase from the operation in the name of the measurements
+	 * of an unmeasured phase, e.g. "WARMUP:READ"
+	 */
+	public static final String PHASE_SEPARATOR = ":";
+
+	/**
+	 * The phases that are not part of the results. Operations of any other
+	 * phase, e.g. of a PhaseSchedule, count as measured.
+	 */
+	public static final String RAMPUP_PHASE = "RAMPUP";
+	public static final String WARMUP_PHASE = "WARMUP";
+
+	/**
+	 * Prefix of the name of the response times measured from the intended
+	 * start of the operations, e.g. "Intended-READ". They are not counted as
+	 * operations, the service times under the name of the operation are.
+	 */
+	public static final String INTENDED_PREFIX = "Intended-";
+
 	private long operations;
 	private int partialoperations;
+	private long measuredoperations;
+	private volatile String phase = null;
+	private volatile boolean phasemeasured = true;
 	HashMap<String, OneMeasurement> totaldata;
 	HashMap<String, OneMeasurement> partialdata;
 	boolean histogram = true;
+	boolean hdrhistogram = false;
+
+	/**
+	 * The histograms the threads of a stripe have recorded since they were
+	 * last collected. The threads record under the lock of the recorder;
+	 * collect() takes the histograms over by putting the spare ones in their
+	 * place, and keeps them as the next spare ones once it has added them up
+	 * and reset them. So no histogram is allocated after every recorder has
+	 * seen every operation twice.
+	 */
+	final class Recorder {
+		HashMap<String, OneMeasurement> data = new HashMap<String, OneMeasurement>();
+
+		/**
+		 * Empty histograms to swap with data, only used by collect()
+		 */
+		HashMap<String, OneMeasurement> spare = new HashMap<String, OneMeasurement>();
+
+		/**
+		 * True if data holds anything recorded since the last swap
+		 */
+		boolean recorded;
+
+		/**
+		 * Called under the lock of the recorder.
+		 *
+		 * @return the histogram of the operation
+		 */
+		OneMeasurement get(String operation) {
+			OneMeasurement h = data.get(operation);
+			if (h == null) {
+				h = constructOneMeasurement(operation);
+				data.put(operation, h);
+			}
+			recorded = true;
+			return h;
+		}
+
+		/**
+		 * Called by collect() only.
+		 *
+		 * @return the histograms recorded since the last call, null if none
+		 */
+		synchronized HashMap<String, OneMeasurement> swap() {
+			if (!recorded)
+				return null;
+			HashMap<String, OneMeasurement> d = data;
+			data = spare;
+			spare = d;
+			recorded = false;
+			return d;
+		}
+	}
+
+	/**
+	 * The recorders, a power of two of them, picked by the id of the thread
+	 */
+	private final Recorder[] recorders;
+
+	/**
+	 * Intended start of the operations a thread issues, if scheduled. Only
+	 * used by the thread.
+	 */
+	static final class Schedule {
+		/**
+		 * Unit: ns (System.nanoTime)
+		 */
+		long intended;
+		boolean scheduled;
+	}
+
+	private final ThreadLocal<Schedule> schedule = new ThreadLocal<Schedule>() {
+		protected Schedule initialValue() {
+			return new Schedule();
+		}
+	};
 
 	/**
 	 * Create a new object with the specified properties.
@@ -41,15 +160,36 @@ public class Measurements {
 
 		operations = 0;
 
+		int stripes = 1;
+		while (stripes < 2 * Runtime.getRuntime().availableProcessors())
+			stripes <<= 1;
+		recorders = new Recorder[stripes];
+		for (int i = 0; i < stripes; i++)
+			recorders[i] = new Recorder();
+
 		if (Config.getConfig().measurement_type.compareTo("histogram") == 0) {
 			histogram = true;
+		} else if (Config.getConfig().measurement_type
+				.compareTo("hdrhistogram") == 0) {
+			histogram = true;
+			hdrhistogram = true;
 		} else {
 			histogram = false;
 		}
 	}
 
+	/**
+	 * @return the recorder of the calling thread
+	 */
+	private Recorder recorder() {
+		return recorders[(int) Thread.currentThread().getId()
+				& (recorders.length - 1)];
+	}
+
 	OneMeasurement constructOneMeasurement(String name) {
-		if (histogram) {
+		if (hdrhistogram) {
+			return new OneMeasurementHdrHistogram(name);
+		} else if (histogram) {
 			return new OneMeasurementHistogram(name);
 		} else {
 			return new OneMeasurementTimeSeries(name);
@@ -58,9 +198,30 @@ public class Measurements {
 
 	/**
 	 * Report a single value of a single metric. E.g. for read latency,
-	 * operation="READ" and latency is the measured value.
+	 * operation="READ" and latency is the measured value. Unit: us
+	 */
+	public void measure(String operation, int latency) {
+		measureNanos(operation, latency * 1000L);
+	}
+
+	/**
+	 * Report a single value of a single metric, e.g. the latency of an
+	 * operation="READ" from System.nanoTime(). Unit: ns
 	 */
-	public synchronized void measure(String operation, int latency) {
+	public void measureNanos(String operation, long latency) {
+		if (histogram) {
+			String name = bucket(operation);
+			Recorder r = recorder();
+			synchronized (r) {
+				r.get(name).record(latency);
+			}
+		} else {
+			measureSeries(operation, latency);
+		}
+	}
+
+	private synchronized void measureSeries(String operation, long latency) {
+		operation = bucket(operation);
 		if (!totaldata.containsKey(operation)
 				|| !partialdata.containsKey(operation)) {
 			synchronized (this) {
@@ -75,10 +236,14 @@ public class Measurements {
 			}
 		}
 		try {
-			operations++;
-			partialoperations++;
-			totaldata.get(operation).measure(latency);
-			partialdata.get(operation).measure(latency);
+			if (isCounted(operation)) {
+				operations++;
+				partialoperations++;
+				if (phasemeasured)
+					measuredoperations++;
+			}
+			totaldata.get(operation).measureNanos(latency);
+			partialdata.get(operation).measureNanos(latency);
 		} catch (java.lang.ArrayIndexOutOfBoundsException e) {
 			System.out
 					.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
@@ -100,8 +265,12 @@ public class Measurements {
 
 					while (itr.hasNext()) {
 						String item = itr.next();
-						this.operations += m.get(item).getOperations();//may throw NullPointerException
-						this.partialoperations += m.get(item).getOperations();
+						if (isCounted(item)) {
+							this.operations += m.get(item).getOperations();//may throw NullPointerException
+							this.partialoperations += m.get(item).getOperations();
+							if (isMeasured(item))
+								this.measuredoperations += m.get(item).getOperations();
+						}
 						if (!this.totaldata.containsKey(item))
 							this.totaldata.put(item,
 									constructOneMeasurement(item));
@@ -116,35 +285,134 @@ public class Measurements {
 		}
 	}
 
+	/**
+	 * Add the histograms the threads have recorded since the last call to
+	 * the totals and the data of the status interval.
+	 */
+	private synchronized void collect() {
+		for (Recorder r : recorders) {
+			HashMap<String, OneMeasurement> m = r.swap();
+			if (m == null)
+				continue;
+			for (OneMeasurement h : m.values()) {
+				// kept from an earlier interval, nothing recorded since
+				if (h.getOperations() == 0 && h.getReturnCodes().isEmpty())
+					continue;
+				String item = h.getName();
+				if (isCounted(item)) {
+					operations += h.getOperations();
+					partialoperations += h.getOperations();
+					if (isMeasured(item))
+						measuredoperations += h.getOperations();
+				}
+				if (!totaldata.containsKey(item))
+					totaldata.put(item, constructOneMeasurement(item));
+				totaldata.get(item).add(h);
+				if (!partialdata.containsKey(item))
+					partialdata.put(item, constructOneMeasurement(item));
+				partialdata.get(item).add(h);
+				h.reset();
+			}
+		}
+	}
+
 	public synchronized HashMap<String, OneMeasurement> getPartialData() {
+		collect();
 		if (partialdata == null)
 			System.out.println("Partial Data is NULL");
 		return partialdata;
 	}
 
 	public synchronized HashMap<String, OneMeasurement> getAndResetPartialData() {
+		collect();
 		HashMap<String, OneMeasurement> m = partialdata;
 		partialdata = new HashMap<String, OneMeasurement>();
 		return m;
 	}
 
+	/**
+	 * Set the intended start of the operations the calling thread issues
+	 * next, i.e. their time in the schedule of the target rate.
+	 *
+	 * @param nanos
+	 *            System.nanoTime()
+	 */
+	public void setIntendedStart(long nanos) {
+		Schedule s = schedule.get();
+		s.intended = nanos;
+		s.scheduled = true;
+	}
+
+	/**
+	 * The operations the calling thread issues next follow no schedule.
+	 */
+	public void clearIntendedStart() {
+		schedule.get().scheduled = false;
+	}
+
+	/**
+	 * @return true if the operations of the calling thread have an intended
+	 *         start
+	 */
+	public boolean hasIntendedStart() {
+		return schedule.get().scheduled;
+	}
+
+	/**
+	 * @return the intended start of the operations of the calling thread,
+	 *         only meaningful if hasIntendedStart(). Unit: ns
+	 *         (System.nanoTime)
+	 */
+	public long getIntendedStart() {
+		return schedule.get().intended;
+	}
+
+	/**
+	 * Report the response time of an operation of the calling thread, from
+	 * its intended start to endnanos (System.nanoTime). Nothing without a
+	 * schedule.
+	 */
+	public void measureIntended(String operation, long endnanos) {
+		Schedule s = schedule.get();
+		if (s.scheduled)
+			measureIntended(operation, s.intended, endnanos);
+	}
+
+	/**
+	 * Report the response time of an operation issued with the given
+	 * intended start (getIntendedStart()), e.g. when it completes on another
+	 * thread. The caller checks hasIntendedStart() when it issues the
+	 * operation.
+	 */
+	public void measureIntended(String operation, long intended, long endnanos) {
+		measureNanos(INTENDED_PREFIX + operation, endnanos - intended);
+	}
+
 	/**
 	 * Report a return code for a single DB operaiton.
 	 */
 	public void reportReturnCode(String operation, int code) {
-		if (!totaldata.containsKey(operation)
-				|| !partialdata.containsKey(operation)) {
-			synchronized (this) {
-				if (!totaldata.containsKey(operation)) {
-					totaldata
-							.put(operation, constructOneMeasurement(operation));
-				}
-				if (!partialdata.containsKey(operation)) {
-					partialdata.put(operation,
-							constructOneMeasurement(operation));
-				}
+		if (histogram) {
+			String name = bucket(operation);
+			Recorder r = recorder();
+			synchronized (r) {
+				r.get(name).recordReturnCode(code);
 			}
+			return;
 		}
+		reportSeries(operation, code);
+	}
+
+	/**
+	 * Under the lock, like measureSeries(), so the code does not go to
+	 * partial data that getAndResetPartialData() has handed over already
+	 */
+	private synchronized void reportSeries(String operation, int code) {
+		operation = bucket(operation);
+		if (!totaldata.containsKey(operation))
+			totaldata.put(operation, constructOneMeasurement(operation));
+		if (!partialdata.containsKey(operation))
+			partialdata.put(operation, constructOneMeasurement(operation));
 		totaldata.get(operation).reportReturnCode(code);
 		partialdata.get(operation).reportReturnCode(code);
 	}
@@ -157,8 +425,9 @@ public class Measurements {
 	 * @throws IOException
 	 *             Thrown if the export failed.
 	 */
-	public void exportMeasurements(MeasurementsExporter exporter)
+	public synchronized void exportMeasurements(MeasurementsExporter exporter)
 			throws IOException {
+		collect();
 		for (OneMeasurement measurement : totaldata.values()) {
 			measurement.exportMeasurements(exporter);
 		}
@@ -169,18 +438,128 @@ public class Measurements {
 	 */
 	public synchronized String getSummary() {
 		int interval = Config.getConfig().print_stats_interval;
+		collect();
 
-		String ret = " " + operations + " operations; "
+		String ret = (phase == null ? "" : " " + phase) + " " + operations + " operations; "
 				+ (partialoperations / interval) + " ops/sec";
 		for (OneMeasurement m : partialdata.values()) {
 			ret += m.getSummary() + " ";
 		}
 		partialoperations = 0;
-		getAndResetPartialData();
+		partialdata = new HashMap<String, OneMeasurement>();
 		return ret;
 	}
 
-	public long getOperations() {
+	/**
+	 * @param operation
+	 *            e.g. "READ", null for the slowest of all operations
+	 * @return the latency below which percentile (0..1) of the operations
+	 *         completed outside of the unmeasured phases, -1 if unknown.
+	 *         Unit: us
+	 */
+	public synchronized double getPercentileLatency(String operation,
+			double percentile) {
+		collect();
+		if (operation != null) {
+			OneMeasurement m = totaldata.get(operation);
+			return m == null ? -1 : m.getPercentileLatency(percentile);
+		}
+		double latency = -1;
+		for (OneMeasurement m : totaldata.values()) {
+			if (isMeasured(m.getName()))
+				latency = Math.max(latency, m.getPercentileLatency(percentile));
+		}
+		return latency;
+	}
+
+	public synchronized long getOperations() {
+		collect();
 		return operations;
 	}
+
+	/**
+	 * @return the number of operations of all clients since the last summary
+	 */
+	public synchronized int getPartialOperations() {
+		collect();
+		return partialoperations;
+	}
+
+	/**
+	 * @return the latency below which percentile (0..1) of the operations
+	 *         since the last summary completed, for the slowest of all
+	 *         operations, -1 if unknown. Unit: us
+	 */
+	public synchronized double getPartialPercentileLatency(double percentile) {
+		collect();
+		double latency = -1;
+		for (OneMeasurement m : partialdata.values())
+			latency = Math.max(latency, m.getPercentileLatency(percentile));
+		return latency;
+	}
+
+	/**
+	 * @return the number of operations outside of the unmeasured phases
+	 */
+	public synchronized long getMeasuredOperations() {
+		collect();
+		return measuredoperations;
+	}
+
+	/**
+	 * Record the following measurements separately, under the name of the
+	 * phase, e.g. during warm-up. null records them as the results of the run.
+	 */
+	public synchronized void setPhase(String phase) {
+		this.phase = phase;
+		this.phasemeasured = phase == null || isMeasuredPhase(phase);
+	}
+
+	public String getPhase() {
+		return phase;
+	}
+
+	/**
+	 * @return the number of operations of all clients recorded in the phase
+	 */
+	public synchronized long getOperations(String phase) {
+		collect();
+		long ops = 0;
+		String prefix = phase + PHASE_SEPARATOR;
+		for (OneMeasurement m : totaldata.values()) {
+			if (m.getName().startsWith(prefix) && isCounted(m.getName()))
+				ops += m.getOperations();
+		}
+		return ops;
+	}
+
+	private static boolean isMeasuredPhase(String phase) {
+		return !RAMPUP_PHASE.equals(phase) && !WARMUP_PHASE.equals(phase);
+	}
+
+	/**
+	 * @return true if the measurement of the given name is part of the results
+	 */
+	public static boolean isMeasured(String name) {
+		int i = name.indexOf(PHASE_SEPARATOR);
+		return i < 0 || isMeasuredPhase(name.substring(0, i));
+	}
+
+	/**
+	 * @return false for the response times measured from the intended start
+	 *         of the operations, whose operations are counted under their
+	 *         own name
+	 */
+	static boolean isCounted(String name) {
+		int i = name.indexOf(PHASE_SEPARATOR);
+		return !name.startsWith(INTENDED_PREFIX, i + 1);
+	}
+
+	/**
+	 * @return the name the measurements of operation are recorded under
+	 */
+	private String bucket(String operation) {
+		String p = phase;
+		return p == null ? operation : p + PHASE_SEPARATOR + operation;
+	}
 }
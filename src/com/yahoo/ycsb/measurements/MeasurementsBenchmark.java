@@ -0,0 +1,134 @@
+package com.yahoo.ycsb.measurements;
+
+import java.util.HashMap;
+
+/**
+ * Measures the cost of recording the latency of an operation as the number
+ * of threads grows. Compares the former Measurements.measure(), synchronized
+ * on the Measurements and on the total and interval histograms, with the
+ * striped recorders of Measurements. A status thread collects the
+ * measurements every 100 ms meanwhile, as StatusThread does.
+ *
+ * Usage: java com.yahoo.ycsb.measurements.MeasurementsBenchmark
+ * [opsperthread]
+ */
+public class MeasurementsBenchmark {
+	static final String[] OPERATIONS = { "READ", "UPDATE", "INSERT", "SCAN" };
+
+	/**
+	 * Collection interval of the status thread. Unit: ms
+	 */
+	static final long INTERVAL = 100;
+
+	/**
+	 * The former Measurements.measure()
+	 */
+	static class SharedMeasurements {
+		HashMap<String, OneMeasurement> totaldata = new HashMap<String, OneMeasurement>();
+		HashMap<String, OneMeasurement> partialdata = new HashMap<String, OneMeasurement>();
+		long operations;
+
+		synchronized void measure(String operation, int latency) {
+			if (!totaldata.containsKey(operation))
+				totaldata.put(operation, new OneMeasurementHistogram(operation));
+			if (!partialdata.containsKey(operation))
+				partialdata.put(operation, new OneMeasurementHistogram(operation));
+			operations++;
+			totaldata.get(operation).measure(latency);
+			partialdata.get(operation).measure(latency);
+		}
+
+		synchronized void collect() {
+			partialdata = new HashMap<String, OneMeasurement>();
+		}
+	}
+
+	/**
+	 * @return CPU time spent per measurement, i.e. the wall time of all
+	 *         threads per operation times the processors they ran on. Unit: ns
+	 */
+	static double run(int threadcount, final long opsperthread,
+			final boolean shared) throws InterruptedException {
+		final SharedMeasurements legacy = new SharedMeasurements();
+		final Measurements measurements = new Measurements();
+
+		Thread[] threads = new Thread[threadcount];
+		for (int i = 0; i < threadcount; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					for (long n = 0; n < opsperthread; n++) {
+						String op = OPERATIONS[(int) n & 3];
+						// latencies of 100us to 25ms, as DBWrapper reports them
+						int latency = 100 + (int) (n * 7919 % 25000);
+						if (shared)
+							legacy.measure(op, latency);
+						else
+							measurements.measure(op, latency);
+					}
+				}
+			};
+		}
+
+		Thread status = new Thread() {
+			public void run() {
+				while (!isInterrupted()) {
+					try {
+						sleep(INTERVAL);
+					} catch (InterruptedException e) {
+						break;
+					}
+					if (shared)
+						legacy.collect();
+					else
+						measurements.getAndResetPartialData();
+				}
+			}
+		};
+		status.start();
+
+		long st = System.nanoTime();
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+		long en = System.nanoTime();
+
+		status.interrupt();
+		status.join();
+
+		long expected = threadcount * opsperthread;
+		long recorded = shared ? legacy.operations : measurements
+				.getOperations();
+		if (recorded != expected)
+			System.out.println("recorded " + recorded + " of " + expected
+					+ " operations");
+
+		int cpus = Math.min(threadcount, Runtime.getRuntime()
+				.availableProcessors());
+		return ((double) (en - st)) * cpus / expected;
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		long opsperthread = 1000000;
+		if (args.length > 0)
+			opsperthread = Long.parseLong(args[0]);
+
+		// warm up both code paths
+		run(4, opsperthread / 10, true);
+		run(4, opsperthread / 10, false);
+
+		System.out.println(Runtime.getRuntime().availableProcessors()
+				+ " processors");
+		System.out
+				.println("threads\tsynchronized Measurements(ns/op)\tstriped recorders(ns/op)");
+		int[] threadcounts = { 1, 16, 128 };
+		for (int threads : threadcounts) {
+			// fewer operations per thread for many threads
+			long ops = Math.max(1000, opsperthread * 16 / (threads + 15));
+			double shared = run(threads, ops, true);
+			double recorders = run(threads, ops, false);
+			System.out.println(String.format("%d\t%.1f\t%.1f", threads,
+					shared, recorders));
+		}
+	}
+}
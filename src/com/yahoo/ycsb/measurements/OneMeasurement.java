@@ -25,6 +25,13 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 /**
  * A single measured metric (such as READ LATENCY)
+ *
+ * A measurement is also the snapshot that is merged: it is Serializable and
+ * holds only counts, sums, extremes, buckets, return codes and time units,
+ * which add() merges exactly. The measurements of several threads, or those
+ * the slaves hand to the master over RMI, therefore add up to what a single
+ * measurement of all their operations would hold, percentiles included.
+ * Measurements of the same kind and configuration can be added.
  */
 public abstract class OneMeasurement implements Serializable {
 	private static final long serialVersionUID = 7807865821392650553L;
@@ -44,8 +51,48 @@ public abstract class OneMeasurement implements Serializable {
 
 	public abstract void reportReturnCode(int code);
 
-	public abstract void measure(int latency);
+	/**
+	 * Report a latency. Unit: us
+	 */
+	public void measure(int latency) {
+		measureNanos(latency * 1000L);
+	}
+
+	/**
+	 * Report a latency. Unit: ns
+	 */
+	public abstract void measureNanos(long latency);
+
+	/**
+	 * measureNanos() without the lock, for a measurement the caller guards
+	 * itself, e.g. that of a recorder of Measurements. Unit: ns
+	 */
+	void record(long latency) {
+		measureNanos(latency);
+	}
+
+	/**
+	 * reportReturnCode() without the lock, for a measurement the caller
+	 * guards itself
+	 */
+	void recordReturnCode(int code) {
+		reportReturnCode(code);
+	}
+
+	/**
+	 * Forget everything measured, keeping what has been allocated, so that
+	 * a recorder of Measurements can record into the measurement again once
+	 * it has been added up. Only histograms are recorded that way.
+	 */
+	void reset() {
+		throw new UnsupportedOperationException(getClass().getName()
+				+ " cannot be reset");
+	}
 	
+	/**
+	 * Add the measurements of m, which is not modified, e.g. a snapshot
+	 * handed over by another thread or client.
+	 */
 	public abstract void add(OneMeasurement m);
 
 	public abstract long getOperations();
@@ -54,6 +101,15 @@ public abstract class OneMeasurement implements Serializable {
 	
 	public abstract String getSummary();
 
+	/**
+	 * @return the latency below which percentile (0..1) of the operations
+	 *         completed, -1 if this kind of measurement keeps no distribution.
+	 *         Unit: us
+	 */
+	public double getPercentileLatency(double percentile) {
+		return -1;
+	}
+
 	/**
 	 * Export the current measurements to a suitable format.
 	 * 
@@ -65,10 +121,15 @@ public abstract class OneMeasurement implements Serializable {
 	public abstract void exportMeasurements(MeasurementsExporter exporter)
 			throws IOException;
 	
+	/**
+	 * @param time
+	 *            Unit: us
+	 * @return the time in us, ms or s, whichever keeps it below 1000
+	 */
 	public String computeTime(double time) {
 		int i;
-		for (i = 0; time > 1024 && i < 2; i++)
-			time = time / 1024;
+		for (i = 0; time >= 1000 && i < 2; i++)
+			time = time / 1000;
 		
 		time = Math.round(time * 100) / 100.0;
 		if (i == 0)
@@ -82,8 +143,8 @@ public abstract class OneMeasurement implements Serializable {
 	
 	public String computeTime(int time) {
 		int i;
-		for (i = 0; time > 1024 && i < 2; i++)
-			time = time / 1024;
+		for (i = 0; time >= 1000 && i < 2; i++)
+			time = time / 1000;
 		
 		if (i == 0)
 			return String.format("%-6s", (Integer.toString(time) + "us"));
@@ -0,0 +1,271 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.yahoo.ycsb.Config;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * A log-linear histogram of a metric, such as READ LATENCY, in the manner of
+ * HdrHistogram. The values are divided into buckets of powers of 2, and every
+ * bucket into the same number of linear sub-buckets, enough to tell apart
+ * values that differ in the given number of significant decimal digits
+ * (hdrhistogram.digits). A percentile is therefore accurate to 1 part in
+ * 10^digits at any latency, from a near-cache hit of a few hundred ns to
+ * the longest stall, and the index of a value is found by a shift rather than
+ * a search. The latencies are counted in ns.
+ *
+ * The counts grow with the largest value recorded, so a histogram of
+ * sub-millisecond latencies stays small.
+ */
+public class OneMeasurementHdrHistogram extends OneMeasurement {
+	private static final long serialVersionUID = -3412379154640785127L;
+
+	/**
+	 * The percentiles exported besides min, max and average
+	 */
+	static final double[] PERCENTILES = { 50, 90, 95, 99, 99.9, 99.99 };
+
+	/**
+	 * Sub-buckets per bucket is 2^(halfmagnitude + 1), the first half of
+	 * which is only used by bucket 0
+	 */
+	final int halfmagnitude;
+	final int halfcount;
+
+	/**
+	 * Number of leading zeros of a value of bucket 0
+	 */
+	final int leadingzeros;
+
+	long[] counts;
+	long operations;
+
+	/**
+	 * Sum, minimum and maximum of the latencies. Unit: ns
+	 */
+	long totallatency;
+	long min;
+	long max;
+	HashMap<Integer, long[]> returncodes;
+
+	public OneMeasurementHdrHistogram(String name) {
+		this(name, Config.getConfig().hdr_histogram_digits);
+	}
+
+	/**
+	 * @param digits
+	 *            significant decimal digits, 1 to 5
+	 */
+	public OneMeasurementHdrHistogram(String name, int digits) {
+		super(name);
+		if (digits < 1 || digits > 5)
+			throw new IllegalArgumentException(
+					"The significant digits of a histogram must be 1 to 5, not "
+							+ digits);
+		// the largest value of bucket 0 has to be told apart from the next
+		// one with the given digits, i.e. 2 * 10^digits sub-buckets
+		long distinct = 2 * (long) Math.pow(10, digits);
+		int magnitude = 64 - Long.numberOfLeadingZeros(distinct - 1);
+		halfmagnitude = magnitude - 1;
+		halfcount = 1 << halfmagnitude;
+		leadingzeros = 64 - magnitude;
+		counts = new long[2 * halfcount];
+		operations = 0;
+		totallatency = 0;
+		min = -1;
+		max = -1;
+		returncodes = new HashMap<Integer, long[]>();
+	}
+
+	/**
+	 * @return the index of the counts of value (&gt;= 0)
+	 */
+	int indexOf(long value) {
+		int bucket = leadingzeros
+				- Long.numberOfLeadingZeros(value | (2 * halfcount - 1));
+		int sub = (int) (value >>> bucket);
+		return ((bucket + 1) << halfmagnitude) + sub - halfcount;
+	}
+
+	/**
+	 * @return the smallest value counted at index
+	 */
+	long lowestAt(int index) {
+		int bucket = (index >> halfmagnitude) - 1;
+		long sub = (index & (halfcount - 1)) + halfcount;
+		if (bucket < 0) {
+			sub -= halfcount;
+			bucket = 0;
+		}
+		return sub << bucket;
+	}
+
+	/**
+	 * @return the largest value counted at index
+	 */
+	long highestAt(int index) {
+		int bucket = Math.max(0, (index >> halfmagnitude) - 1);
+		return lowestAt(index) + (1L << bucket) - 1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.yahoo.ycsb.OneMeasurement#reportReturnCode(int)
+	 */
+	public synchronized void reportReturnCode(int code) {
+		recordReturnCode(code);
+	}
+
+	@Override
+	void recordReturnCode(int code) {
+		long[] val = returncodes.get(code);
+		if (val == null) {
+			val = new long[1];
+			returncodes.put(code, val);
+		}
+		val[0]++;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.yahoo.ycsb.OneMeasurement#measureNanos(long)
+	 */
+	public synchronized void measureNanos(long latency) {
+		record(latency);
+	}
+
+	@Override
+	void record(long latency) {
+		long value = Math.max(0, latency);
+		int i = indexOf(value);
+		if (i >= counts.length)
+			grow(i);
+		counts[i]++;
+		operations++;
+		totallatency += value;
+		if (min < 0 || value < min)
+			min = value;
+		if (value > max)
+			max = value;
+	}
+
+	@Override
+	void reset() {
+		Arrays.fill(counts, 0);
+		operations = 0;
+		totallatency = 0;
+		min = -1;
+		max = -1;
+		returncodes.clear();
+	}
+
+	/**
+	 * Make room for the counts up to index, a bucket at a time
+	 */
+	private void grow(int index) {
+		int length = ((index >> halfmagnitude) + 1) << halfmagnitude;
+		long[] c = new long[length];
+		System.arraycopy(counts, 0, c, 0, counts.length);
+		counts = c;
+	}
+
+	@Override
+	public synchronized void add(OneMeasurement m) {
+		OneMeasurementHdrHistogram h = (OneMeasurementHdrHistogram) m;
+		if (h.halfmagnitude != halfmagnitude)
+			throw new IllegalArgumentException(
+					"Cannot add histograms of different significant digits");
+		if (h.counts.length > counts.length)
+			grow(h.counts.length - 1);
+		for (int i = 0; i < h.counts.length; i++)
+			counts[i] += h.counts[i];
+		operations += h.operations;
+		totallatency += h.totallatency;
+		if (h.min >= 0 && (min < 0 || h.min < min))
+			min = h.min;
+		if (h.max > max)
+			max = h.max;
+
+		for (Integer code : h.returncodes.keySet()) {
+			long[] val = returncodes.get(code);
+			if (val == null)
+				returncodes.put(code, new long[] { h.returncodes.get(code)[0] });
+			else
+				val[0] += h.returncodes.get(code)[0];
+		}
+	}
+
+	/**
+	 * @return the latency below which percentile (0..1) of the operations
+	 *         completed, at most the maximum, -1 if there are none. Unit: us
+	 */
+	@Override
+	public synchronized double getPercentileLatency(double percentile) {
+		if (operations == 0)
+			return -1;
+		long rank = Math.max(1, (long) Math.ceil(percentile * operations));
+		long opcounter = 0;
+		for (int i = 0; i < counts.length; i++) {
+			opcounter += counts[i];
+			if (opcounter >= rank)
+				return Math.min(highestAt(i), max) / 1000.0;
+		}
+		return max / 1000.0;
+	}
+
+	@Override
+	public synchronized void exportMeasurements(MeasurementsExporter exporter)
+			throws IOException {
+		exporter.write(getName(), "TotalLatency", totallatency / 1000.0);
+		exporter.write(getName(), "Operations", operations);
+		if (operations > 0) {
+			exporter.write(getName(), "AverageLatency",
+					computeTime(totallatency / 1000.0 / operations));
+			exporter.write(getName(), "MinLatency", computeTime(min / 1000.0));
+			exporter.write(getName(), "MaxLatency", computeTime(max / 1000.0));
+			for (double p : PERCENTILES)
+				exporter.write(getName(), label(p) + "PercentileLatency",
+						computeTime(getPercentileLatency(p / 100)));
+		}
+
+		for (Integer I : returncodes.keySet()) {
+			long[] val = returncodes.get(I);
+			exporter.write(getName(), "Return=" + I, val[0]);
+		}
+	}
+
+	/**
+	 * @return e.g. "99.9th"
+	 */
+	static String label(double percentile) {
+		String s = percentile == Math.floor(percentile) ? Long
+				.toString((long) percentile) : Double.toString(percentile);
+		return s + "th";
+	}
+
+	@Override
+	public synchronized String getSummary() {
+		if (operations == 0) {
+			return "";
+		}
+		return "[" + getName() + " total=" + operations + "  avg="
+				+ computeTime(totallatency / 1000.0 / operations) + " 50th="
+				+ computeTime(getPercentileLatency(.5)) + " 99th="
+				+ computeTime(getPercentileLatency(.99)) + " 99.9th="
+				+ computeTime(getPercentileLatency(.999)) + " max="
+				+ computeTime(max / 1000.0) + "]";
+	}
+
+	public synchronized long getOperations() {
+		return operations;
+	}
+
+	public HashMap<Integer, long[]> getReturnCodes() {
+		return returncodes;
+	}
+}
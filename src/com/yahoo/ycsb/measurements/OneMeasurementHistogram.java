@@ -18,6 +18,7 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 
@@ -37,12 +38,16 @@ public class OneMeasurementHistogram extends OneMeasurement {
 	long[] histogram;
 	long histogramoverflow;
 	long operations;
+
+	/**
+	 * Sum, minimum and maximum of the latencies. Unit: ns
+	 */
 	long totallatency;
+	long min;
+	long max;
 
 	int exp_offset;
 	double stddev_pts;
-	long min;
-	long max;
 	HashMap<Integer, long[]> returncodes;
 
 	public OneMeasurementHistogram(String name) {
@@ -64,6 +69,11 @@ public class OneMeasurementHistogram extends OneMeasurement {
 	 * @see com.yahoo.ycsb.OneMeasurement#reportReturnCode(int)
 	 */
 	public synchronized void reportReturnCode(int code) {
+		recordReturnCode(code);
+	}
+
+	@Override
+	void recordReturnCode(int code) {
 		Integer Icode = code;
 		if (!returncodes.containsKey(Icode)) {
 			long[] val = new long[1];
@@ -76,19 +86,23 @@ public class OneMeasurementHistogram extends OneMeasurement {
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see com.yahoo.ycsb.OneMeasurement#measure(int)
+	 * @see com.yahoo.ycsb.OneMeasurement#measureNanos(long)
 	 */
-	public synchronized void measure(int latency) {
-		if (((int)Math.pow(2.0, (double)(Config.getConfig().histogram_buckets - 1)) < latency))
+	public synchronized void measureNanos(long latency) {
+		record(latency);
+	}
+
+	@Override
+	void record(long latency) {
+		// bucket i > 0 holds [2^(i+exp_offset-1), 2^(i+exp_offset)) us,
+		// bucket 0 anything shorter
+		long us = Math.max(0, latency / 1000);
+		int i = Math.max(0, 64 - Long.numberOfLeadingZeros(us) - exp_offset);
+		if (i < histogram.length)
+			histogram[i]++;
+		else
 			histogramoverflow++;
 		
-		for (int i = 0; i < Config.getConfig().histogram_buckets - 1; i++) {
-			if (latency < Math.pow(2.0, (double)(i + exp_offset))) {
-				histogram[i]++;
-				break;
-			}
-		}
-		
 		operations++;
 		totallatency += latency;
 		
@@ -104,20 +118,41 @@ public class OneMeasurementHistogram extends OneMeasurement {
 		}
 	}
 	
+	@Override
+	void reset() {
+		Arrays.fill(histogram, 0);
+		histogramoverflow = 0;
+		operations = 0;
+		totallatency = 0;
+		stddev_pts = 0;
+		min = -1;
+		max = -1;
+		returncodes.clear();
+	}
+
 	@Override
 	public synchronized void add(OneMeasurement m) {
-		operations += ((OneMeasurementHistogram)m).histogramoverflow;
-		totallatency += ((OneMeasurementHistogram)m).totallatency;
-		for (int i = 0; i < Config.getConfig().histogram_buckets; i++) {
-			this.histogram[i] += ((OneMeasurementHistogram)m).histogram[i];
-			this.operations += ((OneMeasurementHistogram)m).histogram[i];
+		OneMeasurementHistogram h = (OneMeasurementHistogram) m;
+		if (h.histogram.length != histogram.length)
+			throw new IllegalArgumentException(
+					"Cannot add histograms of different numbers of buckets");
+		operations += h.operations;
+		histogramoverflow += h.histogramoverflow;
+		totallatency += h.totallatency;
+		stddev_pts += h.stddev_pts;
+		for (int i = 0; i < histogram.length; i++) {
+			this.histogram[i] += h.histogram[i];
 		}
+		if (h.min >= 0 && (min < 0 || h.min < min))
+			min = h.min;
+		if (h.max > max)
+			max = h.max;
 		
 		Iterator<Integer> itr = m.getReturnCodes().keySet().iterator();
 		while (itr.hasNext()) {
 			Integer item = itr.next();
 			if (!this.returncodes.containsKey(item)) {
-				this.returncodes.put(item, m.getReturnCodes().get(item));
+				this.returncodes.put(item, new long[] { m.getReturnCodes().get(item)[0] });
 			} else {
 				long[] newcodes = new long[1];
 				newcodes[0] = returncodes.get(item)[0] + m.getReturnCodes().get(item)[0];
@@ -128,15 +163,15 @@ public class OneMeasurementHistogram extends OneMeasurement {
 
 	@Override
 	public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
-		double mean = ((double)totallatency / (double)operations);
+		double mean = ((double)totallatency / 1000 / (double)operations);
 		//double stddev = Math.sqrt(stddev_pts/operations);
-		exporter.write(getName(), "TotalLatency", (double)totallatency);
+		exporter.write(getName(), "TotalLatency", (double)totallatency / 1000);
 		exporter.write(getName(), "Operations", operations);		
 		//exporter.write(getName(), "LatencyOverflow", histogramoverflow);
 		exporter.write(getName(), "AverageLatency", computeTime(mean));
 		//exporter.write(getName(), "Standard Deviation", stddev);
-		exporter.write(getName(), "MinLatency", computeTime((double)min));
-		exporter.write(getName(), "MaxLatency", computeTime((double)max));
+		exporter.write(getName(), "MinLatency", computeTime((double)min / 1000));
+		exporter.write(getName(), "MaxLatency", computeTime((double)max / 1000));
 		exporter.write(getName(), "95thPercentileLatency", computeTime((int)getPercentile(histogram, .95)));
 		exporter.write(getName(), "99thPercentileLatency", computeTime((int)getPercentile(histogram, .99)));
 		exporter.write(getName(), "99.9thPercentileLatency", computeTime((int)getPercentile(histogram, .999)));
@@ -148,7 +183,7 @@ public class OneMeasurementHistogram extends OneMeasurement {
 
 		String lower_bound;
 		String upper_bound;
-		for (int i = 0; i < Config.getConfig().histogram_buckets; i++) {
+		for (int i = 0; i < histogram.length; i++) {
 			if (i == 0)
 				lower_bound = computeTime(0);
 			else
@@ -157,7 +192,7 @@ public class OneMeasurementHistogram extends OneMeasurement {
 			exporter.write(getName(), (lower_bound + " - " + upper_bound), histogram[i]);
 			
 		}
-		String overflowtime = computeTime((int)Math.pow(2.0, (double)((Config.getConfig().histogram_buckets + exp_offset - 1))));
+		String overflowtime = computeTime((int)Math.pow(2.0, (double)((histogram.length + exp_offset - 1))));
 		exporter.write(getName(), ">" + overflowtime, histogramoverflow);
 	}
 	
@@ -166,24 +201,45 @@ public class OneMeasurementHistogram extends OneMeasurement {
 		if (operations == 0) {
 			return "";
 		}
-		String avg = computeTime((int)(((double) totallatency) / ((double) operations)));
+		String avg = computeTime((int)(((double) totallatency) / 1000 / ((double) operations)));
 		String p99 = computeTime((int)getPercentile(histogram, .99));
 		
 		return "[" + getName() + " total=" + operations + "  avg=" + avg + " 99th=" + p99 + "]";
 	}
 	
+	/**
+	 * @return the upper bound of the bucket the percentile falls into, the
+	 *         bound of the overflow if it is beyond the last bucket. Unit: us
+	 */
 	public double getPercentile(long[] data, double percentile) {
 		int i;
-		int opcounter = 0;
-		for (i = 0; i < Config.getConfig().histogram_buckets; i++) {
+		long opcounter = 0;
+		for (i = 0; i < data.length; i++) {
 			opcounter += data[i];
 			if (((double) opcounter) / ((double) operations) >= percentile) {
 				break;
 			}
 		}
-		return (Math.pow(2, (i + 1 + exp_offset)));
+		return (Math.pow(2, (i + exp_offset)));
 	}
 	
+	/**
+	 * @return the upper bound of the bucket the percentile falls into,
+	 *         Double.POSITIVE_INFINITY if it is beyond the last bucket
+	 */
+	@Override
+	public synchronized double getPercentileLatency(double percentile) {
+		if (operations == 0)
+			return -1;
+		long opcounter = 0;
+		for (int i = 0; i < histogram.length; i++) {
+			opcounter += histogram[i];
+			if (((double) opcounter) / ((double) operations) >= percentile)
+				return Math.pow(2, i + exp_offset);
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
 	public long getOperations() { return operations; }
 	
 	public HashMap<Integer, long[]> getReturnCodes() { return returncodes; }
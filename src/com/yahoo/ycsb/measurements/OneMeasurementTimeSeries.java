@@ -18,29 +18,50 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.HashMap;
-import java.util.Vector;
+import java.util.TreeMap;
 
 import com.yahoo.ycsb.Config;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
-class SeriesUnit {
+class SeriesUnit implements Serializable {
+	private static final long serialVersionUID = -5108262467592314339L;
+
 	/**
 	 * @param time
-	 * @param average
 	 */
-	public SeriesUnit(long time, double average) {
+	public SeriesUnit(long time) {
 		this.time = time;
-		this.average = average;
 	}
 
+	/**
+	 * Start of the unit. Unit: ms since 1970, a multiple of the granularity
+	 */
 	public long time;
-	public double average;
+
+	/**
+	 * Number and sum of the latencies of the unit. Unit: ns
+	 */
+	public long count;
+	public long sum;
+
+	/**
+	 * @return the average latency of the unit. Unit: ms
+	 */
+	public double average() {
+		return ((double) sum) / 1000000 / ((double) count);
+	}
 }
 
 /**
  * A time series measurement of a metric, such as READ LATENCY.
+ *
+ * The units start at multiples of the granularity in wall-clock time, rather
+ * than at the first measurement, so the units of the series of several
+ * threads or clients (with synchronized clocks) line up, and add() merges
+ * them exactly.
  */
 public class OneMeasurementTimeSeries extends OneMeasurement {
 	private static final long serialVersionUID = 6685835576632562181L;
@@ -51,12 +72,20 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
 	 */
 
 	int _granularity;
-	Vector<SeriesUnit> _measurements;
 
-	long start = -1;
-	long currentunit = -1;
-	long count = 0;
-	long sum = 0;
+	/**
+	 * The units measured so far, by their start
+	 */
+	TreeMap<Long, SeriesUnit> _measurements;
+
+	/**
+	 * The unit measured last
+	 */
+	private SeriesUnit current;
+
+	/**
+	 * The latencies are summed in ns, and reported in ms
+	 */
 	long operations = 0;
 	long totallatency = 0;
 
@@ -64,45 +93,39 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
 	long windowoperations = 0;
 	long windowtotallatency = 0;
 
-	int min = -1;
-	int max = -1;
+	long min = -1;
+	long max = -1;
 
 	private HashMap<Integer, long[]> returncodes;
 
 	public OneMeasurementTimeSeries(String name) {
 		super(name);
 		_granularity = Config.getConfig().timeseries_granularity;
-		_measurements = new Vector<SeriesUnit>();
+		_measurements = new TreeMap<Long, SeriesUnit>();
 		returncodes = new HashMap<Integer, long[]>();
 	}
 
-	void checkEndOfUnit(boolean forceend) {
-		long now = System.currentTimeMillis();
-
-		if (start < 0) {
-			currentunit = 0;
-			start = now;
-		}
-
-		long unit = ((now - start) / _granularity) * _granularity;
-
-		if ((unit > currentunit) || (forceend)) {
-			double avg = ((double) sum) / ((double) count);
-			_measurements.add(new SeriesUnit(currentunit, avg));
-
-			currentunit = unit;
-
-			count = 0;
-			sum = 0;
+	/**
+	 * @return the unit of the given start, created if needed
+	 */
+	private SeriesUnit getUnit(long time) {
+		SeriesUnit unit = _measurements.get(time);
+		if (unit == null) {
+			unit = new SeriesUnit(time);
+			_measurements.put(time, unit);
 		}
+		return unit;
 	}
 
 	@Override
-	public void measure(int latency) {
-		checkEndOfUnit(false);
+	public synchronized void measureNanos(long latency) {
+		long now = System.currentTimeMillis();
+		long time = now - now % _granularity;
+		if (current == null || current.time != time)
+			current = getUnit(time);
 
-		count++;
-		sum += latency;
+		current.count++;
+		current.sum += latency;
 		totallatency += latency;
 		operations++;
 		windowoperations++;
@@ -118,15 +141,13 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
 	}
 
 	@Override
-	public void exportMeasurements(MeasurementsExporter exporter)
+	public synchronized void exportMeasurements(MeasurementsExporter exporter)
 			throws IOException {
-		checkEndOfUnit(true);
-
 		exporter.write(getName(), "Operations", operations);
 		exporter.write(getName(), "AverageLatency(ms)",
-				(((double) totallatency) / ((double) operations)));
-		exporter.write(getName(), "MinLatency(ms)", min);
-		exporter.write(getName(), "MaxLatency(ms)", max);
+				(((double) totallatency) / 1000000 / ((double) operations)));
+		exporter.write(getName(), "MinLatency(ms)", min / 1000000.0);
+		exporter.write(getName(), "MaxLatency(ms)", max / 1000000.0);
 
 		// TODO: 95th and 99th percentile latency
 
@@ -135,13 +156,18 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
 			exporter.write(getName(), "Return=" + I, val[0]);
 		}
 
-		for (SeriesUnit unit : _measurements) {
-			exporter.write(getName(), Long.toString(unit.time), unit.average);
+		// the units are reported from the start of the first one
+		if (_measurements.isEmpty())
+			return;
+		long start = _measurements.firstKey();
+		for (SeriesUnit unit : _measurements.values()) {
+			exporter.write(getName(), Long.toString(unit.time - start),
+					unit.average());
 		}
 	}
 
 	@Override
-	public void reportReturnCode(int code) {
+	public synchronized void reportReturnCode(int code) {
 		Integer Icode = code;
 		if (!returncodes.containsKey(Icode)) {
 			long[] val = new long[1];
@@ -153,12 +179,12 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
 	}
 
 	@Override
-	public String getSummary() {
+	public synchronized String getSummary() {
 		if (windowoperations == 0) {
 			return "";
 		}
 		DecimalFormat d = new DecimalFormat("#.##");
-		double report = ((double) windowtotallatency)
+		double report = ((double) windowtotallatency) / 1000000
 				/ ((double) windowoperations);
 		windowtotallatency = 0;
 		windowoperations = 0;
@@ -166,20 +192,46 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
 				+ "]";
 	}
 
+	/**
+	 * Adds the units, counts, sums, extremes and return codes of m, e.g. of
+	 * another client. The units of m are copied, not shared.
+	 */
 	@Override
-	public void add(OneMeasurement m) {
-		
+	public synchronized void add(OneMeasurement m) {
+		OneMeasurementTimeSeries t = (OneMeasurementTimeSeries) m;
+		if (t._granularity != _granularity)
+			throw new IllegalArgumentException(
+					"Cannot add time series of different granularities");
+		for (SeriesUnit u : t._measurements.values()) {
+			SeriesUnit unit = getUnit(u.time);
+			unit.count += u.count;
+			unit.sum += u.sum;
+		}
+		operations += t.operations;
+		totallatency += t.totallatency;
+		windowoperations += t.windowoperations;
+		windowtotallatency += t.windowtotallatency;
+		if (t.min >= 0 && (min < 0 || t.min < min))
+			min = t.min;
+		if (t.max > max)
+			max = t.max;
+
+		for (Integer code : t.returncodes.keySet()) {
+			long[] val = returncodes.get(code);
+			if (val == null)
+				returncodes.put(code, new long[] { t.returncodes.get(code)[0] });
+			else
+				val[0] += t.returncodes.get(code)[0];
+		}
 	}
 
 	@Override
-	public long getOperations() {
-		// TODO Auto-generated method stub
-		return 0;
+	public synchronized long getOperations() {
+		return operations;
 	}
 
 	@Override
 	public HashMap<Integer, long[]> getReturnCodes() {
-		// TODO Auto-generated method stub		
-		return null;
+		return returncodes;
 	}
 }
@@ -17,6 +17,9 @@
 
 package com.yahoo.ycsb.memcached;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 import com.yahoo.ycsb.DataStore;
 
 /**
@@ -182,4 +185,93 @@ public abstract class Memcached extends DataStore{
 	
 	public abstract int update(String key, Object value);
 
+	/**
+	 * Set several records at once, e.g. with one putAll or a multi-set. Used
+	 * by the bulk loader. The default sets the records one by one.
+	 * 
+	 * @param values
+	 *            key/value pairs to set
+	 * @return Zero on success, the first non-zero error code of the records
+	 *         otherwise
+	 */
+	public int setAll(Map<String, Object> values) {
+		int res = 0;
+		for (Map.Entry<String, Object> e : values.entrySet()) {
+			int r = set(e.getKey(), e.getValue());
+			if (res == 0)
+				res = r;
+		}
+		return res;
+	}
+
+	/*
+	 * Asynchronous variants. Each returns a future of the value the blocking
+	 * method would return. The defaults run the blocking method and return a
+	 * completed future; bindings whose client can pipeline requests (e.g.
+	 * Hazelcast getAsync/putAsync, spymemcached) override them so several
+	 * operations can be in flight on one connection.
+	 */
+
+	public CompletableFuture<Integer> addAsync(String key, Object value) {
+		return CompletableFuture.completedFuture(add(key, value));
+	}
+
+	public CompletableFuture<Integer> appendAsync(String key, long cas,
+			Object value) {
+		return CompletableFuture.completedFuture(append(key, cas, value));
+	}
+
+	public CompletableFuture<Integer> casAsync(String key, long cas,
+			Object value) {
+		return CompletableFuture.completedFuture(cas(key, cas, value));
+	}
+
+	/**
+	 * casAsync() as the second step of an operation, e.g. when its
+	 * getsAsync() completes, possibly on another thread than the one that
+	 * issued the operation. intended is the intended start of the operation
+	 * (Measurements.getIntendedStart()) when it was issued, only if
+	 * scheduled. The default ignores it.
+	 */
+	public CompletableFuture<Integer> casAsync(String key, long cas,
+			Object value, boolean scheduled, long intended) {
+		return casAsync(key, cas, value);
+	}
+
+	public CompletableFuture<Integer> decrAsync(String key, Object value) {
+		return CompletableFuture.completedFuture(decr(key, value));
+	}
+
+	public CompletableFuture<Integer> deleteAsync(String key) {
+		return CompletableFuture.completedFuture(delete(key));
+	}
+
+	public CompletableFuture<Integer> incrAsync(String key, Object value) {
+		return CompletableFuture.completedFuture(incr(key, value));
+	}
+
+	public CompletableFuture<Integer> getAsync(String key, Object value) {
+		return CompletableFuture.completedFuture(get(key, value));
+	}
+
+	public CompletableFuture<Long> getsAsync(String key) {
+		return CompletableFuture.completedFuture(gets(key));
+	}
+
+	public CompletableFuture<Integer> prependAsync(String key, long cas,
+			Object value) {
+		return CompletableFuture.completedFuture(prepend(key, cas, value));
+	}
+
+	public CompletableFuture<Integer> replaceAsync(String key, Object value) {
+		return CompletableFuture.completedFuture(replace(key, value));
+	}
+
+	public CompletableFuture<Integer> setAsync(String key, Object value) {
+		return CompletableFuture.completedFuture(set(key, value));
+	}
+
+	public CompletableFuture<Integer> updateAsync(String key, Object value) {
+		return CompletableFuture.completedFuture(update(key, value));
+	}
 }
@@ -17,7 +17,10 @@
 
 package com.yahoo.ycsb.memcached;
 
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 import com.yahoo.ycsb.DataStoreException;
 import com.yahoo.ycsb.measurements.Measurements;
@@ -77,7 +80,8 @@ public class MemcachedWrapper extends Memcached {
 		long st = System.nanoTime();
 		int res = _db.add(key, value);
 		long en = System.nanoTime();
-		_measurements.measure("ADD", (int) ((en - st) / 1000));
+		_measurements.measureNanos("ADD", en - st);
+		_measurements.measureIntended("ADD", en);
 		_measurements.reportReturnCode("ADD", res);
 		return res;
 	}
@@ -97,7 +101,8 @@ public class MemcachedWrapper extends Memcached {
 		long st = System.nanoTime();
 		int res = _db.append(key, cas, value);
 		long en = System.nanoTime();
-		_measurements.measure("APPEND", (int) ((en - st) / 1000));
+		_measurements.measureNanos("APPEND", en - st);
+		_measurements.measureIntended("APPEND", en);
 		_measurements.reportReturnCode("APPEND", res);
 		return res;
 	}
@@ -117,7 +122,8 @@ public class MemcachedWrapper extends Memcached {
 		long st = System.nanoTime();
 		int res = _db.cas(key, cas, value);
 		long en = System.nanoTime();
-		_measurements.measure("CAS", (int) ((en - st) / 1000));
+		_measurements.measureNanos("CAS", en - st);
+		_measurements.measureIntended("CAS", en);
 		_measurements.reportReturnCode("CAS", res);
 		return res;
 	}
@@ -135,7 +141,8 @@ public class MemcachedWrapper extends Memcached {
 		long st = System.nanoTime();
 		int res = _db.decr(key, value);
 		long en = System.nanoTime();
-		_measurements.measure("DECR", (int) ((en - st) / 1000));
+		_measurements.measureNanos("DECR", en - st);
+		_measurements.measureIntended("DECR", en);
 		_measurements.reportReturnCode("DECR", res);
 		return res;
 	}
@@ -151,7 +158,8 @@ public class MemcachedWrapper extends Memcached {
 		long st = System.nanoTime();
 		int res = _db.delete(key);
 		long en = System.nanoTime();
-		_measurements.measure("DELETE", (int) ((en - st) / 1000));
+		_measurements.measureNanos("DELETE", en - st);
+		_measurements.measureIntended("DELETE", en);
 		_measurements.reportReturnCode("DELETE", res);
 		return res;
 	}
@@ -169,7 +177,8 @@ public class MemcachedWrapper extends Memcached {
 		long st = System.nanoTime();
 		int res = _db.incr(key, value);
 		long en = System.nanoTime();
-		_measurements.measure("INCR", (int) ((en - st) / 1000));
+		_measurements.measureNanos("INCR", en - st);
+		_measurements.measureIntended("INCR", en);
 		_measurements.reportReturnCode("INCR", res);
 		return res;
 	}
@@ -187,7 +196,8 @@ public class MemcachedWrapper extends Memcached {
 		long st = System.nanoTime();
 		int res = _db.get(key, value);
 		long en = System.nanoTime();
-		_measurements.measure("GET", (int) ((en - st) / 1000));
+		_measurements.measureNanos("GET", en - st);
+		_measurements.measureIntended("GET", en);
 		_measurements.reportReturnCode("GET", res);
 		return res;
 	}
@@ -204,7 +214,8 @@ public class MemcachedWrapper extends Memcached {
 		long st = System.nanoTime();
 		long res = _db.gets(key);
 		long en = System.nanoTime();
-		_measurements.measure("GETS", (int) ((en - st) / 1000));
+		_measurements.measureNanos("GETS", en - st);
+		_measurements.measureIntended("GETS", en);
 		if (res > 0)
 			_measurements.reportReturnCode("GETS", 0);
 		else
@@ -227,7 +238,8 @@ public class MemcachedWrapper extends Memcached {
 		long st = System.nanoTime();
 		int res = _db.prepend(key, cas, value);
 		long en = System.nanoTime();
-		_measurements.measure("PREPEND", (int) ((en - st) / 1000));
+		_measurements.measureNanos("PREPEND", en - st);
+		_measurements.measureIntended("PREPEND", en);
 		_measurements.reportReturnCode("PREPEND", 0);
 		return res;
 	}
@@ -246,7 +258,8 @@ public class MemcachedWrapper extends Memcached {
 		long st = System.nanoTime();
 		int res = _db.replace(key, value);
 		long en = System.nanoTime();
-		_measurements.measure("REPLACE", (int) ((en - st) / 1000));
+		_measurements.measureNanos("REPLACE", en - st);
+		_measurements.measureIntended("REPLACE", en);
 		_measurements.reportReturnCode("REPLACE", res);
 		return res;
 	}
@@ -266,18 +279,162 @@ public class MemcachedWrapper extends Memcached {
 		long st = System.nanoTime();
 		int res = _db.set(key, value);
 		long en = System.nanoTime();
-		_measurements.measure("SET", (int) ((en - st) / 1000));
+		_measurements.measureNanos("SET", en - st);
+		_measurements.measureIntended("SET", en);
 		_measurements.reportReturnCode("SET", res);
 		return res;
 	}
+
+	/**
+	 * Sets several records at once. Measured as one operation.
+	 */
+	public int setAll(Map<String, Object> values) {
+		long st = System.nanoTime();
+		int res = _db.setAll(values);
+		long en = System.nanoTime();
+		_measurements.measureNanos("SETALL", en - st);
+		_measurements.measureIntended("SETALL", en);
+		_measurements.reportReturnCode("SETALL", res);
+		return res;
+	}
 	
 	public int update(String key, Object value) {
 		long st = System.nanoTime();
 		int res = _db.set(key, value);
 		long en = System.nanoTime();
-		_measurements.measure("UPDATE", (int) ((en - st) / 1000));
+		_measurements.measureNanos("UPDATE", en - st);
+		_measurements.measureIntended("UPDATE", en);
 		_measurements.reportReturnCode("UPDATE", res);
 		return res;
 	}
 
+	/**
+	 * Records the latency of an asynchronous operation when it completes,
+	 * measured from the time it was issued, and from its intended start if
+	 * the issuing thread follows a schedule.
+	 */
+	class AsyncMeasurement implements BiConsumer<Integer, Throwable> {
+		String op;
+		long st;
+		long intended;
+		boolean scheduled;
+
+		AsyncMeasurement(String op, long st) {
+			this.op = op;
+			this.st = st;
+			this.scheduled = _measurements.hasIntendedStart();
+			this.intended = _measurements.getIntendedStart();
+		}
+
+		/**
+		 * For an operation issued earlier, with the given intended start
+		 */
+		AsyncMeasurement(String op, long st, boolean scheduled, long intended) {
+			this.op = op;
+			this.st = st;
+			this.scheduled = scheduled;
+			this.intended = intended;
+		}
+
+		public void accept(Integer res, Throwable t) {
+			long en = System.nanoTime();
+			_measurements.measureNanos(op, en - st);
+			if (scheduled)
+				_measurements.measureIntended(op, intended, en);
+			_measurements.reportReturnCode(op, t == null ? res : -1);
+		}
+	}
+
+	public CompletableFuture<Integer> addAsync(String key, Object value) {
+		long st = System.nanoTime();
+		return _db.addAsync(key, value).whenComplete(
+				new AsyncMeasurement("ADD", st));
+	}
+
+	public CompletableFuture<Integer> appendAsync(String key, long cas,
+			Object value) {
+		long st = System.nanoTime();
+		return _db.appendAsync(key, cas, value).whenComplete(
+				new AsyncMeasurement("APPEND", st));
+	}
+
+	public CompletableFuture<Integer> casAsync(String key, long cas, Object value) {
+		long st = System.nanoTime();
+		return _db.casAsync(key, cas, value).whenComplete(
+				new AsyncMeasurement("CAS", st));
+	}
+
+	public CompletableFuture<Integer> casAsync(String key, long cas,
+			Object value, boolean scheduled, long intended) {
+		long st = System.nanoTime();
+		return _db.casAsync(key, cas, value).whenComplete(
+				new AsyncMeasurement("CAS", st, scheduled, intended));
+	}
+
+	public CompletableFuture<Integer> decrAsync(String key, Object value) {
+		long st = System.nanoTime();
+		return _db.decrAsync(key, value).whenComplete(
+				new AsyncMeasurement("DECR", st));
+	}
+
+	public CompletableFuture<Integer> deleteAsync(String key) {
+		long st = System.nanoTime();
+		return _db.deleteAsync(key).whenComplete(
+				new AsyncMeasurement("DELETE", st));
+	}
+
+	public CompletableFuture<Integer> incrAsync(String key, Object value) {
+		long st = System.nanoTime();
+		return _db.incrAsync(key, value).whenComplete(
+				new AsyncMeasurement("INCR", st));
+	}
+
+	public CompletableFuture<Integer> getAsync(String key, Object value) {
+		long st = System.nanoTime();
+		return _db.getAsync(key, value).whenComplete(
+				new AsyncMeasurement("GET", st));
+	}
+
+	public CompletableFuture<Integer> prependAsync(String key, long cas,
+			Object value) {
+		long st = System.nanoTime();
+		return _db.prependAsync(key, cas, value).whenComplete(
+				new AsyncMeasurement("PREPEND", st));
+	}
+
+	public CompletableFuture<Integer> replaceAsync(String key, Object value) {
+		long st = System.nanoTime();
+		return _db.replaceAsync(key, value).whenComplete(
+				new AsyncMeasurement("REPLACE", st));
+	}
+
+	public CompletableFuture<Integer> setAsync(String key, Object value) {
+		long st = System.nanoTime();
+		return _db.setAsync(key, value).whenComplete(
+				new AsyncMeasurement("SET", st));
+	}
+
+	public CompletableFuture<Long> getsAsync(String key) {
+		final long st = System.nanoTime();
+		final boolean scheduled = _measurements.hasIntendedStart();
+		final long intended = _measurements.getIntendedStart();
+		return _db.getsAsync(key).whenComplete(new BiConsumer<Long, Throwable>() {
+			public void accept(Long res, Throwable t) {
+				long en = System.nanoTime();
+				_measurements.measureNanos("GETS", en - st);
+				if (scheduled)
+					_measurements.measureIntended("GETS", intended, en);
+				if (t == null && res > 0)
+					_measurements.reportReturnCode("GETS", 0);
+				else
+					_measurements.reportReturnCode("GETS", -1);
+			}
+		});
+	}
+
+	public CompletableFuture<Integer> updateAsync(String key, Object value) {
+		long st = System.nanoTime();
+		return _db.setAsync(key, value).whenComplete(
+				new AsyncMeasurement("UPDATE", st));
+	}
 }
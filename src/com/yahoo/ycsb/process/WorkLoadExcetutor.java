@@ -10,6 +10,7 @@ import java.util.Properties;
 import com.once.cluster.utils.FileUtils;
 import com.yahoo.ycsb.Config;
 import com.yahoo.ycsb.client.MasterClient;
+import com.yahoo.ycsb.client.SaturationSearch;
 import com.yahoo.ycsb.measurements.Measurements;
 
 public class WorkLoadExcetutor {
@@ -83,14 +84,18 @@ public class WorkLoadExcetutor {
 									this.templateFile.getAbsolutePath(),
 									specificConf));
 
-		MasterClient client = MasterClient.getMasterClient();
-		//必须添加这行，以清除上一个workload的统计数据
-		Measurements.reload();
-
-		client.init();
-		client.setupSlaves();
-		client.execute();
-		client.shutdown();
+		if (Config.getConfig().saturation_search != null) {
+			new SaturationSearch().execute();
+		} else {
+			MasterClient client = MasterClient.getMasterClient();
+			//必须添加这行，以清除上一个workload的统计数据
+			Measurements.reload();
+
+			client.init();
+			client.setupSlaves();
+			client.execute();
+			client.shutdown();
+		}
 
 		if (this.workloadFile != null)
 			System.out.println("  ===End test with workload: "
@@ -3,11 +3,31 @@ package com.yahoo.ycsb.rmi;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 
+/**
+ * Runtime control of a test in progress. Every change is applied to the master
+ * and all its slaves.
+ */
 public interface MasterRMIInterface extends Remote {
 	
 	public void changeWorkingSet(int workingset) throws RemoteException;
 	
+	/**
+	 * @param throughput
+	 *            the new target of every client, as the "target" property
+	 */
 	public void changeThroughput(int throughput) throws RemoteException;
 	
+	/**
+	 * Change the recordcount by delta every seconds until it reaches maxitems.
+	 * The records below a larger recordcount have to be loaded already; the
+	 * inserts of the test continue after them.
+	 */
 	public void changeItemCount(int delta, int seconds, int maxitems) throws RemoteException;
+
+	/**
+	 * @param threads
+	 *            the number of active threads of every client, at most the
+	 *            threadcount the test was started with
+	 */
+	public void changeThreadCount(int threads) throws RemoteException;
 }
@@ -18,4 +18,40 @@ public interface SlaveRMIInterface extends Remote {
 	public void shutdown() throws RemoteException;
 	
 	public int setProperties(Config c) throws RemoteException;
+
+	/**
+	 * @return true once the threads of the test started by execute() are
+	 *         connected and wait for start(), false before
+	 */
+	public boolean isReady() throws RemoteException;
+
+	/**
+	 * Lets the threads of the slave begin at startmillis (wall-clock time).
+	 */
+	public void start(long startmillis) throws RemoteException;
+
+	/*
+	 * Runtime control, applied to the running test and to the following ones
+	 */
+
+	/**
+	 * @param target
+	 *            operations per second of this slave, 0 for no rate control
+	 */
+	public void changeThroughput(int target) throws RemoteException;
+
+	/**
+	 * @param count
+	 *            number of active threads, at most threadcount
+	 */
+	public void changeThreadCount(int count) throws RemoteException;
+
+	public void changeWorkingSet(int workingset) throws RemoteException;
+
+	/**
+	 * @param itemcount
+	 *            the new recordcount the keys are chosen from; the
+	 *            records below it have to be loaded already
+	 */
+	public void changeItemCount(int itemcount) throws RemoteException;
 }
@@ -0,0 +1,67 @@
+package com.yahoo.ycsb.trace;
+
+/**
+ * Format of an operation trace: the stream of operations a run generated,
+ * recorded by TraceWriter so that it can be replayed against another
+ * configuration of the system under test.
+ *
+ * <pre>
+ * file:   magic "YCSBTRC1", start of the recording (long, ms since 1970),
+ *         then blocks until the end of the file
+ * block:  thread (int), number of records (int), length of the records in
+ *         bytes (int), intended start of the first record (long, ns since
+ *         the start of the recording), then the records
+ * record: operation (byte, see NAMES), distance of its intended start from
+ *         the one of the previous record of the block (zigzag varint, ns),
+ *         length of the key (varint), key (UTF-8), value size (varint:
+ *         characters of the value, number of records of a scan)
+ * </pre>
+ *
+ * The records of a block are those of one thread of the recording client,
+ * in the order they were issued. Numbers are big-endian; a varint holds 7
+ * bits per byte, low bits first, the high bit set on all bytes but the last.
+ */
+public class Trace {
+	public static final byte[] MAGIC = { 'Y', 'C', 'S', 'B', 'T', 'R', 'C',
+			'1' };
+
+	/**
+	 * Size of the file header and of a block header. Unit: bytes
+	 */
+	public static final int FILE_HEADER = 16;
+	public static final int BLOCK_HEADER = 20;
+
+	public static final byte READ = 0;
+	public static final byte SCAN = 1;
+	public static final byte UPDATE = 2;
+	public static final byte INSERT = 3;
+	public static final byte DELETE = 4;
+	public static final byte GET = 5;
+	public static final byte GETS = 6;
+	public static final byte SET = 7;
+	public static final byte ADD = 8;
+	public static final byte APPEND = 9;
+	public static final byte PREPEND = 10;
+	public static final byte CAS = 11;
+	public static final byte INCR = 12;
+	public static final byte DECR = 13;
+	public static final byte REPLACE = 14;
+
+	/**
+	 * Name of each operation, indexed by its code
+	 */
+	public static final String[] NAMES = { "READ", "SCAN", "UPDATE", "INSERT",
+			"DELETE", "GET", "GETS", "SET", "ADD", "APPEND", "PREPEND", "CAS",
+			"INCR", "DECR", "REPLACE" };
+
+	/**
+	 * @return the code of the operation of the given name, -1 if unknown
+	 */
+	public static byte getCode(String name) {
+		for (byte i = 0; i < NAMES.length; i++) {
+			if (NAMES[i].equals(name))
+				return i;
+		}
+		return -1;
+	}
+}
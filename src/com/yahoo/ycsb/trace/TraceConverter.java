@@ -0,0 +1,104 @@
+package com.yahoo.ycsb.trace;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Converts a text trace, e.g. one derived from production logs, to the
+ * binary format replayed by TraceReplayWorkload. One operation per line:
+ *
+ * <pre>
+ * time operation key [value size]
+ * </pre>
+ *
+ * separated by blanks or commas, in the order of time. The operations are
+ * the names of Trace (case does not matter). Empty lines and lines starting
+ * with # are skipped.
+ *
+ * The operations are split into streams by key, so that they can be replayed
+ * by as many threads with their original timing while the operations on one
+ * key stay in order.
+ */
+public class TraceConverter {
+
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.out
+					.println("Usage: java com.yahoo.ycsb.trace.TraceConverter <text trace> <trace> [streams (default 64)] [time unit s|ms|us|ns (default us)]");
+			System.exit(0);
+		}
+		int streams = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+		String unit = args.length > 3 ? args[3] : "us";
+		long scale = 1;
+		if (unit.equals("s"))
+			scale = 1000000000L;
+		else if (unit.equals("ms"))
+			scale = 1000000L;
+		else if (unit.equals("us"))
+			scale = 1000L;
+		else if (!unit.equals("ns")) {
+			System.out.println("Unknown time unit " + unit);
+			System.exit(0);
+		}
+
+		try {
+			long ops = convert(args[0], args[1], Math.max(1, streams), scale);
+			System.out.println("converted " + ops + " operations to "
+					+ args[1]);
+		} catch (IOException e) {
+			System.out.println("Could not convert " + args[0] + ": "
+					+ e.getMessage());
+			System.exit(0);
+		}
+	}
+
+	/**
+	 * @param scale
+	 *            ns per unit of the times of the text trace
+	 * @return the number of operations converted
+	 */
+	static long convert(String in, String out, int streams, long scale)
+			throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(in), "UTF-8"));
+		TraceWriter writer = new TraceWriter(out);
+		long ops = 0;
+		int lineno = 0;
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineno++;
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#"))
+					continue;
+				String[] fields = line.split("[,\\s]+");
+				if (fields.length < 3)
+					throw new IOException("line " + lineno
+							+ ": needs time, operation and key");
+				byte op = Trace.getCode(fields[1].toUpperCase());
+				if (op < 0)
+					throw new IOException("line " + lineno
+							+ ": unknown operation " + fields[1]);
+				long time;
+				int size;
+				try {
+					time = (long) (Double.parseDouble(fields[0]) * scale);
+					size = fields.length > 3 ? Integer.parseInt(fields[3]) : 0;
+				} catch (NumberFormatException e) {
+					throw new IOException("line " + lineno + ": "
+							+ e.getMessage());
+				}
+				String key = fields[2];
+				writer.record((key.hashCode() & Integer.MAX_VALUE) % streams,
+						time, op, key, size);
+				ops++;
+			}
+		} finally {
+			reader.close();
+			writer.close();
+		}
+		return ops;
+	}
+}
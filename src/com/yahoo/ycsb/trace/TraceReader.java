@@ -0,0 +1,302 @@
+package com.yahoo.ycsb.trace;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a trace file (see Trace) through memory mappings. The file is indexed
+ * once by its block headers; the blocks are then divided among the replaying
+ * threads, each of which decodes its own blocks with a Cursor of its own.
+ * The mappings are only read with absolute gets, so the threads share them
+ * without locks.
+ */
+public class TraceReader {
+	/**
+	 * Largest mapping. Unit: bytes
+	 */
+	private static final long SEGMENT_SIZE = 1L << 30;
+
+	private final String filename;
+	private final MappedByteBuffer[] segments;
+
+	/**
+	 * Per block: its mapping, the position of its records in the mapping,
+	 * the thread that recorded it, its number of records and the intended
+	 * start of its first record (ns since the start of the recording)
+	 */
+	private final int[] blocksegment;
+	private final int[] blockposition;
+	private final int[] blockthread;
+	private final int[] blockcount;
+	private final long[] blockfirst;
+
+	private final int threads;
+	private final long operations;
+	private final long start;
+
+	/**
+	 * Map and index the trace file. Stops at a truncated last block, e.g. of
+	 * a recording that was killed.
+	 */
+	public TraceReader(String filename) throws IOException {
+		this.filename = filename;
+		List<long[]> index = new ArrayList<long[]>();
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			long size = channel.size();
+			ByteBuffer header = ByteBuffer.allocate(Trace.BLOCK_HEADER);
+			channel.read(header, 0);
+			byte[] magic = new byte[Trace.MAGIC.length];
+			header.flip();
+			if (header.remaining() >= magic.length)
+				header.get(magic);
+			if (!Arrays.equals(magic, Trace.MAGIC))
+				throw new IOException(filename + " is not a trace");
+
+			List<long[]> ranges = new ArrayList<long[]>();
+			long segmentstart = Trace.FILE_HEADER;
+			long position = Trace.FILE_HEADER;
+			while (position + Trace.BLOCK_HEADER <= size) {
+				header.clear();
+				while (header.hasRemaining()
+						&& channel.read(header, position + header.position()) > 0)
+					;
+				header.flip();
+				int thread = header.getInt();
+				int count = header.getInt();
+				int length = header.getInt();
+				long first = header.getLong();
+				long end = position + Trace.BLOCK_HEADER + length;
+				if (length < 0 || count < 0 || end > size) {
+					System.err.println("Trace " + filename
+							+ " is truncated at byte " + position);
+					break;
+				}
+				if (end - segmentstart > SEGMENT_SIZE) {
+					ranges.add(new long[] { segmentstart, position });
+					segmentstart = position;
+				}
+				index.add(new long[] { ranges.size(),
+						position + Trace.BLOCK_HEADER - segmentstart, thread,
+						count, first });
+				position = end;
+			}
+			if (position > segmentstart)
+				ranges.add(new long[] { segmentstart, position });
+
+			segments = new MappedByteBuffer[ranges.size()];
+			for (int i = 0; i < segments.length; i++) {
+				long[] r = ranges.get(i);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, r[0],
+						r[1] - r[0]);
+			}
+		} finally {
+			// the mappings stay valid
+			file.close();
+		}
+
+		// separate arrays rather than block objects, e.g. for millions of blocks
+		int n = index.size();
+		blocksegment = new int[n];
+		blockposition = new int[n];
+		blockthread = new int[n];
+		blockcount = new int[n];
+		blockfirst = new long[n];
+		long ops = 0;
+		long st = Long.MAX_VALUE;
+		int maxthread = -1;
+		for (int i = 0; i < n; i++) {
+			long[] b = index.get(i);
+			blocksegment[i] = (int) b[0];
+			blockposition[i] = (int) b[1];
+			blockthread[i] = (int) b[2];
+			blockcount[i] = (int) b[3];
+			blockfirst[i] = b[4];
+			ops += blockcount[i];
+			st = Math.min(st, blockfirst[i]);
+			maxthread = Math.max(maxthread, blockthread[i]);
+		}
+		operations = ops;
+		start = n == 0 ? 0 : st;
+		threads = maxthread + 1;
+	}
+
+	public String getFilename() {
+		return filename;
+	}
+
+	/**
+	 * @return the number of operations in the trace
+	 */
+	public long getOperations() {
+		return operations;
+	}
+
+	/**
+	 * @return the number of threads that recorded the trace
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @return the intended start of the first operation of the trace. Unit:
+	 *         ns since the start of the recording
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	/**
+	 * Create the cursor of one of several replaying threads.
+	 *
+	 * @param slot
+	 *            index of the replaying thread among all of them, in [0,
+	 *            slots)
+	 * @param bythread
+	 *            true to give each replaying thread all the blocks of some of
+	 *            the recording threads, so that it sees their operations in
+	 *            the order and with the timing they were issued; false to
+	 *            deal the blocks out evenly
+	 */
+	public Cursor cursor(int slot, int slots, boolean bythread) {
+		int count = 0;
+		int[] mine = new int[blockthread.length];
+		for (int i = 0; i < blockthread.length; i++) {
+			if ((bythread ? blockthread[i] : i) % slots == slot)
+				mine[count++] = i;
+		}
+		return new Cursor(Arrays.copyOf(mine, count));
+	}
+
+	/**
+	 * Decodes the records of a set of blocks, in order. Used by one thread.
+	 */
+	public class Cursor {
+		private final int[] blocks;
+		private int next;
+
+		private ByteBuffer buffer;
+		private int position;
+		private int left;
+
+		/**
+		 * The current record
+		 */
+		private byte op;
+		private String key;
+		private int size;
+		private long intended;
+
+		private byte[] bytes = new byte[256];
+		private char[] chars = new char[256];
+
+		Cursor(int[] blocks) {
+			this.blocks = blocks;
+		}
+
+		/**
+		 * @return the number of operations of this cursor
+		 */
+		public long getOperations() {
+			long ops = 0;
+			for (int b : blocks)
+				ops += blockcount[b];
+			return ops;
+		}
+
+		/**
+		 * Move to the next record.
+		 *
+		 * @return false at the end of the blocks of this cursor
+		 */
+		public boolean next() {
+			while (left == 0) {
+				if (next >= blocks.length)
+					return false;
+				int b = blocks[next++];
+				buffer = segments[blocksegment[b]];
+				position = blockposition[b];
+				left = blockcount[b];
+				intended = blockfirst[b];
+			}
+			ByteBuffer d = buffer;
+			op = d.get(position++);
+			long z = getVarLong(d);
+			intended += (z >>> 1) ^ -(z & 1);
+			int length = (int) getVarLong(d);
+			key = getString(d, length);
+			size = (int) getVarLong(d);
+			left--;
+			return true;
+		}
+
+		private long getVarLong(ByteBuffer d) {
+			long v = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = d.get(position++);
+				v |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return v;
+		}
+
+		private String getString(ByteBuffer d, int length) {
+			if (length > chars.length) {
+				chars = new char[length];
+				bytes = new byte[length];
+			}
+			boolean ascii = true;
+			for (int i = 0; i < length; i++) {
+				byte b = d.get(position + i);
+				bytes[i] = b;
+				chars[i] = (char) b;
+				ascii &= b >= 0;
+			}
+			position += length;
+			if (ascii)
+				return new String(chars, 0, length);
+			try {
+				return new String(bytes, 0, length, "UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/**
+		 * @return code of the operation of the current record, see Trace
+		 */
+		public byte getOp() {
+			return op;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		/**
+		 * @return characters of the value, number of records of a scan
+		 */
+		public int getSize() {
+			return size;
+		}
+
+		/**
+		 * @return intended start of the current record. Unit: ns since the
+		 *         start of the recording
+		 */
+		public long getIntended() {
+			return intended;
+		}
+	}
+}
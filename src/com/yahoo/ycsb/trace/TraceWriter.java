@@ -0,0 +1,249 @@
+package com.yahoo.ycsb.trace;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the operations of a run to a trace file, see Trace for the format.
+ * Every thread encodes its records into a block of its own and only takes
+ * the lock of the file to write a full block, so recording costs a few
+ * stores per operation and one write per BLOCK_SIZE bytes.
+ *
+ * The thread that issues the operations tells the writer when each one was
+ * meant to start (setIntended), the recording data store then adds the
+ * record (record). A converter from another format instead gives the
+ * stream and time of every record itself.
+ */
+public class TraceWriter {
+	/**
+	 * Size of the block of a thread. Unit: bytes
+	 */
+	public static final int BLOCK_SIZE = 64 * 1024;
+
+	/**
+	 * Longest record besides its key. Unit: bytes
+	 */
+	private static final int MAX_RECORD = 1 + 10 + 5 + 5;
+
+	/**
+	 * The block of records of one thread
+	 */
+	private class Block {
+		final int thread;
+		byte[] data = new byte[BLOCK_SIZE];
+		int length = Trace.BLOCK_HEADER;
+		int count;
+
+		/**
+		 * Intended start of the next record, of the first and of the last
+		 * record of the block. Unit: ns since origin
+		 */
+		long intended;
+		long first;
+		long last;
+
+		Block(int thread) {
+			this.thread = thread;
+		}
+	}
+
+	private final FileChannel channel;
+	private final long origin;
+	private final AtomicInteger threads = new AtomicInteger();
+	private final AtomicLong records = new AtomicLong();
+	private final List<Block> blocks = new ArrayList<Block>();
+	private final ThreadLocal<Block> block = new ThreadLocal<Block>() {
+		protected Block initialValue() {
+			Block b = new Block(threads.getAndIncrement());
+			synchronized (blocks) {
+				blocks.add(b);
+			}
+			return b;
+		}
+	};
+	private boolean closed;
+
+	/**
+	 * Blocks of the streams of a conversion, by index
+	 */
+	private final List<Block> streams = new ArrayList<Block>();
+
+	/**
+	 * Create the trace file, replacing an existing one.
+	 */
+	public TraceWriter(String filename) throws IOException {
+		channel = new FileOutputStream(filename).getChannel();
+		origin = System.nanoTime();
+		ByteBuffer header = ByteBuffer.allocate(Trace.FILE_HEADER);
+		header.put(Trace.MAGIC);
+		header.putLong(System.currentTimeMillis());
+		header.flip();
+		write(header);
+	}
+
+	/**
+	 * Set the intended start of the next operation of the calling thread.
+	 *
+	 * @param nanos
+	 *            System.nanoTime
+	 */
+	public void setIntended(long nanos) {
+		block.get().intended = nanos - origin;
+	}
+
+	/**
+	 * Record an operation of the calling thread.
+	 *
+	 * @param op
+	 *            operation code, e.g. Trace.READ
+	 * @param size
+	 *            characters of the value, number of records of a scan
+	 */
+	public void record(byte op, String key, int size) {
+		record(block.get(), op, key, size);
+	}
+
+	/**
+	 * Record an operation of the given stream rather than of the calling
+	 * thread, e.g. when converting a trace of another format. Not thread
+	 * safe, and not to be mixed with the other record().
+	 *
+	 * @param elapsed
+	 *            intended start. Unit: ns since the start of the recording
+	 */
+	public void record(int stream, long elapsed, byte op, String key, int size) {
+		while (streams.size() <= stream) {
+			Block b = new Block(streams.size());
+			streams.add(b);
+			synchronized (blocks) {
+				blocks.add(b);
+			}
+		}
+		Block b = streams.get(stream);
+		b.intended = elapsed;
+		record(b, op, key, size);
+	}
+
+	private void record(Block b, byte op, String key, int size) {
+		int keylength = key.length();
+		byte[] utf = null;
+		for (int i = 0; i < keylength; i++) {
+			if (key.charAt(i) >= 0x80) {
+				utf = toUTF8(key);
+				keylength = utf.length;
+				break;
+			}
+		}
+
+		if (b.length + MAX_RECORD + keylength > b.data.length) {
+			flush(b);
+			if (Trace.BLOCK_HEADER + MAX_RECORD + keylength > b.data.length)
+				b.data = new byte[Trace.BLOCK_HEADER + MAX_RECORD + keylength];
+		}
+		if (b.count == 0) {
+			b.first = b.intended;
+			b.last = b.intended;
+		}
+
+		byte[] d = b.data;
+		int p = b.length;
+		d[p++] = op;
+		long delta = b.intended - b.last;
+		p = putVarLong(d, p, (delta << 1) ^ (delta >> 63));
+		p = putVarLong(d, p, keylength);
+		if (utf == null) {
+			for (int i = 0; i < keylength; i++)
+				d[p++] = (byte) key.charAt(i);
+		} else {
+			System.arraycopy(utf, 0, d, p, keylength);
+			p += keylength;
+		}
+		p = putVarLong(d, p, Math.max(0, size));
+		b.length = p;
+		b.last = b.intended;
+		b.count++;
+	}
+
+	/**
+	 * @return the number of operations written so far
+	 */
+	public long getRecords() {
+		return records.get();
+	}
+
+	/**
+	 * Write the blocks of every thread and close the file. The threads have
+	 * to be done recording.
+	 */
+	public void close() throws IOException {
+		synchronized (blocks) {
+			if (closed)
+				return;
+			closed = true;
+			for (Block b : blocks)
+				flush(b);
+		}
+		channel.close();
+	}
+
+	private void flush(Block b) {
+		if (b.count == 0)
+			return;
+		ByteBuffer buffer = ByteBuffer.wrap(b.data, 0, b.length);
+		buffer.putInt(b.thread);
+		buffer.putInt(b.count);
+		buffer.putInt(b.length - Trace.BLOCK_HEADER);
+		buffer.putLong(b.first);
+		buffer.position(0);
+		try {
+			write(buffer);
+		} catch (IOException e) {
+			System.err.println("Could not write the trace: " + e.getMessage());
+		}
+		records.addAndGet(b.count);
+		b.length = Trace.BLOCK_HEADER;
+		b.count = 0;
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		synchronized (channel) {
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		}
+	}
+
+	private static int putVarLong(byte[] d, int p, long v) {
+		while ((v & ~0x7FL) != 0) {
+			d[p++] = (byte) ((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		d[p++] = (byte) v;
+		return p;
+	}
+
+	private static byte[] toUTF8(String s) {
+		try {
+			return s.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return characters of a value of a key/value store, 0 if unknown
+	 */
+	public static int sizeOf(Object value) {
+		if (value instanceof String)
+			return ((String) value).length();
+		if (value instanceof byte[])
+			return ((byte[]) value).length;
+		return 0;
+	}
+}
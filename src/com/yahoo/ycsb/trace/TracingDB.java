@@ -0,0 +1,122 @@
+package com.yahoo.ycsb.trace;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+
+import com.yahoo.ycsb.DataStoreException;
+import com.yahoo.ycsb.database.DB;
+
+/**
+ * Wrapper around a DB (usually a DBWrapper) that records every operation to
+ * a trace before passing it on.
+ */
+public class TracingDB extends DB {
+	DB _db;
+	TraceWriter _trace;
+
+	public TracingDB(DB db, TraceWriter trace) {
+		_db = db;
+		_trace = trace;
+	}
+
+	public void setProperties(Properties p) {
+		_db.setProperties(p);
+	}
+
+	public Properties getProperties() {
+		return _db.getProperties();
+	}
+
+	public void init() throws DataStoreException {
+		_db.init();
+	}
+
+	public void cleanup() throws DataStoreException {
+		_db.cleanup();
+	}
+
+	/**
+	 * @return characters of the values of a record
+	 */
+	static int sizeOf(HashMap<String, String> values) {
+		if (values == null)
+			return 0;
+		int size = 0;
+		for (String v : values.values()) {
+			if (v != null)
+				size += v.length();
+		}
+		return size;
+	}
+
+	public int read(String table, String key, Set<String> fields,
+			HashMap<String, String> result) {
+		_trace.record(Trace.READ, key, 0);
+		return _db.read(table, key, fields, result);
+	}
+
+	public int scan(String table, String startkey, int recordcount,
+			Set<String> fields, Vector<HashMap<String, String>> result) {
+		_trace.record(Trace.SCAN, startkey, recordcount);
+		return _db.scan(table, startkey, recordcount, fields, result);
+	}
+
+	public int update(String table, String key, HashMap<String, String> values) {
+		_trace.record(Trace.UPDATE, key, sizeOf(values));
+		return _db.update(table, key, values);
+	}
+
+	public int insert(String table, String key, HashMap<String, String> values) {
+		_trace.record(Trace.INSERT, key, sizeOf(values));
+		return _db.insert(table, key, values);
+	}
+
+	/**
+	 * Recorded as one insert per record.
+	 */
+	public int insertAll(String table,
+			Map<String, HashMap<String, String>> records) {
+		for (Map.Entry<String, HashMap<String, String>> e : records.entrySet())
+			_trace.record(Trace.INSERT, e.getKey(), sizeOf(e.getValue()));
+		return _db.insertAll(table, records);
+	}
+
+	public int delete(String table, String key) {
+		_trace.record(Trace.DELETE, key, 0);
+		return _db.delete(table, key);
+	}
+
+	public CompletableFuture<Integer> readAsync(String table, String key,
+			Set<String> fields, HashMap<String, String> result) {
+		_trace.record(Trace.READ, key, 0);
+		return _db.readAsync(table, key, fields, result);
+	}
+
+	public CompletableFuture<Integer> scanAsync(String table, String startkey,
+			int recordcount, Set<String> fields,
+			Vector<HashMap<String, String>> result) {
+		_trace.record(Trace.SCAN, startkey, recordcount);
+		return _db.scanAsync(table, startkey, recordcount, fields, result);
+	}
+
+	public CompletableFuture<Integer> updateAsync(String table, String key,
+			HashMap<String, String> values) {
+		_trace.record(Trace.UPDATE, key, sizeOf(values));
+		return _db.updateAsync(table, key, values);
+	}
+
+	public CompletableFuture<Integer> insertAsync(String table, String key,
+			HashMap<String, String> values) {
+		_trace.record(Trace.INSERT, key, sizeOf(values));
+		return _db.insertAsync(table, key, values);
+	}
+
+	public CompletableFuture<Integer> deleteAsync(String table, String key) {
+		_trace.record(Trace.DELETE, key, 0);
+		return _db.deleteAsync(table, key);
+	}
+}
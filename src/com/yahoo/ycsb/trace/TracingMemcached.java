@@ -0,0 +1,177 @@
+package com.yahoo.ycsb.trace;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import com.yahoo.ycsb.DataStoreException;
+import com.yahoo.ycsb.memcached.Memcached;
+
+/**
+ * Wrapper around a Memcached (usually a MemcachedWrapper) that records every
+ * operation to a trace before passing it on.
+ */
+public class TracingMemcached extends Memcached {
+	Memcached _db;
+	TraceWriter _trace;
+
+	public TracingMemcached(Memcached memcached, TraceWriter trace) {
+		_db = memcached;
+		_trace = trace;
+	}
+
+	public void setProperties(Properties p) {
+		_db.setProperties(p);
+	}
+
+	public Properties getProperties() {
+		return _db.getProperties();
+	}
+
+	public void init() throws DataStoreException {
+		_db.init();
+	}
+
+	public void cleanup() throws DataStoreException {
+		_db.cleanup();
+	}
+
+	public int add(String key, Object value) {
+		_trace.record(Trace.ADD, key, TraceWriter.sizeOf(value));
+		return _db.add(key, value);
+	}
+
+	public int append(String key, long cas, Object value) {
+		_trace.record(Trace.APPEND, key, TraceWriter.sizeOf(value));
+		return _db.append(key, cas, value);
+	}
+
+	public int cas(String key, long cas, Object value) {
+		_trace.record(Trace.CAS, key, TraceWriter.sizeOf(value));
+		return _db.cas(key, cas, value);
+	}
+
+	public int decr(String key, Object value) {
+		_trace.record(Trace.DECR, key, TraceWriter.sizeOf(value));
+		return _db.decr(key, value);
+	}
+
+	public int delete(String key) {
+		_trace.record(Trace.DELETE, key, 0);
+		return _db.delete(key);
+	}
+
+	public int incr(String key, Object value) {
+		_trace.record(Trace.INCR, key, TraceWriter.sizeOf(value));
+		return _db.incr(key, value);
+	}
+
+	public int get(String key, Object value) {
+		_trace.record(Trace.GET, key, 0);
+		return _db.get(key, value);
+	}
+
+	public long gets(String key) {
+		_trace.record(Trace.GETS, key, 0);
+		return _db.gets(key);
+	}
+
+	public int prepend(String key, long cas, Object value) {
+		_trace.record(Trace.PREPEND, key, TraceWriter.sizeOf(value));
+		return _db.prepend(key, cas, value);
+	}
+
+	public int replace(String key, Object value) {
+		_trace.record(Trace.REPLACE, key, TraceWriter.sizeOf(value));
+		return _db.replace(key, value);
+	}
+
+	public int set(String key, Object value) {
+		_trace.record(Trace.SET, key, TraceWriter.sizeOf(value));
+		return _db.set(key, value);
+	}
+
+	/**
+	 * Recorded as one set per record.
+	 */
+	public int setAll(Map<String, Object> values) {
+		for (Map.Entry<String, Object> e : values.entrySet())
+			_trace.record(Trace.SET, e.getKey(), TraceWriter.sizeOf(e
+					.getValue()));
+		return _db.setAll(values);
+	}
+
+	public int update(String key, Object value) {
+		_trace.record(Trace.UPDATE, key, TraceWriter.sizeOf(value));
+		return _db.update(key, value);
+	}
+
+	public CompletableFuture<Integer> addAsync(String key, Object value) {
+		_trace.record(Trace.ADD, key, TraceWriter.sizeOf(value));
+		return _db.addAsync(key, value);
+	}
+
+	public CompletableFuture<Integer> appendAsync(String key, long cas,
+			Object value) {
+		_trace.record(Trace.APPEND, key, TraceWriter.sizeOf(value));
+		return _db.appendAsync(key, cas, value);
+	}
+
+	public CompletableFuture<Integer> casAsync(String key, long cas,
+			Object value) {
+		_trace.record(Trace.CAS, key, TraceWriter.sizeOf(value));
+		return _db.casAsync(key, cas, value);
+	}
+
+	public CompletableFuture<Integer> casAsync(String key, long cas,
+			Object value, boolean scheduled, long intended) {
+		_trace.record(Trace.CAS, key, TraceWriter.sizeOf(value));
+		return _db.casAsync(key, cas, value, scheduled, intended);
+	}
+
+	public CompletableFuture<Integer> decrAsync(String key, Object value) {
+		_trace.record(Trace.DECR, key, TraceWriter.sizeOf(value));
+		return _db.decrAsync(key, value);
+	}
+
+	public CompletableFuture<Integer> deleteAsync(String key) {
+		_trace.record(Trace.DELETE, key, 0);
+		return _db.deleteAsync(key);
+	}
+
+	public CompletableFuture<Integer> incrAsync(String key, Object value) {
+		_trace.record(Trace.INCR, key, TraceWriter.sizeOf(value));
+		return _db.incrAsync(key, value);
+	}
+
+	public CompletableFuture<Integer> getAsync(String key, Object value) {
+		_trace.record(Trace.GET, key, 0);
+		return _db.getAsync(key, value);
+	}
+
+	public CompletableFuture<Long> getsAsync(String key) {
+		_trace.record(Trace.GETS, key, 0);
+		return _db.getsAsync(key);
+	}
+
+	public CompletableFuture<Integer> prependAsync(String key, long cas,
+			Object value) {
+		_trace.record(Trace.PREPEND, key, TraceWriter.sizeOf(value));
+		return _db.prependAsync(key, cas, value);
+	}
+
+	public CompletableFuture<Integer> replaceAsync(String key, Object value) {
+		_trace.record(Trace.REPLACE, key, TraceWriter.sizeOf(value));
+		return _db.replaceAsync(key, value);
+	}
+
+	public CompletableFuture<Integer> setAsync(String key, Object value) {
+		_trace.record(Trace.SET, key, TraceWriter.sizeOf(value));
+		return _db.setAsync(key, value);
+	}
+
+	public CompletableFuture<Integer> updateAsync(String key, Object value) {
+		_trace.record(Trace.UPDATE, key, TraceWriter.sizeOf(value));
+		return _db.updateAsync(key, value);
+	}
+}
@@ -1,16 +1,101 @@
 package com.yahoo.ycsb.workloads;
 
+import com.yahoo.ycsb.Config;
 import com.yahoo.ycsb.DataStore;
 import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.AcknowledgedCounterGenerator;
+import com.yahoo.ycsb.generator.ChurnGenerator;
 
+/**
+ * The generators of the core workloads: one ThreadState per client thread,
+ * created anew for the current configuration after reconfigure().
+ */
 public abstract class CoreWorkload extends Workload{
 
+	AcknowledgedCounterGenerator transactioninsertkeysequence;
+
+	/**
+	 * Generators used by the callers of doInsert(db) and doTransaction(db),
+	 * which do not pass the state of their thread. Also the prototype of the
+	 * state of every thread.
+	 */
+	ThreadState shared;
+
+	/**
+	 * Incremented by reconfigure(). A thread whose state is older creates its
+	 * generators anew before its next operation.
+	 */
+	volatile int configversion;
+
 	@Override
 	public abstract boolean doInsert(DataStore db);
 
 	@Override
 	public abstract boolean doTransaction(DataStore db);
-	
-	
 
+	/**
+	 * Create the generators of the current configuration. The ones that all
+	 * threads share are taken over from shared, if it is not null.
+	 */
+	abstract ThreadState newThreadState() throws WorkloadException;
+
+	/**
+	 * Create the generators of one client thread.
+	 */
+	public Object initThread(int mythreadid, int threadcount)
+			throws WorkloadException {
+		return newThreadState();
+	}
+
+	/**
+	 * Create the generators for the current configuration anew, keeping the
+	 * ones that can be adapted. The records below a larger record count are
+	 * taken as loaded, so the inserts continue after them.
+	 */
+	public synchronized void reconfigure() throws WorkloadException {
+		int version = configversion + 1;
+		transactioninsertkeysequence.advance(Config.getConfig().record_count);
+		if (shared.keychooser instanceof ChurnGenerator)
+			((ChurnGenerator) shared.keychooser).resizeWorkingSet(
+					Config.getConfig().working_set,
+					Config.getConfig().record_count);
+		ThreadState state = newThreadState();
+		state.version = version;
+		shared = state;
+		configversion = version;
+	}
+
+	/**
+	 * Choose the number of an existing record, one whose insert has been
+	 * acknowledged. The key chooser draws from the records up to lastInt()
+	 * only, whatever its key space, so it keeps its distribution over the
+	 * records that exist.
+	 */
+	int nextKeynum(ThreadState state) {
+		return state.keychooser.nextInt(Math.max(1,
+				transactioninsertkeysequence.lastInt() + 1));
+	}
+
+	/**
+	 * @return the state of the calling thread, updated to the current
+	 *         configuration
+	 */
+	ThreadState current(Object threadstate) {
+		ThreadState state = (ThreadState) threadstate;
+		int version = configversion;
+		if (state.version != version) {
+			try {
+				ThreadState fresh = newThreadState();
+				state.operationchooser = fresh.operationchooser;
+				state.keychooser = fresh.keychooser;
+				state.fieldchooser = fresh.fieldchooser;
+				state.scanlength = fresh.scanlength;
+			} catch (WorkloadException e) {
+				e.printStackTrace();
+			}
+			state.version = version;
+		}
+		return state;
+	}
 }
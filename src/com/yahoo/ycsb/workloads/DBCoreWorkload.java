@@ -19,10 +19,10 @@ package com.yahoo.ycsb.workloads;
 
 import com.yahoo.ycsb.*;
 import com.yahoo.ycsb.database.DB;
+import com.yahoo.ycsb.generator.AcknowledgedCounterGenerator;
 import com.yahoo.ycsb.generator.ChurnGenerator;
 import com.yahoo.ycsb.generator.CounterGenerator;
 import com.yahoo.ycsb.generator.DiscreteGenerator;
-import com.yahoo.ycsb.generator.Generator;
 import com.yahoo.ycsb.generator.IntegerGenerator;
 import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
 import com.yahoo.ycsb.generator.SkewedLatestGenerator;
@@ -32,7 +32,11 @@ import com.yahoo.ycsb.measurements.Measurements;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * The core benchmark scenario. Represents a set of clients doing simple CRUD
@@ -60,6 +64,8 @@ import java.util.Vector;
  * read a record, modify it, write it back (default: 0)
  * <LI><b>requestdistribution</b>: what distribution should be used to select
  * the records to operate on - uniform, zipfian or latest (default: uniform)
+ * <LI><b>zipfianconstant</b>: the skew of the zipfian and latest request
+ * distributions, between 0 and 1 (default: 0.99)
  * <LI><b>maxscanlength</b>: for scans, what is the maximum number of records to
  * scan (default: 1000)
  * <LI><b>scanlengthdistribution</b>: for scans, what distribution should be
@@ -69,20 +75,10 @@ import java.util.Vector;
  * ("ordered"), or in hashed order ("hashed") (default: hashed)
  * </ul>
  */
-public class DBCoreWorkload extends Workload {
+public class DBCoreWorkload extends CoreWorkload {
 
 	IntegerGenerator keysequence;
 
-	DiscreteGenerator operationchooser;
-
-	IntegerGenerator keychooser;
-
-	Generator fieldchooser;
-
-	CounterGenerator transactioninsertkeysequence;
-
-	IntegerGenerator scanlength;
-
 	boolean orderedinserts;
 
 	/**
@@ -102,44 +98,45 @@ public class DBCoreWorkload extends Workload {
 		}
 
 		keysequence = new CounterGenerator(insertstart);
-		operationchooser = new DiscreteGenerator();
+		transactioninsertkeysequence = new AcknowledgedCounterGenerator(recordcount);
+		shared = newThreadState();
+	}
+
+	ThreadState newThreadState() throws WorkloadException {
+		int recordcount = Config.getConfig().record_count;
+		ThreadState state = new ThreadState();
+		state.version = configversion;
+
+		DiscreteGenerator operationchooser = new DiscreteGenerator();
 		if (Config.getConfig().read_proportion > 0) {
-			operationchooser.addValue(Config.getConfig().read_proportion, "READ");
+			operationchooser.addValue(Config.getConfig().read_proportion, OperationType.READ);
 		}
 
 		if (Config.getConfig().update_proportion > 0) {
-			operationchooser.addValue(Config.getConfig().update_proportion, "UPDATE");
+			operationchooser.addValue(Config.getConfig().update_proportion, OperationType.UPDATE);
 		}
 
 		if (Config.getConfig().insert_proportion > 0) {
-			operationchooser.addValue(Config.getConfig().insert_proportion, "INSERT");
+			operationchooser.addValue(Config.getConfig().insert_proportion, OperationType.INSERT);
 		}
 
 		if (Config.getConfig().scan_proportion > 0) {
-			operationchooser.addValue(Config.getConfig().scan_proportion, "SCAN");
+			operationchooser.addValue(Config.getConfig().scan_proportion, OperationType.SCAN);
 		}
 
 		if (Config.getConfig().read_write_modify_proportion > 0) {
-			operationchooser.addValue(Config.getConfig().read_write_modify_proportion, "READMODIFYWRITE");
+			operationchooser.addValue(Config.getConfig().read_write_modify_proportion, OperationType.READMODIFYWRITE);
 		}
+		state.operationchooser = operationchooser;
 
-		transactioninsertkeysequence = new CounterGenerator(recordcount);
 		if (Config.getConfig().request_distribution.compareTo("uniform") == 0) {
-			keychooser = new UniformIntegerGenerator(0, recordcount - 1);
+			state.keychooser = new UniformIntegerGenerator(0, recordcount - 1);
 		} else if (Config.getConfig().request_distribution.compareTo("zipfian") == 0) {
-			// it does this by generating a random "next key" in part by taking
-			// the modulus over the number of keys
-			// if the number of keys changes, this would shift the modulus, and
-			// we don't want that to change which keys are popular
-			// so we'll actually construct the scrambled zipfian generator with
-			// a keyspace that is larger than exists at the beginning
-			// of the test. that is, we'll predict the number of inserts, and
-			// tell the scrambled zipfian generator the number of existing keys
-			// plus the number of predicted keys as the total keyspace. then, if
-			// the generator picks a key that hasn't been inserted yet, will
-			// just ignore it and pick another key. this way, the size of the
-			// keyspace doesn't change from the perspective of the scrambled
-			// zipfian generator
+			// the scrambled zipfian generator scatters the popular keys over
+			// its keyspace, sized for the existing keys plus the predicted
+			// inserts. a transaction on an existing record draws from the
+			// keys inserted so far only (nextKeynum()), so the generator never
+			// picks a key that hasn't been inserted yet
 
 			int opcount = Config.getConfig().operation_count;
 			int expectednewkeys = (int) (((double) opcount) * Config.getConfig().insert_proportion * 2.0); // 2
@@ -147,26 +144,35 @@ public class DBCoreWorkload extends Workload {
 																						// fudge
 																						// factor
 
-			keychooser = new ScrambledZipfianGenerator(recordcount
-					+ expectednewkeys);
+			state.keychooser = new ScrambledZipfianGenerator(recordcount
+					+ expectednewkeys, Config.getConfig().zipfian_constant);
 		} else if (Config.getConfig().request_distribution.compareTo("latest") == 0) {
-			keychooser = new SkewedLatestGenerator(transactioninsertkeysequence);
+			// the first one computes zeta, the others take it over
+			if (shared == null || !(shared.keychooser instanceof SkewedLatestGenerator))
+				state.keychooser = new SkewedLatestGenerator(transactioninsertkeysequence,Config.getConfig().zipfian_constant);
+			else
+				state.keychooser = new SkewedLatestGenerator(transactioninsertkeysequence, (SkewedLatestGenerator) shared.keychooser);
 		}  else if (Config.getConfig().request_distribution.compareTo("churn") == 0){
-			keychooser = new ChurnGenerator(Config.getConfig().working_set, Config.getConfig().churn_delta, recordcount);
+			// the working set is one for all threads
+			if (shared == null || !(shared.keychooser instanceof ChurnGenerator))
+				state.keychooser = new ChurnGenerator(Config.getConfig().working_set, Config.getConfig().churn_delta, recordcount);
+			else
+				state.keychooser = shared.keychooser;
 		} else {
 			throw new WorkloadException("Unknown distribution \"" + Config.getConfig().request_distribution + "\"");
 		}
 
-		fieldchooser = new UniformIntegerGenerator(0, Config.getConfig().field_count - 1);
+		state.fieldchooser = new UniformIntegerGenerator(0, Config.getConfig().field_count - 1);
 
 		if (Config.getConfig().scan_length_distribution.compareTo("uniform") == 0) {
-			scanlength = new UniformIntegerGenerator(1, Config.getConfig().max_scan_length);
+			state.scanlength = new UniformIntegerGenerator(1, Config.getConfig().max_scan_length);
 		} else if (Config.getConfig().scan_length_distribution.compareTo("zipfian") == 0) {
-			scanlength = new ZipfianGenerator(1, Config.getConfig().max_scan_length);
+			state.scanlength = new ZipfianGenerator(1, Config.getConfig().max_scan_length);
 		} else {
 			throw new WorkloadException("Distribution \"" + Config.getConfig().scan_length_distribution
 					+ "\" not allowed for scan length");
 		}
+		return state;
 	}
 
 	/**
@@ -194,6 +200,33 @@ public class DBCoreWorkload extends Workload {
 			return false;
 	}
 
+	/**
+	 * Insert the records [firstkey, firstkey + count) with one insertAll().
+	 */
+	public boolean doInsertBatch(DataStore db, Object threadstate,
+			int firstkey, int count) {
+		LinkedHashMap<String, HashMap<String, String>> records = new LinkedHashMap<String, HashMap<String, String>>();
+		for (int keynum = firstkey; keynum < firstkey + count; keynum++) {
+			int k = orderedinserts ? keynum : Utils.hash(keynum);
+			HashMap<String, String> values = new HashMap<String, String>();
+			for (int i = 0; i < Config.getConfig().field_count; i++) {
+				String fieldkey = "field" + i;
+				String data = Utils.ASCIIString(Config.getConfig().field_length);
+				values.put(fieldkey, data);
+			}
+			records.put("user" + k, values);
+		}
+		return ((DB) db).insertAll(Config.getConfig().table_name, records) == 0;
+	}
+
+	/**
+	 * Do one transaction operation with the generators shared by all threads
+	 * that do not pass their own state.
+	 */
+	public boolean doTransaction(DataStore db) {
+		return doTransaction(db, shared);
+	}
+
 	/**
 	 * Do one transaction operation. Because it will be called concurrently from
 	 * multiple client threads, this function must be thread safe. However,
@@ -201,30 +234,32 @@ public class DBCoreWorkload extends Workload {
 	 * it will be difficult to reach the target throughput. Ideally, this
 	 * function would have no side effects other than DB operations.
 	 */
-	public boolean doTransaction(DataStore db) {
-		String op = operationchooser.nextString();
-
-		if (op.compareTo("READ") == 0) {
-			doTransactionRead((DB)db);
-		} else if (op.compareTo("UPDATE") == 0) {
-			doTransactionUpdate((DB)db);
-		} else if (op.compareTo("INSERT") == 0) {
+	public boolean doTransaction(DataStore db, Object threadstate) {
+		ThreadState state = current(threadstate);
+
+		switch ((OperationType) state.operationchooser.nextValue()) {
+		case READ:
+			doTransactionRead((DB)db, state);
+			break;
+		case UPDATE:
+			doTransactionUpdate((DB)db, state);
+			break;
+		case INSERT:
 			doTransactionInsert((DB)db);
-		} else if (op.compareTo("SCAN") == 0) {
-			doTransactionScan((DB)db);
-		} else {
-			doTransactionReadModifyWrite((DB)db);
+			break;
+		case SCAN:
+			doTransactionScan((DB)db, state);
+			break;
+		default:
+			doTransactionReadModifyWrite((DB)db, state);
 		}
 
 		return true;
 	}
 
-	public void doTransactionRead(DB db) {
+	public void doTransactionRead(DB db, ThreadState state) {
 		// choose a random key
-		int keynum;
-		do {
-			keynum = keychooser.nextInt();
-		} while (keynum > transactioninsertkeysequence.lastInt());
+		int keynum = nextKeynum(state);
 
 		if (!orderedinserts) {
 			keynum = Utils.hash(keynum);
@@ -235,7 +270,7 @@ public class DBCoreWorkload extends Workload {
 
 		if (!Config.getConfig().read_all_fields) {
 			// read a random field
-			String fieldname = "field" + fieldchooser.nextString();
+			String fieldname = "field" + state.fieldchooser.nextString();
 
 			fields = new HashSet<String>();
 			fields.add(fieldname);
@@ -244,12 +279,9 @@ public class DBCoreWorkload extends Workload {
 		db.read(Config.getConfig().table_name, keyname, fields, new HashMap<String, String>());
 	}
 
-	public void doTransactionReadModifyWrite(DB db) {
+	public void doTransactionReadModifyWrite(DB db, ThreadState state) {
 		// choose a random key
-		int keynum;
-		do {
-			keynum = keychooser.nextInt();
-		} while (keynum > transactioninsertkeysequence.lastInt());
+		int keynum = nextKeynum(state);
 
 		if (!orderedinserts) {
 			keynum = Utils.hash(keynum);
@@ -260,7 +292,7 @@ public class DBCoreWorkload extends Workload {
 
 		if (!Config.getConfig().read_all_fields) {
 			// read a random field
-			String fieldname = "field" + fieldchooser.nextString();
+			String fieldname = "field" + state.fieldchooser.nextString();
 
 			fields = new HashSet<String>();
 			fields.add(fieldname);
@@ -277,31 +309,30 @@ public class DBCoreWorkload extends Workload {
 			}
 		} else {
 			// update a random field
-			String fieldname = "field" + fieldchooser.nextString();
+			String fieldname = "field" + state.fieldchooser.nextString();
 			String data = Utils.ASCIIString(Config.getConfig().field_length);
 			values.put(fieldname, data);
 		}
 
 		// do the transaction
 
-		long st = System.currentTimeMillis();
+		long st = System.nanoTime();
 
 		db.read(Config.getConfig().table_name, keyname, fields, new HashMap<String, String>());
 
 		db.update(Config.getConfig().table_name, keyname, values);
 
-		long en = System.currentTimeMillis();
+		long en = System.nanoTime();
 
-		Measurements.getMeasurements().measure("READ-MODIFY-WRITE",
-				(int) (en - st));
+		Measurements.getMeasurements().measureNanos("READ-MODIFY-WRITE",
+				en - st);
+		Measurements.getMeasurements().measureIntended("READ-MODIFY-WRITE",
+				en);
 	}
 
-	public void doTransactionScan(DB db) {
+	public void doTransactionScan(DB db, ThreadState state) {
 		// choose a random key
-		int keynum;
-		do {
-			keynum = keychooser.nextInt();
-		} while (keynum > transactioninsertkeysequence.lastInt());
+		int keynum = nextKeynum(state);
 
 		if (!orderedinserts) {
 			keynum = Utils.hash(keynum);
@@ -309,13 +340,13 @@ public class DBCoreWorkload extends Workload {
 		String startkeyname = "user" + keynum;
 
 		// choose a random scan length
-		int len = scanlength.nextInt();
+		int len = state.scanlength.nextInt();
 
 		HashSet<String> fields = null;
 
 		if (!Config.getConfig().read_all_fields) {
 			// read a random field
-			String fieldname = "field" + fieldchooser.nextString();
+			String fieldname = "field" + state.fieldchooser.nextString();
 
 			fields = new HashSet<String>();
 			fields.add(fieldname);
@@ -325,12 +356,9 @@ public class DBCoreWorkload extends Workload {
 				new Vector<HashMap<String, String>>());
 	}
 
-	public void doTransactionUpdate(DB db) {
+	public void doTransactionUpdate(DB db, ThreadState state) {
 		// choose a random key
-		int keynum;
-		do {
-			keynum = keychooser.nextInt();
-		} while (keynum > transactioninsertkeysequence.lastInt());
+		int keynum = nextKeynum(state);
 
 		if (!orderedinserts) {
 			keynum = Utils.hash(keynum);
@@ -348,7 +376,7 @@ public class DBCoreWorkload extends Workload {
 			}
 		} else {
 			// update a random field
-			String fieldname = "field" + fieldchooser.nextString();
+			String fieldname = "field" + state.fieldchooser.nextString();
 			String data = Utils.ASCIIString(Config.getConfig().field_length);
 			values.put(fieldname, data);
 		}
@@ -359,6 +387,14 @@ public class DBCoreWorkload extends Workload {
 	public void doTransactionInsert(DB db) {
 		// choose the next key
 		int keynum = transactioninsertkeysequence.nextInt();
+		try {
+			doTransactionInsert(db, keynum);
+		} finally {
+			transactioninsertkeysequence.acknowledge(keynum);
+		}
+	}
+
+	private void doTransactionInsert(DB db, int keynum) {
 		if (!orderedinserts) {
 			keynum = Utils.hash(keynum);
 		}
@@ -372,4 +408,259 @@ public class DBCoreWorkload extends Workload {
 		}
 		db.insert(Config.getConfig().table_name, dbkey, values);
 	}
+
+	/**
+	 * Choose the key of a transaction on an existing record.
+	 */
+	String nextKeyname(ThreadState state) {
+		int keynum = nextKeynum(state);
+
+		if (!orderedinserts) {
+			keynum = Utils.hash(keynum);
+		}
+		return "user" + keynum;
+	}
+
+	/**
+	 * @return the fields a read or scan returns, null for all fields
+	 */
+	HashSet<String> nextReadFields(ThreadState state) {
+		if (Config.getConfig().read_all_fields)
+			return null;
+		HashSet<String> fields = new HashSet<String>();
+		fields.add("field" + state.fieldchooser.nextString());
+		return fields;
+	}
+
+	/**
+	 * @return the new values written by an update or read-modify-write
+	 */
+	HashMap<String, String> nextUpdateValues(ThreadState state) {
+		HashMap<String, String> values = new HashMap<String, String>();
+		if (Config.getConfig().write_all_fields) {
+			for (int i = 0; i < Config.getConfig().field_count; i++) {
+				values.put("field" + i, Utils
+						.ASCIIString(Config.getConfig().field_length));
+			}
+		} else {
+			values.put("field" + state.fieldchooser.nextString(), Utils
+					.ASCIIString(Config.getConfig().field_length));
+		}
+		return values;
+	}
+
+	public CompletableFuture<?> doTransactionAsync(DataStore store) {
+		return doTransactionAsync(store, shared);
+	}
+
+	/**
+	 * Issue one transaction operation without waiting for it. Same operation
+	 * mix and keys as doTransaction().
+	 */
+	public CompletableFuture<?> doTransactionAsync(DataStore store,
+			Object threadstate) {
+		ThreadState state = current(threadstate);
+		final DB db = (DB) store;
+		final String table = Config.getConfig().table_name;
+
+		switch ((OperationType) state.operationchooser.nextValue()) {
+		case READ:
+			return db.readAsync(table, nextKeyname(state), nextReadFields(state),
+					new HashMap<String, String>());
+		case UPDATE:
+			return db.updateAsync(table, nextKeyname(state), nextUpdateValues(state));
+		case INSERT:
+			int keynum = transactioninsertkeysequence.nextInt();
+			int dbkeynum = orderedinserts ? keynum : Utils.hash(keynum);
+			HashMap<String, String> values = new HashMap<String, String>();
+			for (int i = 0; i < Config.getConfig().field_count; i++) {
+				values.put("field" + i, Utils
+						.ASCIIString(Config.getConfig().field_length));
+			}
+			CompletableFuture<Integer> insert;
+			try {
+				insert = db.insertAsync(table, "user" + dbkeynum, values);
+			} catch (RuntimeException e) {
+				// not issued: acknowledged like an insert that failed
+				transactioninsertkeysequence.acknowledge(keynum);
+				throw e;
+			}
+			return transactioninsertkeysequence.acknowledge(insert, keynum);
+		case SCAN:
+			return db.scanAsync(table, nextKeyname(state), state.scanlength.nextInt(),
+					nextReadFields(state), new Vector<HashMap<String, String>>());
+		default:
+			break;
+		}
+
+		// read-modify-write: the update is issued when the read completes
+		final String keyname = nextKeyname(state);
+		final HashMap<String, String> values = nextUpdateValues(state);
+		final long st = System.nanoTime();
+		final boolean scheduled = Measurements.getMeasurements()
+				.hasIntendedStart();
+		final long intended = Measurements.getMeasurements()
+				.getIntendedStart();
+		return db.readAsync(table, keyname, nextReadFields(state),
+				new HashMap<String, String>()).thenCompose(
+				new Function<Integer, CompletableFuture<Integer>>() {
+					public CompletableFuture<Integer> apply(Integer res) {
+						return db.updateAsync(table, keyname, values);
+					}
+				}).whenComplete(new BiConsumer<Integer, Throwable>() {
+			public void accept(Integer res, Throwable t) {
+				long en = System.nanoTime();
+				Measurements.getMeasurements().measureNanos(
+						"READ-MODIFY-WRITE", en - st);
+				if (scheduled)
+					Measurements.getMeasurements().measureIntended(
+							"READ-MODIFY-WRITE", intended, en);
+			}
+		});
+	}
+
+	/**
+	 * The operations of doTransaction() can be generated apart from their
+	 * execution.
+	 */
+	public boolean canPregenerate() {
+		return true;
+	}
+
+	/**
+	 * Choose the next transaction operation. Same operation mix and keys as
+	 * doTransaction(); an insert takes its key number from the insert
+	 * sequence only when it is executed (takeInsertKey()).
+	 */
+	public Object nextOperation(Object threadstate) {
+		ThreadState state = current(threadstate);
+		Operation o = new Operation();
+		o.op = (OperationType) state.operationchooser.nextValue();
+
+		if (o.op == OperationType.INSERT) {
+			o.values = new HashMap<String, String>();
+			for (int i = 0; i < Config.getConfig().field_count; i++) {
+				o.values.put("field" + i, Utils
+						.ASCIIString(Config.getConfig().field_length));
+			}
+			return o;
+		}
+
+		o.key = nextKeyname(state);
+		if (o.op != OperationType.UPDATE)
+			o.fields = nextReadFields(state);
+		if (o.op == OperationType.SCAN)
+			o.length = state.scanlength.nextInt();
+		else if (o.op != OperationType.READ)
+			o.values = nextUpdateValues(state);
+		return o;
+	}
+
+	/**
+	 * Take the key of an insert of nextOperation() from the insert sequence,
+	 * right before it is executed. An insert that is never executed, e.g.
+	 * left in the ring of a paused worker at the end of the run, then holds
+	 * no key number that would never be acknowledged and hold back
+	 * lastInt().
+	 */
+	private void takeInsertKey(Operation o) {
+		o.keynum = transactioninsertkeysequence.nextInt();
+		o.key = "user" + (orderedinserts ? o.keynum : Utils.hash(o.keynum));
+	}
+
+	/**
+	 * Execute an operation of nextOperation().
+	 */
+	public boolean doOperation(DataStore store, Object operation) {
+		Operation o = (Operation) operation;
+		DB db = (DB) store;
+		String table = Config.getConfig().table_name;
+
+		switch (o.op) {
+		case READ:
+			db.read(table, o.key, o.fields, new HashMap<String, String>());
+			break;
+		case UPDATE:
+			db.update(table, o.key, o.values);
+			break;
+		case INSERT:
+			takeInsertKey(o);
+			try {
+				db.insert(table, o.key, o.values);
+			} finally {
+				transactioninsertkeysequence.acknowledge(o.keynum);
+			}
+			break;
+		case SCAN:
+			db.scan(table, o.key, o.length, o.fields,
+					new Vector<HashMap<String, String>>());
+			break;
+		default:
+			long st = System.nanoTime();
+			db.read(table, o.key, o.fields, new HashMap<String, String>());
+			db.update(table, o.key, o.values);
+			long en = System.nanoTime();
+			Measurements.getMeasurements().measureNanos("READ-MODIFY-WRITE",
+					en - st);
+			Measurements.getMeasurements().measureIntended(
+					"READ-MODIFY-WRITE", en);
+		}
+		return true;
+	}
+
+	/**
+	 * Issue an operation of nextOperation() without waiting for it.
+	 */
+	public CompletableFuture<?> doOperationAsync(DataStore store,
+			Object operation) {
+		final Operation o = (Operation) operation;
+		final DB db = (DB) store;
+		final String table = Config.getConfig().table_name;
+
+		switch (o.op) {
+		case READ:
+			return db.readAsync(table, o.key, o.fields,
+					new HashMap<String, String>());
+		case UPDATE:
+			return db.updateAsync(table, o.key, o.values);
+		case INSERT:
+			takeInsertKey(o);
+			CompletableFuture<Integer> insert;
+			try {
+				insert = db.insertAsync(table, o.key, o.values);
+			} catch (RuntimeException e) {
+				// not issued: acknowledged like an insert that failed
+				transactioninsertkeysequence.acknowledge(o.keynum);
+				throw e;
+			}
+			return transactioninsertkeysequence.acknowledge(insert, o.keynum);
+		case SCAN:
+			return db.scanAsync(table, o.key, o.length, o.fields,
+					new Vector<HashMap<String, String>>());
+		default:
+			break;
+		}
+
+		final long st = System.nanoTime();
+		final boolean scheduled = Measurements.getMeasurements()
+				.hasIntendedStart();
+		final long intended = Measurements.getMeasurements()
+				.getIntendedStart();
+		return db.readAsync(table, o.key, o.fields,
+				new HashMap<String, String>()).thenCompose(
+				new Function<Integer, CompletableFuture<Integer>>() {
+					public CompletableFuture<Integer> apply(Integer res) {
+						return db.updateAsync(table, o.key, o.values);
+					}
+				}).whenComplete(new BiConsumer<Integer, Throwable>() {
+			public void accept(Integer res, Throwable t) {
+				long en = System.nanoTime();
+				Measurements.getMeasurements().measureNanos(
+						"READ-MODIFY-WRITE", en - st);
+				if (scheduled)
+					Measurements.getMeasurements().measureIntended(
+							"READ-MODIFY-WRITE", intended, en);
+			}
+		});
+	}
 }
@@ -17,13 +17,14 @@
 
 package com.yahoo.ycsb.workloads;
 
+import java.util.LinkedHashMap;
+
 import com.yahoo.ycsb.*;
+import com.yahoo.ycsb.generator.AcknowledgedCounterGenerator;
 import com.yahoo.ycsb.generator.ChurnGenerator;
 import com.yahoo.ycsb.generator.CounterGenerator;
 import com.yahoo.ycsb.generator.DiscreteGenerator;
-import com.yahoo.ycsb.generator.Generator;
 import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
-import com.yahoo.ycsb.generator.IntegerGenerator;
 import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
 import com.yahoo.ycsb.generator.SkewedLatestGenerator;
 import com.yahoo.ycsb.generator.UniformIntegerGenerator;
@@ -56,6 +57,8 @@ import com.yahoo.ycsb.memcached.Memcached;
  * read a record, modify it, write it back (default: 0)
  * <LI><b>requestdistribution</b>: what distribution should be used to select
  * the records to operate on - uniform, zipfian or latest (default: uniform)
+ * <LI><b>zipfianconstant</b>: the skew of the zipfian and latest request
+ * distributions, between 0 and 1 (default: 0.99)
  * <LI><b>maxscanlength</b>: for scans, what is the maximum number of records to
  * scan (default: 1000)
  * <LI><b>scanlengthdistribution</b>: for scans, what distribution should be
@@ -65,28 +68,13 @@ import com.yahoo.ycsb.memcached.Memcached;
  * ("ordered"), or in hashed order ("hashed") (default: hashed)
  * </ul>
  */
-public class MemcachedCoreWorkload extends Workload {
-
-	IntegerGenerator keysequence;
-
-	DiscreteGenerator operationchooser;
-
-	IntegerGenerator keychooser;
-
-	Generator fieldchooser;
-
-	CounterGenerator transactioninsertkeysequence;
-
-	IntegerGenerator scanlength;
-
-	boolean orderedinserts;
+public class MemcachedCoreWorkload extends MemcachedWorkload {
 
 	/**
 	 * Initialize the scenario. Called once, in the main client thread, before
 	 * any operations are started.
 	 */
 	public void init() throws WorkloadException {
-		int recordcount = Config.getConfig().record_count;
 		int insertstart = Config.getConfig().insert_start;
 
 		if (Config.getConfig().insert_order.compareTo("hashed") == 0) {
@@ -96,90 +84,104 @@ public class MemcachedCoreWorkload extends Workload {
 		}
 
 		keysequence = new CounterGenerator(insertstart);
-		operationchooser = new DiscreteGenerator();
+		transactioninsertkeysequence = new AcknowledgedCounterGenerator(
+				Config.getConfig().record_count);
+		shared = newThreadState();
+	}
+
+	ThreadState newThreadState() throws WorkloadException {
+		int recordcount = Config.getConfig().record_count;
+		ThreadState state = new ThreadState();
+		state.version = configversion;
 
+		DiscreteGenerator operationchooser = new DiscreteGenerator();
 		if (Config.getConfig().memadd_proportion > 0) {
 			operationchooser.addValue(Config.getConfig().memadd_proportion,
-					"ADD");
+					OperationType.ADD);
 		}
 		if (Config.getConfig().memappend_proportion > 0) {
 			operationchooser.addValue(Config.getConfig().memappend_proportion,
-					"APPEND");
+					OperationType.APPEND);
 		}
 		if (Config.getConfig().memcas_proportion > 0) {
 			operationchooser.addValue(Config.getConfig().memcas_proportion,
-					"CAS");
+					OperationType.CAS);
 		}
 		if (Config.getConfig().memdecr_proportion > 0) {
 			operationchooser.addValue(Config.getConfig().memdecr_proportion,
-					"DECR");
+					OperationType.DECR);
 		}
 		if (Config.getConfig().memdelete_proportion > 0) {
 			operationchooser.addValue(Config.getConfig().memdelete_proportion,
-					"DELETE");
+					OperationType.DELETE);
 		}
 		if (Config.getConfig().memget_proportion > 0) {
 			operationchooser.addValue(Config.getConfig().memget_proportion,
-					"GET");
+					OperationType.GET);
 		}
 		if (Config.getConfig().memgets_proportion > 0) {
 			operationchooser.addValue(Config.getConfig().memgets_proportion,
-					"GETS");
+					OperationType.GETS);
 		}
 		if (Config.getConfig().memincr_proportion > 0) {
 			operationchooser.addValue(Config.getConfig().memincr_proportion,
-					"INCR");
+					OperationType.INCR);
 		}
 		if (Config.getConfig().memprepend_proportion > 0) {
 			operationchooser.addValue(Config.getConfig().memprepend_proportion,
-					"PREPEND");
+					OperationType.PREPEND);
 		}
 		if (Config.getConfig().memreplace_proportion > 0) {
 			operationchooser.addValue(Config.getConfig().memreplace_proportion,
-					"REPLACE");
+					OperationType.REPLACE);
 		}
 		if (Config.getConfig().memset_proportion > 0) {
 			operationchooser.addValue(Config.getConfig().memset_proportion,
-					"SET");
+					OperationType.SET);
 		}
 		if (Config.getConfig().memupdate_proportion > 0) {
 			operationchooser.addValue(Config.getConfig().memupdate_proportion,
-					"UPDATE");
+					OperationType.UPDATE);
 		}
+		state.operationchooser = operationchooser;
 
-		transactioninsertkeysequence = new CounterGenerator(recordcount);
 		if (Config.getConfig().request_distribution.compareTo("uniform") == 0) {
-			keychooser = new UniformIntegerGenerator(0, recordcount - 1);
+			state.keychooser = new UniformIntegerGenerator(0, recordcount - 1);
 		} else if (Config.getConfig().request_distribution.compareTo("zipfian") == 0) {
-			// it does this by generating a random "next key" in part by taking
-			// the modulus over the number of keys
-			// if the number of keys changes, this would shift the modulus, and
-			// we don't want that to change which keys are popular
-			// so we'll actually construct the scrambled zipfian generator with
-			// a keyspace that is larger than exists at the beginning
-			// of the test. that is, we'll predict the number of inserts, and
-			// tell the scrambled zipfian generator the number of existing keys
-			// plus the number of predicted keys as the total keyspace. then, if
-			// the generator picks a key that hasn't been inserted yet, will
-			// just ignore it and pick another key. this way, the size of the
-			// keyspace doesn't change from the perspective of the scrambled
-			// zipfian generator
+			// the scrambled zipfian generator scatters the popular keys over
+			// its keyspace, sized for the existing keys plus the predicted
+			// inserts. a transaction on an existing record draws from the
+			// keys inserted so far only (nextKeynum()), so the generator never
+			// picks a key that hasn't been inserted yet
 
 			int opcount = Config.getConfig().operation_count;
 			int expectednewkeys = (int) (((double) opcount)
 					* Config.getConfig().memset_proportion * 2.0); // 2 is fudge
 			// factor
-			keychooser = new ScrambledZipfianGenerator(recordcount
-					+ expectednewkeys);
+			state.keychooser = new ScrambledZipfianGenerator(recordcount
+					+ expectednewkeys, Config.getConfig().zipfian_constant);
 		} else if (Config.getConfig().request_distribution.compareTo("latest") == 0) {
-			keychooser = new SkewedLatestGenerator(transactioninsertkeysequence);
+			// the first one computes zeta, the others take it over
+			if (shared == null || !(shared.keychooser instanceof SkewedLatestGenerator))
+				state.keychooser = new SkewedLatestGenerator(
+						transactioninsertkeysequence,
+						Config.getConfig().zipfian_constant);
+			else
+				state.keychooser = new SkewedLatestGenerator(
+						transactioninsertkeysequence,
+						(SkewedLatestGenerator) shared.keychooser);
 		} else if (Config.getConfig().request_distribution.compareTo("churn") == 0) {
-			keychooser = new ChurnGenerator(Config.getConfig().working_set,
-					Config.getConfig().churn_delta, recordcount);
+			// the working set is one for all threads
+			if (shared == null || !(shared.keychooser instanceof ChurnGenerator))
+				state.keychooser = new ChurnGenerator(
+						Config.getConfig().working_set,
+						Config.getConfig().churn_delta, recordcount);
+			else
+				state.keychooser = shared.keychooser;
 		} else if (Config.getConfig().request_distribution.compareTo("hotspot") == 0) {
 //			keychooser = new HotspotIntegerGenerator(0, recordcount - 1, 0.2,//默认20%的数据具有80%的访问量
 //					0.8);
-			keychooser = new HotspotIntegerGenerator(0, recordcount - 1, 0.1,//增加热度
+			state.keychooser = new HotspotIntegerGenerator(0, recordcount - 1, 0.1,//增加热度
 					0.9);
 
 		} else {
@@ -187,21 +189,22 @@ public class MemcachedCoreWorkload extends Workload {
 					+ Config.getConfig().request_distribution + "\"");
 		}
 
-		fieldchooser = new UniformIntegerGenerator(0,
+		state.fieldchooser = new UniformIntegerGenerator(0,
 				Config.getConfig().field_count - 1);
 
 		if (Config.getConfig().scan_length_distribution.compareTo("uniform") == 0) {
-			scanlength = new UniformIntegerGenerator(1,
+			state.scanlength = new UniformIntegerGenerator(1,
 					Config.getConfig().max_scan_length);
 		} else if (Config.getConfig().scan_length_distribution
 				.compareTo("zipfian") == 0) {
-			scanlength = new ZipfianGenerator(1,
+			state.scanlength = new ZipfianGenerator(1,
 					Config.getConfig().max_scan_length);
 		} else {
 			throw new WorkloadException("Distribution \""
 					+ Config.getConfig().scan_length_distribution
 					+ "\" not allowed for scan length");
 		}
+		return state;
 	}
 
 	/**
@@ -225,6 +228,28 @@ public class MemcachedCoreWorkload extends Workload {
 			return false;
 	}
 
+	/**
+	 * Set the records [firstkey, firstkey + count) with one setAll().
+	 */
+	public boolean doInsertBatch(DataStore memcached, Object threadstate,
+			int firstkey, int count) {
+		LinkedHashMap<String, Object> values = new LinkedHashMap<String, Object>();
+		for (int keynum = firstkey; keynum < firstkey + count; keynum++) {
+			int k = orderedinserts ? keynum : Utils.hash(keynum);
+			values.put(Config.getConfig().key_prefix + k,
+					Utils.ASCIIString(Config.getConfig().value_length));
+		}
+		return ((Memcached) memcached).setAll(values) == 0;
+	}
+
+	/**
+	 * Do one transaction operation with the generators shared by all threads
+	 * that do not pass their own state.
+	 */
+	public boolean doTransaction(DataStore memcached) {
+		return doTransaction(memcached, shared);
+	}
+
 	/**
 	 * Do one transaction operation. Because it will be called concurrently from
 	 * multiple client threads, this function must be thread safe. However,
@@ -232,33 +257,49 @@ public class MemcachedCoreWorkload extends Workload {
 	 * it will be difficult to reach the target throughput. Ideally, this
 	 * function would have no side effects other than DB operations.
 	 */
-	public boolean doTransaction(DataStore memcached) {
-		String op = operationchooser.nextString();
-
-		if (op.compareTo("ADD") == 0) {
-			doTransactionAdd((Memcached) memcached);
-		} else if (op.compareTo("APPEND") == 0) {
-			doTransactionAppend((Memcached) memcached);
-		} else if (op.compareTo("CAS") == 0) {
-			doTransactionCas((Memcached) memcached);
-		} else if (op.compareTo("DECR") == 0) {
-			doTransactionDecr((Memcached) memcached);
-		} else if (op.compareTo("DELETE") == 0) {
-			doTransactionDelete((Memcached) memcached);
-		} else if (op.compareTo("GET") == 0) {
-			doTransactionGet((Memcached) memcached);
-		} else if (op.compareTo("GETS") == 0) {
-			doTransactionGets((Memcached) memcached);
-		} else if (op.compareTo("INCR") == 0) {
-			doTransactionIncr((Memcached) memcached);
-		} else if (op.compareTo("PREPEND") == 0) {
-			doTransactionPrepend((Memcached) memcached);
-		} else if (op.compareTo("REPLACE") == 0) {
-			doTransactionReplace((Memcached) memcached);
-		} else if (op.compareTo("SET") == 0) {
-			doInsert((Memcached) memcached);
-		} else if (op.compareTo("UPDATE") == 0) {
-			doTransactionUpdate((Memcached) memcached);
+	public boolean doTransaction(DataStore store, Object threadstate) {
+		ThreadState state = current(threadstate);
+		Memcached memcached = (Memcached) store;
+
+		switch ((OperationType) state.operationchooser.nextValue()) {
+		case ADD:
+			doTransactionAdd(memcached);
+			break;
+		case APPEND:
+			doTransactionAppend(memcached, state);
+			break;
+		case CAS:
+			doTransactionCas(memcached, state);
+			break;
+		case DECR:
+			doTransactionDecr(memcached);
+			break;
+		case DELETE:
+			doTransactionDelete(memcached);
+			break;
+		case GET:
+			doTransactionGet(memcached, state);
+			break;
+		case GETS:
+			doTransactionGets(memcached, state);
+			break;
+		case INCR:
+			doTransactionIncr(memcached);
+			break;
+		case PREPEND:
+			doTransactionPrepend(memcached, state);
+			break;
+		case REPLACE:
+			doTransactionReplace(memcached, state);
+			break;
+		case SET:
+			doInsert(memcached);
+			break;
+		case UPDATE:
+			doTransactionUpdate(memcached, state);
+			break;
+		default:
+			break;
 		}
 		return true;
 	}
@@ -266,37 +307,23 @@ public class MemcachedCoreWorkload extends Workload {
 	public void doTransactionAdd(Memcached memcached) {
 		// choose the next key
 		int keynum = transactioninsertkeysequence.nextInt();
-		if (!orderedinserts) {
-			keynum = Utils.hash(keynum);
+		try {
+			String dbkey = Config.getConfig().key_prefix
+					+ (orderedinserts ? keynum : Utils.hash(keynum));
+			String value = Utils.ASCIIString(Config.getConfig().value_length);
+			memcached.add(dbkey, value);
+		} finally {
+			transactioninsertkeysequence.acknowledge(keynum);
 		}
-		String dbkey = Config.getConfig().key_prefix + keynum;
-		String value = Utils.ASCIIString(Config.getConfig().value_length);
-		memcached.add(dbkey, value);
 	}
 
-	public void doTransactionAppend(Memcached memcached) {
-		int keynum;
-		do {
-			keynum = keychooser.nextInt();
-		} while (keynum > transactioninsertkeysequence.lastInt());
-
-		if (!orderedinserts) {
-			keynum = Utils.hash(keynum);
-		}
-		String key = Config.getConfig().key_prefix + keynum;
+	public void doTransactionAppend(Memcached memcached, ThreadState state) {
+		String key = nextKeyname(state);
 		memcached.append(key, 0, "appended_string");
 	}
 
-	public void doTransactionCas(Memcached memcached) {
-		int keynum;
-		do {
-			keynum = keychooser.nextInt();
-		} while (keynum > transactioninsertkeysequence.lastInt());
-
-		if (!orderedinserts) {
-			keynum = Utils.hash(keynum);
-		}
-		String key = Config.getConfig().key_prefix + keynum;
+	public void doTransactionCas(Memcached memcached, ThreadState state) {
+		String key = nextKeyname(state);
 		long cas = memcached.gets(key);
 		String value = Utils.ASCIIString(Config.getConfig().value_length);
 		memcached.cas(key, cas, value);
@@ -310,87 +337,39 @@ public class MemcachedCoreWorkload extends Workload {
 
 	}
 
-	public void doTransactionGet(Memcached memcached) {
-		int keynum;
-		do {
-			keynum = keychooser.nextInt();
-		} while (keynum > transactioninsertkeysequence.lastInt());
-
-		if (!orderedinserts) {
-			keynum = Utils.hash(keynum);
-		}
-		String keyname = Config.getConfig().key_prefix + keynum;
+	public void doTransactionGet(Memcached memcached, ThreadState state) {
+		String keyname = nextKeyname(state);
 
 		memcached.get(keyname, null);
 	}
 
-	public long doTransactionGets(Memcached memcached) {
-		int keynum;
-		do {
-			keynum = keychooser.nextInt();
-		} while (keynum > transactioninsertkeysequence.lastInt());
-
-		if (!orderedinserts) {
-			keynum = Utils.hash(keynum);
-		}
-		return memcached.gets(Config.getConfig().key_prefix + keynum);
+	public long doTransactionGets(Memcached memcached, ThreadState state) {
+		return memcached.gets(nextKeyname(state));
 	}
 
 	public void doTransactionIncr(Memcached memcached) {
 
 	}
 
-	public void doTransactionPrepend(Memcached memcached) {
-		int keynum;
-		do {
-			keynum = keychooser.nextInt();
-		} while (keynum > transactioninsertkeysequence.lastInt());
-
-		if (!orderedinserts) {
-			keynum = Utils.hash(keynum);
-		}
-		String key = Config.getConfig().key_prefix + keynum;
+	public void doTransactionPrepend(Memcached memcached, ThreadState state) {
+		String key = nextKeyname(state);
 		memcached.prepend(key, 0, "prepended_string");
 	}
 
-	public void doTransactionReplace(Memcached memcached) {
-		int keynum;
-		do {
-			keynum = keychooser.nextInt();
-		} while (keynum > transactioninsertkeysequence.lastInt());
-
-		if (!orderedinserts) {
-			keynum = Utils.hash(keynum);
-		}
-		String key = Config.getConfig().key_prefix + keynum;
+	public void doTransactionReplace(Memcached memcached, ThreadState state) {
+		String key = nextKeyname(state);
 		String value = Utils.ASCIIString(Config.getConfig().value_length);
 		memcached.replace(key, value);
 	}
 
-	public void doTransactionSet(Memcached memcached) {
-		int keynum;
-		do {
-			keynum = keychooser.nextInt();
-		} while (keynum > transactioninsertkeysequence.lastInt());
-
-		if (!orderedinserts) {
-			keynum = Utils.hash(keynum);
-		}
-		String keyname = Config.getConfig().key_prefix + keynum;
+	public void doTransactionSet(Memcached memcached, ThreadState state) {
+		String keyname = nextKeyname(state);
 		String value = Utils.ASCIIString(Config.getConfig().value_length);
 		memcached.set(keyname, value);
 	}
 
-	public void doTransactionUpdate(Memcached memcached) {
-		int keynum;
-		do {
-			keynum = keychooser.nextInt();
-		} while (keynum > transactioninsertkeysequence.lastInt());
-
-		if (!orderedinserts) {
-			keynum = Utils.hash(keynum);
-		}
-		String keyname = Config.getConfig().key_prefix + keynum;
+	public void doTransactionUpdate(Memcached memcached, ThreadState state) {
+		String keyname = nextKeyname(state);
 		String value = Utils.ASCIIString(Config.getConfig().value_length);
 		memcached.update(keyname, value);
 	}
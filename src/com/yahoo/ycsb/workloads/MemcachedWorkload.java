@@ -0,0 +1,267 @@
+package com.yahoo.ycsb.workloads;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import com.yahoo.ycsb.Config;
+import com.yahoo.ycsb.DataStore;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.generator.IntegerGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.memcached.Memcached;
+
+/**
+ * The key sequences and the operations of the workloads on a Memcached store
+ * (MemcachedCoreWorkload and KeyValueCoreWorkload), which only differ in how
+ * they are configured.
+ */
+public abstract class MemcachedWorkload extends CoreWorkload {
+
+	IntegerGenerator keysequence;
+
+	boolean orderedinserts;
+
+	/**
+	 * Choose the key of a transaction on an existing record.
+	 */
+	String nextKeyname(ThreadState state) {
+		int keynum = nextKeynum(state);
+
+		if (!orderedinserts) {
+			keynum = Utils.hash(keynum);
+		}
+		return Config.getConfig().key_prefix + keynum;
+	}
+
+	public CompletableFuture<?> doTransactionAsync(DataStore store) {
+		return doTransactionAsync(store, shared);
+	}
+
+	/**
+	 * Issue one transaction operation without waiting for it. Same operation
+	 * mix and keys as doTransaction().
+	 */
+	public CompletableFuture<?> doTransactionAsync(DataStore store,
+			Object threadstate) {
+		ThreadState state = current(threadstate);
+		final Memcached memcached = (Memcached) store;
+		int keynum;
+
+		switch ((OperationType) state.operationchooser.nextValue()) {
+		case ADD:
+			keynum = transactioninsertkeysequence.nextInt();
+			CompletableFuture<Integer> add;
+			try {
+				add = memcached.addAsync(Config.getConfig().key_prefix
+						+ (orderedinserts ? keynum : Utils.hash(keynum)), Utils
+						.ASCIIString(Config.getConfig().value_length));
+			} catch (RuntimeException e) {
+				// not issued: acknowledged like an add that failed
+				transactioninsertkeysequence.acknowledge(keynum);
+				throw e;
+			}
+			return transactioninsertkeysequence.acknowledge(add, keynum);
+		case APPEND:
+			return memcached.appendAsync(nextKeyname(state), 0,
+					"appended_string");
+		case CAS:
+			return getsAndCasAsync(memcached, nextKeyname(state), Utils
+					.ASCIIString(Config.getConfig().value_length));
+		case GET:
+			return memcached.getAsync(nextKeyname(state), null);
+		case GETS:
+			return memcached.getsAsync(nextKeyname(state));
+		case PREPEND:
+			return memcached.prependAsync(nextKeyname(state), 0,
+					"prepended_string");
+		case REPLACE:
+			return memcached.replaceAsync(nextKeyname(state),
+					Utils.ASCIIString(Config.getConfig().value_length));
+		case SET:
+			keynum = keysequence.nextInt();
+			if (!orderedinserts) {
+				keynum = Utils.hash(keynum);
+			}
+			return memcached.setAsync(Config.getConfig().key_prefix + keynum,
+					Utils.ASCIIString(Config.getConfig().value_length));
+		case UPDATE:
+			return memcached.updateAsync(nextKeyname(state),
+					Utils.ASCIIString(Config.getConfig().value_length));
+		default:
+			// DECR, DELETE and INCR are not implemented by doTransaction() either
+			return CompletableFuture.completedFuture(null);
+		}
+	}
+
+	/**
+	 * Issue a gets, then the cas of its value when it completes. The cas is
+	 * issued on the thread that completes the gets, so the intended start of
+	 * the operation is taken here, on the thread that issues it.
+	 */
+	CompletableFuture<Integer> getsAndCasAsync(final Memcached memcached,
+			final String key, final String value) {
+		final boolean scheduled = Measurements.getMeasurements()
+				.hasIntendedStart();
+		final long intended = Measurements.getMeasurements()
+				.getIntendedStart();
+		return memcached.getsAsync(key).thenCompose(
+				new Function<Long, CompletableFuture<Integer>>() {
+					public CompletableFuture<Integer> apply(Long cas) {
+						return memcached.casAsync(key, cas, value, scheduled,
+								intended);
+					}
+				});
+	}
+
+	/**
+	 * The operations of doTransaction() can be generated apart from their
+	 * execution.
+	 */
+	public boolean canPregenerate() {
+		return true;
+	}
+
+	/**
+	 * Choose the next transaction operation. Same operation mix and keys as
+	 * doTransaction(). A set takes its key number right away; an add takes
+	 * it from the insert sequence only when it is executed (takeAddKey()).
+	 */
+	public Object nextOperation(Object threadstate) {
+		ThreadState state = current(threadstate);
+		Operation o = new Operation();
+		o.op = (OperationType) state.operationchooser.nextValue();
+
+		switch (o.op) {
+		case ADD:
+			o.value = Utils.ASCIIString(Config.getConfig().value_length);
+			break;
+		case SET:
+			o.keynum = keysequence.nextInt();
+			o.key = Config.getConfig().key_prefix
+					+ (orderedinserts ? o.keynum : Utils.hash(o.keynum));
+			o.value = Utils.ASCIIString(Config.getConfig().value_length);
+			break;
+		case APPEND:
+			o.key = nextKeyname(state);
+			o.value = "appended_string";
+			break;
+		case PREPEND:
+			o.key = nextKeyname(state);
+			o.value = "prepended_string";
+			break;
+		case GET:
+		case GETS:
+			o.key = nextKeyname(state);
+			break;
+		case CAS:
+		case REPLACE:
+		case UPDATE:
+			o.key = nextKeyname(state);
+			o.value = Utils.ASCIIString(Config.getConfig().value_length);
+			break;
+		default:
+			// DECR, DELETE and INCR are not implemented by doTransaction() either
+			break;
+		}
+		return o;
+	}
+
+	/**
+	 * Take the key of an add of nextOperation() from the insert sequence,
+	 * right before it is executed. An add that is never executed, e.g. left
+	 * in the ring of a paused worker at the end of the run, then holds no
+	 * key number that would never be acknowledged and hold back lastInt().
+	 */
+	private void takeAddKey(Operation o) {
+		o.keynum = transactioninsertkeysequence.nextInt();
+		o.key = Config.getConfig().key_prefix
+				+ (orderedinserts ? o.keynum : Utils.hash(o.keynum));
+	}
+
+	/**
+	 * Execute an operation of nextOperation().
+	 */
+	public boolean doOperation(DataStore store, Object operation) {
+		Operation o = (Operation) operation;
+		Memcached memcached = (Memcached) store;
+
+		switch (o.op) {
+		case ADD:
+			takeAddKey(o);
+			try {
+				memcached.add(o.key, o.value);
+			} finally {
+				transactioninsertkeysequence.acknowledge(o.keynum);
+			}
+			break;
+		case APPEND:
+			memcached.append(o.key, 0, o.value);
+			break;
+		case CAS:
+			memcached.cas(o.key, memcached.gets(o.key), o.value);
+			break;
+		case GET:
+			memcached.get(o.key, null);
+			break;
+		case GETS:
+			memcached.gets(o.key);
+			break;
+		case PREPEND:
+			memcached.prepend(o.key, 0, o.value);
+			break;
+		case REPLACE:
+			memcached.replace(o.key, o.value);
+			break;
+		case SET:
+			memcached.set(o.key, o.value);
+			break;
+		case UPDATE:
+			memcached.update(o.key, o.value);
+			break;
+		default:
+			break;
+		}
+		return true;
+	}
+
+	/**
+	 * Issue an operation of nextOperation() without waiting for it.
+	 */
+	public CompletableFuture<?> doOperationAsync(DataStore store,
+			Object operation) {
+		final Operation o = (Operation) operation;
+		final Memcached memcached = (Memcached) store;
+
+		switch (o.op) {
+		case ADD:
+			takeAddKey(o);
+			CompletableFuture<Integer> add;
+			try {
+				add = memcached.addAsync(o.key, o.value);
+			} catch (RuntimeException e) {
+				// not issued: acknowledged like an add that failed
+				transactioninsertkeysequence.acknowledge(o.keynum);
+				throw e;
+			}
+			return transactioninsertkeysequence.acknowledge(add, o.keynum);
+		case APPEND:
+			return memcached.appendAsync(o.key, 0, o.value);
+		case CAS:
+			return getsAndCasAsync(memcached, o.key, o.value);
+		case GET:
+			return memcached.getAsync(o.key, null);
+		case GETS:
+			return memcached.getsAsync(o.key);
+		case PREPEND:
+			return memcached.prependAsync(o.key, 0, o.value);
+		case REPLACE:
+			return memcached.replaceAsync(o.key, o.value);
+		case SET:
+			return memcached.setAsync(o.key, o.value);
+		case UPDATE:
+			return memcached.updateAsync(o.key, o.value);
+		default:
+			return CompletableFuture.completedFuture(null);
+		}
+	}
+}
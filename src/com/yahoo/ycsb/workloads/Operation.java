@@ -0,0 +1,43 @@
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * A transaction operation of the core workloads, chosen by nextOperation()
+ * ahead of its execution by doOperation(), e.g. by a producer thread of the
+ * pool. Holds everything the generators of the thread chose, so executing it
+ * takes no more than the call to the DataStore, and for an insert the key
+ * number from the insert sequence.
+ */
+class Operation {
+	OperationType op;
+
+	String key;
+
+	/**
+	 * Number of the record of an insert in the insert sequence, taken and
+	 * acknowledged when the insert is executed
+	 */
+	int keynum;
+
+	/**
+	 * Fields returned by a read or scan, null for all fields
+	 */
+	HashSet<String> fields;
+
+	/**
+	 * Fields written by an insert, update or read-modify-write of a DB
+	 */
+	HashMap<String, String> values;
+
+	/**
+	 * Value written by an operation of a key/value store
+	 */
+	String value;
+
+	/**
+	 * Number of records of a scan
+	 */
+	int length;
+}
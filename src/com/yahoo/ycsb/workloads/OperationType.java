@@ -0,0 +1,12 @@
+package com.yahoo.ycsb.workloads;
+
+/**
+ * The operations the operation chooser of a core workload picks from, so
+ * that it dispatches with a switch rather than by comparing names.
+ */
+enum OperationType {
+	// DB
+	READ, UPDATE, INSERT, SCAN, READMODIFYWRITE,
+	// key/value store; UPDATE is shared
+	ADD, APPEND, CAS, DECR, DELETE, GET, GETS, INCR, PREPEND, REPLACE, SET
+}
@@ -0,0 +1,26 @@
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.generator.Generator;
+import com.yahoo.ycsb.generator.IntegerGenerator;
+
+/**
+ * The generators of one client thread. The core workloads create one per
+ * thread in initThread(), so the threads do not share the state of the
+ * choosers and never wait for each other to pick an operation or a key. The
+ * choosers draw from the RandomStream of the calling thread.
+ */
+public class ThreadState {
+	/**
+	 * Version of the configuration the generators were created for
+	 */
+	int version;
+
+	DiscreteGenerator operationchooser;
+
+	IntegerGenerator keychooser;
+
+	Generator fieldchooser;
+
+	IntegerGenerator scanlength;
+}
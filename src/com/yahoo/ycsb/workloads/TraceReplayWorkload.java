@@ -0,0 +1,385 @@
+package com.yahoo.ycsb.workloads;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.Config;
+import com.yahoo.ycsb.DataStore;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.database.DB;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.memcached.Memcached;
+import com.yahoo.ycsb.trace.Trace;
+import com.yahoo.ycsb.trace.TraceReader;
+
+/**
+ * Replays a trace recorded with the tracefile property, or converted with
+ * TraceConverter, against a DB or a Memcached binding. The trace is memory
+ * mapped and its blocks are divided among the threads of all clients, each
+ * of which decodes its own share without locks; a thread ends when its share
+ * is done, so operationcount should be at least the size of the trace.
+ *
+ * Properties:
+ * <UL>
+ * <LI><b>replayfile</b>: the trace to replay
+ * <LI><b>replaytiming</b>: "original" to issue every operation at its
+ * recorded time after the start of the replay (each thread takes the whole
+ * stream of some recording threads, so use as many threads as were recorded),
+ * "fast" to issue them as fast as the threads (or the target) allow, dealt
+ * out evenly (default: original). With original timing the response times
+ * are also measured from the recorded times, as from the schedule of a target.
+ * </UL>
+ *
+ * Operations of the other kind of store are mapped to the nearest one, e.g.
+ * GET to READ and SET to UPDATE. The table is the one of the configuration
+ * and values are random strings of the recorded size.
+ */
+public class TraceReplayWorkload extends Workload {
+	/**
+	 * Values of up to this size are created once per thread. Unit: chars
+	 */
+	private static final int VALUE_CACHE = 4096;
+
+	private TraceReader trace;
+	private boolean original;
+
+	/**
+	 * Start of the replay, set by the first operation. Unit: ns
+	 * (System.nanoTime)
+	 */
+	private long replaystart;
+	private boolean started;
+
+	/**
+	 * The state of one replaying thread
+	 */
+	static class ReplayState {
+		TraceReader.Cursor cursor;
+		String[] values = new String[VALUE_CACHE];
+		Measurements measurements = Measurements.getMeasurements();
+
+		/**
+		 * The start of the replay, once the thread has taken it over
+		 */
+		long replaystart;
+		boolean started;
+	}
+
+	/**
+	 * Number of the next thread that calls doInsert(db) or doTransaction(db)
+	 * without its state
+	 */
+	private final AtomicInteger statelessthreads = new AtomicInteger();
+
+	/**
+	 * The state of the threads that do not pass their own, created at their
+	 * first operation
+	 */
+	private final ThreadLocal<ReplayState> stateless = new ThreadLocal<ReplayState>();
+
+	public void init() throws WorkloadException {
+		Config config = Config.getConfig();
+		if (config.replay_file == null)
+			throw new WorkloadException("The trace replay needs replayfile");
+		if (config.replay_timing.equals("original"))
+			original = true;
+		else if (!config.replay_timing.equals("fast"))
+			throw new WorkloadException("Unknown replaytiming "
+					+ config.replay_timing + ", use original or fast");
+		try {
+			trace = new TraceReader(config.replay_file);
+		} catch (IOException e) {
+			throw new WorkloadException(e);
+		}
+		System.out.println("replaying " + trace.getOperations()
+				+ " operations of " + trace.getThreads() + " threads from "
+				+ config.replay_file);
+	}
+
+	/**
+	 * The threads do not think between the operations of a trace.
+	 */
+	public boolean isSelfPaced() {
+		return true;
+	}
+
+	/**
+	 * Take the share of the trace of one thread among all threads of all
+	 * clients.
+	 */
+	public Object initThread(int mythreadid, int threadcount)
+			throws WorkloadException {
+		Config config = Config.getConfig();
+		int clients = Math.max(1, config.client_count);
+		int slots = clients * threadcount;
+		int slot = config.client_index * threadcount + mythreadid;
+		if (original && slot == 0 && trace.getThreads() < slots)
+			System.out.println("The trace was recorded by "
+					+ trace.getThreads() + " threads, " + (slots - trace
+							.getThreads()) + " of the " + slots
+					+ " replaying threads stay idle");
+		ReplayState state = new ReplayState();
+		state.cursor = trace.cursor(slot, slots, original);
+		return state;
+	}
+
+	/**
+	 * Move to the next operation of the thread and wait for its time.
+	 *
+	 * @return false if the share of the thread is done or it was interrupted
+	 */
+	private boolean next(ReplayState state) {
+		TraceReader.Cursor cursor = state.cursor;
+		if (!cursor.next())
+			return false;
+		if (!original)
+			return true;
+
+		if (!state.started) {
+			state.replaystart = replayStart();
+			state.started = true;
+		}
+		long at = state.replaystart + cursor.getIntended() - trace.getStart();
+		long remaining;
+		while ((remaining = at - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(remaining);
+			if (Thread.currentThread().isInterrupted())
+				return false;
+		}
+		state.measurements.setIntendedStart(at);
+		return true;
+	}
+
+	/**
+	 * @return the start of the replay, now if it has not started yet
+	 */
+	private synchronized long replayStart() {
+		if (!started) {
+			replaystart = System.nanoTime();
+			started = true;
+		}
+		return replaystart;
+	}
+
+	private String value(ReplayState state, int size) {
+		if (size >= VALUE_CACHE)
+			return Utils.ASCIIString(size);
+		String v = state.values[size];
+		if (v == null)
+			v = state.values[size] = Utils.ASCIIString(size);
+		return v;
+	}
+
+	private HashMap<String, String> values(ReplayState state, int size) {
+		HashMap<String, String> values = new HashMap<String, String>();
+		values.put("field0", value(state, size));
+		return values;
+	}
+
+	/**
+	 * @return the state of a calling thread that does not pass its own. The
+	 *         threads take the shares of the threads of this client in the
+	 *         order of their first operation, as if they had called
+	 *         initThread() with threadcount threads.
+	 */
+	private ReplayState statelessState() {
+		ReplayState state = stateless.get();
+		if (state == null) {
+			int threads = Math.max(1, Config.getConfig().thread_count);
+			int id = statelessthreads.getAndIncrement();
+			if (id >= threads) {
+				// more threads than shares: the others have nothing to do
+				state = new ReplayState();
+				state.cursor = trace.cursor(0, 1, original);
+				while (state.cursor.next())
+					;
+			} else {
+				try {
+					state = (ReplayState) initThread(id, threads);
+				} catch (WorkloadException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			stateless.set(state);
+		}
+		return state;
+	}
+
+	/**
+	 * Replays the next operation of the calling thread, like doTransaction().
+	 */
+	public boolean doInsert(DataStore db) {
+		return doTransaction(db, statelessState());
+	}
+
+	/**
+	 * Replay the next operation of the calling thread, from a share of the
+	 * trace it takes at its first operation.
+	 */
+	public boolean doTransaction(DataStore db) {
+		return doTransaction(db, statelessState());
+	}
+
+	/**
+	 * Replays the next operation, like doTransaction().
+	 */
+	public boolean doInsert(DataStore db, Object threadstate) {
+		return doTransaction(db, threadstate);
+	}
+
+	/**
+	 * Replay the next operation of the thread.
+	 *
+	 * @return false when the share of the thread is done
+	 */
+	public boolean doTransaction(DataStore db, Object threadstate) {
+		ReplayState state = (ReplayState) threadstate;
+		if (!next(state))
+			return false;
+		TraceReader.Cursor c = state.cursor;
+		if (db instanceof Memcached)
+			replay((Memcached) db, state, c.getOp(), c.getKey(), c.getSize());
+		else
+			replay((DB) db, state, c.getOp(), c.getKey(), c.getSize());
+		return true;
+	}
+
+	private void replay(DB db, ReplayState state, byte op, String key,
+			int size) {
+		String table = Config.getConfig().table_name;
+		switch (op) {
+		case Trace.SCAN:
+			db.scan(table, key, Math.max(1, size), null,
+					new Vector<HashMap<String, String>>());
+			break;
+		case Trace.INSERT:
+		case Trace.ADD:
+			db.insert(table, key, values(state, size));
+			break;
+		case Trace.DELETE:
+			db.delete(table, key);
+			break;
+		case Trace.READ:
+		case Trace.GET:
+		case Trace.GETS:
+			db.read(table, key, null, new HashMap<String, String>());
+			break;
+		default:
+			db.update(table, key, values(state, size));
+		}
+	}
+
+	private void replay(Memcached db, ReplayState state, byte op, String key,
+			int size) {
+		switch (op) {
+		case Trace.INSERT:
+		case Trace.SET:
+			db.set(key, value(state, size));
+			break;
+		case Trace.ADD:
+			db.add(key, value(state, size));
+			break;
+		case Trace.APPEND:
+			db.append(key, 0, value(state, size));
+			break;
+		case Trace.PREPEND:
+			db.prepend(key, 0, value(state, size));
+			break;
+		case Trace.CAS:
+			db.cas(key, 0, value(state, size));
+			break;
+		case Trace.INCR:
+			db.incr(key, value(state, size));
+			break;
+		case Trace.DECR:
+			db.decr(key, value(state, size));
+			break;
+		case Trace.REPLACE:
+			db.replace(key, value(state, size));
+			break;
+		case Trace.UPDATE:
+			db.update(key, value(state, size));
+			break;
+		case Trace.DELETE:
+			db.delete(key);
+			break;
+		case Trace.GETS:
+			db.gets(key);
+			break;
+		default:
+			db.get(key, null);
+		}
+	}
+
+	/**
+	 * Issue the next operation of the thread without waiting for it.
+	 *
+	 * @return a future completed with false when the share of the thread is
+	 *         done
+	 */
+	public CompletableFuture<?> doTransactionAsync(DataStore db,
+			Object threadstate) {
+		ReplayState state = (ReplayState) threadstate;
+		if (!next(state))
+			return CompletableFuture.completedFuture(Boolean.FALSE);
+		TraceReader.Cursor c = state.cursor;
+		byte op = c.getOp();
+		String key = c.getKey();
+		int size = c.getSize();
+		if (db instanceof Memcached) {
+			Memcached m = (Memcached) db;
+			switch (op) {
+			case Trace.INSERT:
+			case Trace.SET:
+				return m.setAsync(key, value(state, size));
+			case Trace.UPDATE:
+				return m.updateAsync(key, value(state, size));
+			case Trace.DELETE:
+				return m.deleteAsync(key);
+			case Trace.READ:
+			case Trace.GET:
+				return m.getAsync(key, null);
+			default:
+				replay(m, state, op, key, size);
+				return CompletableFuture.completedFuture(Boolean.TRUE);
+			}
+		}
+		DB d = (DB) db;
+		String table = Config.getConfig().table_name;
+		switch (op) {
+		case Trace.READ:
+		case Trace.GET:
+		case Trace.GETS:
+			return d.readAsync(table, key, null, new HashMap<String, String>());
+		case Trace.INSERT:
+		case Trace.ADD:
+			return d.insertAsync(table, key, values(state, size));
+		case Trace.DELETE:
+			return d.deleteAsync(table, key);
+		case Trace.SCAN:
+			return d.scanAsync(table, key, Math.max(1, size), null,
+					new Vector<HashMap<String, String>>());
+		default:
+			return d.updateAsync(table, key, values(state, size));
+		}
+	}
+
+	/**
+	 * @return true if the operations go to a Memcached binding rather than
+	 *         a DB, judging by the class of the db property
+	 */
+	public static boolean isMemcached() {
+		try {
+			return Memcached.class.isAssignableFrom(Class.forName(Config
+					.getConfig().db));
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+}
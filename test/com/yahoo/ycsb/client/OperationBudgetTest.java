@@ -0,0 +1,178 @@
+package com.yahoo.ycsb.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Checks that an {@link OperationBudget} hands out exactly its number of
+ * operations, whatever the number of threads and however often they pause,
+ * and measures how much time the harness spends deciding whether a thread may
+ * execute its next operation, compared with the former synchronized
+ * ClientThreadPool.getTask(), which also read the clock inside the monitor.
+ */
+public class OperationBudgetTest {
+
+	/**
+	 * The former ClientThreadPool.getTask()
+	 */
+	static class SynchronizedBudget {
+		private long ops;
+		private long start = System.currentTimeMillis();
+		private long maxExecutionTime = Long.MAX_VALUE / 2;
+
+		synchronized boolean getTask() {
+			if (ops <= 0
+					|| (System.currentTimeMillis() - start) >= maxExecutionTime)
+				return false;
+			ops--;
+			return true;
+		}
+
+		SynchronizedBudget(long ops) {
+			this.ops = ops;
+		}
+	}
+
+	/**
+	 * Lease operations from budget in threadcount threads until it is used
+	 * up. Every thread gives its lease back and pauses after every
+	 * pauseevery operations, none if 0.
+	 *
+	 * @return the number of operations executed
+	 */
+	static long execute(final OperationBudget budget, int threadcount,
+			final int pauseevery) throws InterruptedException {
+		final AtomicLong executed = new AtomicLong();
+		Thread[] threads = new Thread[threadcount];
+		for (int i = 0; i < threadcount; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					OperationBudget.Lease lease = budget.newLease();
+					long n = 0;
+					while (lease.next()) {
+						n++;
+						if (pauseevery > 0 && n % pauseevery == 0) {
+							lease.release();
+							Thread.yield();
+						}
+					}
+					executed.addAndGet(n);
+				}
+			};
+		}
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+		return executed.get();
+	}
+
+	@Test
+	public void handsOutExactlyTheOperationCount() throws InterruptedException {
+		for (int threads = 1; threads <= 64; threads *= 4) {
+			long ops = 100003;
+			OperationBudget budget = new OperationBudget(ops, threads, 0);
+			assertEquals("threads " + threads, ops, execute(budget, threads, 0));
+			assertTrue(budget.isUsedUp());
+		}
+	}
+
+	@Test
+	public void handsOutExactlyTheOperationCountAcrossPauses()
+			throws InterruptedException {
+		for (int threads = 1; threads <= 64; threads *= 4) {
+			long ops = 100003;
+			OperationBudget budget = new OperationBudget(ops, threads, 0);
+			assertEquals("threads " + threads, ops, execute(budget, threads, 7));
+		}
+	}
+
+	@Test
+	public void releasedOperationsGoToTheOtherThreads()
+			throws InterruptedException {
+		long ops = 10000;
+		OperationBudget budget = new OperationBudget(ops, 4, 0);
+		// a thread that pauses for good in the middle of its lease
+		OperationBudget.Lease paused = budget.newLease();
+		assertTrue(paused.next());
+		paused.release();
+		assertFalse(budget.isUsedUp());
+
+		assertEquals(ops - 1, execute(budget, 4, 0));
+		assertFalse(paused.next());
+	}
+
+	@Test
+	public void expireStopsEveryLease() throws InterruptedException {
+		OperationBudget budget = new OperationBudget(1000, 1, 0);
+		OperationBudget.Lease lease = budget.newLease();
+		assertTrue(lease.next());
+		budget.expire();
+		assertFalse(lease.next());
+		assertTrue(budget.isUsedUp());
+	}
+
+	/**
+	 * @return thread time spent per operation. Unit: ns
+	 */
+	static double run(int threadcount, final long opsperthread, boolean leased)
+			throws InterruptedException {
+		long ops = opsperthread * threadcount;
+		final OperationBudget budget = new OperationBudget(ops, threadcount, 0);
+		final SynchronizedBudget legacy = new SynchronizedBudget(ops);
+
+		Thread[] threads = new Thread[threadcount];
+		for (int i = 0; i < threadcount; i++) {
+			if (leased) {
+				threads[i] = new Thread() {
+					public void run() {
+						OperationBudget.Lease lease = budget.newLease();
+						while (lease.next())
+							;
+					}
+				};
+			} else {
+				threads[i] = new Thread() {
+					public void run() {
+						while (legacy.getTask())
+							;
+					}
+				};
+			}
+		}
+
+		long st = System.nanoTime();
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+		long en = System.nanoTime();
+
+		return ((double) (en - st)) * threadcount / ops;
+	}
+
+	/**
+	 * Prints the harness overhead per operation as the thread count grows.
+	 */
+	@Test
+	public void overheadPerOperation() throws InterruptedException {
+		long opsperthread = 200000;
+
+		// warm up both code paths
+		run(4, opsperthread / 10, true);
+		run(4, opsperthread / 10, false);
+
+		System.out.println("threads\tsynchronized(ns/op)\tleased(ns/op)");
+		for (int threads = 1; threads <= 128; threads *= 2) {
+			double legacy = run(threads, opsperthread / threads + 1, false);
+			double leased = run(threads, opsperthread, true);
+			System.out.println(String.format("%d\t%.1f\t%.1f", threads,
+					legacy, leased));
+		}
+	}
+}
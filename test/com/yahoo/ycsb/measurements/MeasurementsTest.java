@@ -0,0 +1,94 @@
+package com.yahoo.ycsb.measurements;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.yahoo.ycsb.Config;
+
+/**
+ * Checks that the recorders, which many more threads than there are of them
+ * share and which are reset and reused after every collection, hand over
+ * every operation exactly once, and only in the interval it was measured in.
+ */
+public class MeasurementsTest {
+	static final int THREADS = 200;
+	static final int OPERATIONS = 5000;
+
+	@After
+	public void restoreMeasurementType() {
+		Config.getConfig().setProperty(Config.MEASUREMENT_TYPE_PROPERTY,
+				"histogram");
+	}
+
+	@Test(timeout = 60000)
+	public void collectsEveryOperationOnce() throws Exception {
+		Config.getConfig().setProperty(Config.MEASUREMENT_TYPE_PROPERTY,
+				"hdrhistogram");
+		final Measurements m = new Measurements();
+		Thread[] threads = new Thread[THREADS];
+		for (int i = 0; i < THREADS; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					for (int n = 0; n < OPERATIONS; n++) {
+						m.measureNanos("READ", n);
+						m.reportReturnCode("READ", 0);
+					}
+				}
+			};
+		}
+		for (Thread t : threads)
+			t.start();
+
+		long partial = 0;
+		boolean alive = true;
+		while (alive) {
+			alive = false;
+			for (Thread t : threads)
+				alive |= t.isAlive();
+			OneMeasurement read = m.getAndResetPartialData().get("READ");
+			if (read != null)
+				partial += read.getOperations();
+		}
+
+		long total = (long) THREADS * OPERATIONS;
+		assertEquals(total, partial);
+		assertEquals(total, m.getOperations());
+		assertTrue(m.getAndResetPartialData().isEmpty());
+		OneMeasurement read = m.totaldata.get("READ");
+		assertEquals(total, read.getOperations());
+		assertEquals(total, read.getReturnCodes().get(0)[0]);
+	}
+
+	@Test
+	public void leavesOutTheOperationsNotMeasuredInTheInterval() {
+		Config.getConfig().setProperty(Config.MEASUREMENT_TYPE_PROPERTY,
+				"histogram");
+		Measurements m = new Measurements();
+		m.measureNanos("READ", 1000);
+		m.measureNanos("UPDATE", 2000);
+		HashMap<String, OneMeasurement> first = m.getAndResetPartialData();
+		assertEquals(1, first.get("READ").getOperations());
+		assertEquals(1, first.get("UPDATE").getOperations());
+
+		// the recorder now records into the spare histograms, and the ones
+		// above have been reset for the next interval
+		m.measureNanos("READ", 3000);
+		HashMap<String, OneMeasurement> second = m.getAndResetPartialData();
+		assertEquals(1, second.get("READ").getOperations());
+		assertFalse(second.containsKey("UPDATE"));
+
+		m.measureNanos("READ", 4000);
+		HashMap<String, OneMeasurement> third = m.getAndResetPartialData();
+		assertEquals(1, third.get("READ").getOperations());
+		assertFalse(third.containsKey("UPDATE"));
+		assertTrue(m.getAndResetPartialData().isEmpty());
+		assertEquals(3, m.totaldata.get("READ").getOperations());
+		assertEquals(1, m.totaldata.get("UPDATE").getOperations());
+	}
+}
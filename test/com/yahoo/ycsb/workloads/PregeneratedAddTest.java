@@ -0,0 +1,114 @@
+package com.yahoo.ycsb.workloads;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.yahoo.ycsb.Config;
+import com.yahoo.ycsb.client.ClientThreadPool;
+import com.yahoo.ycsb.memcached.Memcached;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Pauses the workers of a pool while their rings hold pregenerated adds, and
+ * checks that every record added is acknowledged, so lastInt() keeps up with
+ * the adds.
+ */
+public class PregeneratedAddTest {
+	static final int RECORDS = 100;
+	static final int OPERATIONS = 20000;
+
+	/**
+	 * A Memcached that stores nothing and counts the adds
+	 */
+	public static class CountingMemcached extends Memcached {
+		static final AtomicLong adds = new AtomicLong();
+
+		public int add(String key, Object value) {
+			adds.incrementAndGet();
+			return 0;
+		}
+
+		public int append(String key, long cas, Object value) {
+			return 0;
+		}
+
+		public int cas(String key, long cas, Object value) {
+			return 0;
+		}
+
+		public int decr(String key, Object value) {
+			return 0;
+		}
+
+		public int delete(String key) {
+			return 0;
+		}
+
+		public int incr(String key, Object value) {
+			return 0;
+		}
+
+		public int get(String key, Object value) {
+			return 0;
+		}
+
+		public long gets(String key) {
+			return 1;
+		}
+
+		public int prepend(String key, long cas, Object value) {
+			return 0;
+		}
+
+		public int replace(String key, Object value) {
+			return 0;
+		}
+
+		public int set(String key, Object value) {
+			return 0;
+		}
+
+		public int update(String key, Object value) {
+			return 0;
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void pausedWorkersHoldNoAddKeys() throws Exception {
+		Config c = Config.getConfig();
+		c.setProperty(Config.DB_PROPERTY, CountingMemcached.class.getName());
+		c.setProperty(Config.DO_TRANSACTIONS_PROPERTY, "true");
+		c.setProperty(Config.RECORD_COUNT_PROPERTY, "" + RECORDS);
+		c.setProperty(Config.OPERATION_COUNT_PROPERTY, "" + OPERATIONS);
+		c.setProperty(Config.SLEEP_TIME, "0");
+		c.setProperty(Config.THINK_TIME_DISTRIBUTION_PROPERTY, "none");
+		c.setProperty(Config.MEMADD_PROPORTION_PROPERTY, "0.5");
+		c.setProperty(Config.MEMGET_PROPORTION_PROPERTY, "0.5");
+		c.setProperty(Config.MEMUPDATE_PROPORTION_PROPERTY, "0");
+		c.setProperty(Config.PREGENERATE_PROPERTY, "true");
+		c.setProperty(Config.PREGENERATE_DEPTH_PROPERTY, "1024");
+		c.setProperty(Config.PREGENERATE_THREADS_PROPERTY, "2");
+		CountingMemcached.adds.set(0);
+
+		MemcachedCoreWorkload workload = new MemcachedCoreWorkload();
+		workload.init();
+		ClientThreadPool pool = new ClientThreadPool(8, OPERATIONS, 0, 0,
+				workload);
+		while (!pool.isReady())
+			Thread.sleep(10);
+		// the rings of the paused workers are full of adds until the end
+		pool.setActiveThreads(1);
+		pool.start(System.currentTimeMillis());
+		pool.join();
+		Measurements.getMeasurements().getAndResetPartialData();
+
+		long adds = CountingMemcached.adds.get();
+		assertTrue(adds > 0);
+		assertEquals(RECORDS - 1 + adds,
+				workload.transactioninsertkeysequence.lastInt());
+	}
+}